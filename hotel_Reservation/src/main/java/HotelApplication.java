@@ -1,10 +1,114 @@
+import api.AdminResource;
+import api.AsyncExecutors;
+import api.HotelResource;
+import service.customer.CustomerService;
+import service.persistence.FsyncPolicy;
+import service.persistence.WriteAheadLog;
+import service.reservation.ReservationService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.concurrent.Executor;
+
 /**
  * @author joseneto
  *
  */
 public class HotelApplication {
 
+    // -Dhotel.wal=<directory> -Dhotel.wal.fsync=EVERY_WRITE|GROUP_COMMIT|OS_MANAGED
+    // -Dhotel.wal.groupCommitMillis=<ms> -Dhotel.wal.checkpointMillis=<ms>
+    private static final String WAL_PATH_PROPERTY = "hotel.wal";
+    private static final String WAL_FSYNC_PROPERTY = "hotel.wal.fsync";
+    private static final String WAL_GROUP_COMMIT_PROPERTY = "hotel.wal.groupCommitMillis";
+    private static final String WAL_CHECKPOINT_PROPERTY = "hotel.wal.checkpointMillis";
+    // -Dhotel.asyncThreads=<n> threads for the async calls while the log is attached
+    private static final String ASYNC_THREADS_PROPERTY = "hotel.asyncThreads";
+    // -Dhotel.offHeapHistoryMillis=<ms> moves ended stays off the heap that often; off by default
+    private static final String OFF_HEAP_HISTORY_PROPERTY = "hotel.offHeapHistoryMillis";
+
     public static void main(String[] args) {
+        openWriteAheadLog();
+        startOffHeapHistory();
         MainMenu.mainMenu();
     }
+
+    // Rebuilds customers, rooms and reservations from the last snapshot and the log after it,
+    // then logs every later change and checkpoints in the background. If the log cannot be
+    // opened or read, the application runs without one and its files are left as they are.
+    private static void openWriteAheadLog() {
+        final CustomerService customerService = CustomerService.getSingleton();
+        final ReservationService reservationService = ReservationService.getSingleton();
+        final Path directory = Paths.get(System.getProperty(WAL_PATH_PROPERTY, "hotel-data"));
+        final WriteAheadLog log;
+
+        try {
+            log = WriteAheadLog.open(directory,
+                    FsyncPolicy.valueOf(System.getProperty(WAL_FSYNC_PROPERTY, FsyncPolicy.GROUP_COMMIT.name())),
+                    Long.getLong(WAL_GROUP_COMMIT_PROPERTY, 10L));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not open the write-ahead log in " + directory
+                    + ", changes will not be saved: " + e);
+            return;
+        }
+
+        try {
+            log.replay(customerService, reservationService);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not read the write-ahead log in " + directory
+                    + ", starting empty and changes will not be saved: " + e);
+            // drop what was replayed before the failure rather than run on part of the history
+            reservationService.clearAllReservations();
+            reservationService.clearAllRooms();
+            customerService.clearAllCustomers();
+            try {
+                log.close();
+            } catch (IOException closeFailure) {
+                System.err.println("Could not close the write-ahead log: " + closeFailure.getMessage());
+            }
+            return;
+        }
+
+        customerService.setMutationLog(log);
+        reservationService.setMutationLog(log);
+        log.startCheckpoints(Long.getLong(WAL_CHECKPOINT_PROPERTY, 5 * 60 * 1000L));
+
+        // logged writes wait for the disk, so the async calls get their own threads instead of the common pool
+        final Executor asyncExecutor = AsyncExecutors.newBlockingExecutor(
+                Integer.getInteger(ASYNC_THREADS_PROPERTY, 4 * Runtime.getRuntime().availableProcessors()));
+        HotelResource.getSingleton().setAsyncExecutor(asyncExecutor);
+        AdminResource.getSingleton().setAsyncExecutor(asyncExecutor);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the write-ahead log: " + e.getMessage());
+            }
+        }, "wal-shutdown"));
+    }
+
+    // Keeps the heap flat as the history grows by moving every stay that ended by today off the heap
+    private static void startOffHeapHistory() {
+        final long periodMillis = Long.getLong(OFF_HEAP_HISTORY_PROPERTY, 0L);
+        if (periodMillis <= 0) {
+            return;
+        }
+
+        final ReservationService reservationService = ReservationService.getSingleton();
+        final Thread mover = new Thread(() -> {
+            while (true) {
+                reservationService.moveEndedStaysOffHeap(new Date());
+                try {
+                    Thread.sleep(periodMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "off-heap-history");
+        mover.setDaemon(true);
+        mover.start();
+    }
 }
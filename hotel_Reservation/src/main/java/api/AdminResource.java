@@ -1,12 +1,17 @@
 package api;
 
 import model.customer.Customer;
+import model.reservation.WaitlistEntry;
 import model.room.IRoom;
 import service.customer.CustomerService;
+import service.reservation.BookingSequencer;
 import service.reservation.ReservationService;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * @author joseneto
@@ -18,6 +23,8 @@ public class AdminResource {
 
     private final CustomerService customerService = CustomerService.getSingleton();
     private final ReservationService reservationService = ReservationService.getSingleton();
+    private final BookingSequencer sequencer = BookingSequencer.getSingleton();
+    private volatile Executor asyncExecutor = AsyncExecutors.defaultExecutor();
 
     private AdminResource() {}
 
@@ -25,11 +32,27 @@ public class AdminResource {
         return SINGLETON;
     }
 
+    // Sets the executor the *Async methods run on, see AsyncExecutors for a virtual-thread executor
+    public void setAsyncExecutor(Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor cannot be null");
+        }
+        this.asyncExecutor = executor;
+    }
+
     public Customer getCustomer(String email) {
         return customerService.getCustomer(email);
     }
 
     public void addRoom(List<IRoom> rooms) {
+        if (sequencer.isEnabled()) {
+            // queue every room first, then wait for all of them
+            final List<CompletableFuture<Void>> added = new ArrayList<>(rooms.size());
+            rooms.forEach(room -> added.add(sequencer.addRoom(room)));
+            added.forEach(BookingSequencer::await);
+            return;
+        }
+
         rooms.forEach(reservationService::addRoom);
     }
 
@@ -49,4 +72,61 @@ public class AdminResource {
     public String findMostPopularRoom() {
         return reservationService.findMostPopularRoom();
     }
+
+    // Retrieves the k room numbers with the most reservations, most booked first
+    public List<String> findMostPopularRooms(int k) {
+        return reservationService.findMostPopularRooms(k);
+    }
+
+    // Retrieves the k rooms booked most often during the last windowDays days (7, 30, 90...)
+    public List<String> findMostPopularRooms(int windowDays, int k) {
+        return reservationService.findMostPopularRooms(windowDays, k);
+    }
+
+    // Retrieves everyone still waiting for a room, by room number and then in the order they joined
+    public List<WaitlistEntry> getWaitlist() {
+        return reservationService.getWaitlist();
+    }
+
+    // ================== Async variants ==================
+    // Each runs its synchronous counterpart on the async executor; writes go through the
+    // booking sequencer instead while it is enabled.
+
+    public CompletableFuture<Customer> getCustomerAsync(String email) {
+        return CompletableFuture.supplyAsync(() -> getCustomer(email), asyncExecutor);
+    }
+
+    public CompletableFuture<Void> addRoomAsync(List<IRoom> rooms) {
+        if (sequencer.isEnabled()) {
+            final List<CompletableFuture<Void>> added = new ArrayList<>(rooms.size());
+            rooms.forEach(room -> added.add(sequencer.addRoom(room)));
+            return CompletableFuture.allOf(added.toArray(new CompletableFuture<?>[0]));
+        }
+
+        return CompletableFuture.runAsync(() -> addRoom(rooms), asyncExecutor);
+    }
+
+    public CompletableFuture<Collection<IRoom>> getAllRoomsAsync() {
+        return CompletableFuture.supplyAsync(this::getAllRooms, asyncExecutor);
+    }
+
+    public CompletableFuture<Collection<Customer>> getAllCustomersAsync() {
+        return CompletableFuture.supplyAsync(this::getAllCustomers, asyncExecutor);
+    }
+
+    public CompletableFuture<String> findMostPopularRoomAsync() {
+        return CompletableFuture.supplyAsync(this::findMostPopularRoom, asyncExecutor);
+    }
+
+    public CompletableFuture<List<String>> findMostPopularRoomsAsync(int k) {
+        return CompletableFuture.supplyAsync(() -> findMostPopularRooms(k), asyncExecutor);
+    }
+
+    public CompletableFuture<List<String>> findMostPopularRoomsAsync(int windowDays, int k) {
+        return CompletableFuture.supplyAsync(() -> findMostPopularRooms(windowDays, k), asyncExecutor);
+    }
+
+    public CompletableFuture<List<WaitlistEntry>> getWaitlistAsync() {
+        return CompletableFuture.supplyAsync(this::getWaitlist, asyncExecutor);
+    }
 }
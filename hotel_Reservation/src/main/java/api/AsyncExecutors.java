@@ -0,0 +1,80 @@
+package api;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the async methods of {@link HotelResource} and
+ * {@link AdminResource}.
+ *
+ * @author joseneto
+ *
+ */
+public final class AsyncExecutors {
+
+    private AsyncExecutors() {
+    }
+
+    /**
+     * @return the executor the resources start with, the common fork-join
+     * pool. It suits the calls only while no write-ahead log is attached;
+     * with one, writes wait for the disk, see {@link #newBlockingExecutor(int)}
+     */
+    public static Executor defaultExecutor() {
+        return ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Creates a fixed pool of daemon threads for calls that block, such as
+     * writes that wait for the write-ahead log to reach the disk, so they
+     * never tie up the common pool.
+     */
+    public static ExecutorService newBlockingExecutor(final int threads) {
+        final AtomicInteger created = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(threads, task -> {
+            final Thread thread = new Thread(task, "hotel-async-" + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task, on JDKs that
+     * have virtual threads (21 and later).
+     *
+     * @return the executor, or null on older JDKs
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            // looked up reflectively so the code still builds and runs on Java 8
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the shared virtual-thread-per-task executor where available,
+     * otherwise the default executor; created on the first call and never
+     * shut down, like the common pool
+     */
+    public static Executor virtualThreadsOrDefault() {
+        return VirtualThreads.EXECUTOR;
+    }
+
+    // initialised by the class loader on first use, so the executor is created once
+    private static final class VirtualThreads {
+
+        private static final Executor EXECUTOR = create();
+
+        private static Executor create() {
+            final ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+
+            return virtualThreads == null ? defaultExecutor() : virtualThreads;
+        }
+    }
+}
@@ -1,14 +1,23 @@
 package api;
 
 import model.customer.Customer;
+import model.reservation.AlternativeDates;
+import model.reservation.AvailableStay;
 import model.reservation.Reservation;
+import model.reservation.ReservationKey;
+import model.reservation.WaitlistEntry;
 import model.room.IRoom;
+import model.room.enums.RoomType;
 import service.customer.CustomerService;
+import service.reservation.BookingSequencer;
 import service.reservation.ReservationService;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * @author joseneto
@@ -20,6 +29,8 @@ public class HotelResource {
 
     private final CustomerService customerService = CustomerService.getSingleton();
     private final ReservationService reservationService = ReservationService.getSingleton();
+    private final BookingSequencer sequencer = BookingSequencer.getSingleton();
+    private volatile Executor asyncExecutor = AsyncExecutors.defaultExecutor();
 
     private HotelResource() {}
 
@@ -27,11 +38,24 @@ public class HotelResource {
         return SINGLETON;
     }
 
+    // Sets the executor the *Async methods run on, see AsyncExecutors for a virtual-thread executor
+    public void setAsyncExecutor(Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor cannot be null");
+        }
+        this.asyncExecutor = executor;
+    }
+
     public Customer getCustomer(String email) {
         return customerService.getCustomer(email);
     }
 
     public void createACustomer(String email, String firstName, String lastName) {
+        if (sequencer.isEnabled()) {
+            BookingSequencer.await(sequencer.addCustomer(email, firstName, lastName));
+            return;
+        }
+
         customerService.addCustomer(email, firstName, lastName);
     }
 
@@ -40,9 +64,35 @@ public class HotelResource {
     }
 
     public Reservation bookARoom(String customerEmail, IRoom room, Date checkInDate, Date checkOutDate) {
+        if (sequencer.isEnabled()) {
+            return BookingSequencer.await(bookARoomAsync(customerEmail, room, checkInDate, checkOutDate));
+        }
+
         return reservationService.reserveARoom(getCustomer(customerEmail), room, checkInDate, checkOutDate);
     }
 
+    // While the booking sequencer is enabled the booking is queued and applied by its writer thread;
+    // otherwise it is made on the async executor
+    public CompletableFuture<Reservation> bookARoomAsync(String customerEmail, IRoom room, Date checkInDate,
+            Date checkOutDate) {
+        if (sequencer.isEnabled()) {
+            return sequencer.reserveARoom(customerEmail, room, checkInDate, checkOutDate);
+        }
+
+        return CompletableFuture.supplyAsync(() -> reservationService.reserveARoom(getCustomer(customerEmail),
+                room, checkInDate, checkOutDate), asyncExecutor);
+    }
+
+    // Books the same stay in every listed room, all or nothing; see ReservationService.reserveRooms
+    public List<Reservation> bookGroup(String customerEmail, List<String> roomNumbers, Date checkInDate,
+            Date checkOutDate) {
+        if (sequencer.isEnabled()) {
+            return BookingSequencer.await(bookGroupAsync(customerEmail, roomNumbers, checkInDate, checkOutDate));
+        }
+
+        return reservationService.reserveRooms(getCustomer(customerEmail), roomNumbers, checkInDate, checkOutDate);
+    }
+
     public Collection<Reservation> getCustomersReservations(String customerEmail) {
         final Customer customer = getCustomer(customerEmail);
 
@@ -53,6 +103,16 @@ public class HotelResource {
         return reservationService.getCustomersReservation(getCustomer(customerEmail));
     }
 
+    public List<Reservation> getCustomerReservationHistory(String customerEmail, int offset, int limit) {
+        final Customer customer = getCustomer(customerEmail);
+
+        if (customer == null) {
+            return Collections.emptyList();
+        }
+
+        return reservationService.getCustomerReservationHistory(customer, offset, limit);
+    }
+
     public Collection<IRoom> findARoom(final Date checkIn, final Date checkOut) {
         return reservationService.findRooms(checkIn, checkOut);
     }
@@ -61,6 +121,20 @@ public class HotelResource {
         return reservationService.findAlternativeRooms(checkIn, checkOut);
     }
 
+    public List<AlternativeDates> findAlternativeDates(final Date checkIn, final Date checkOut) {
+        return reservationService.findAlternativeDates(checkIn, checkOut);
+    }
+
+    public List<AlternativeDates> findAlternativeDates(final Date checkIn, final Date checkOut,
+            final int maxOffsetDays) {
+        return reservationService.findAlternativeDates(checkIn, checkOut, maxOffsetDays);
+    }
+
+    public List<AvailableStay> findEarliestAvailability(final Date from, final int nights,
+            final RoomType roomType, final int limit) {
+        return reservationService.findEarliestAvailability(from, nights, roomType, limit);
+    }
+
     public Date addDefaultPlusDays(final Date date) {
         return reservationService.addDefaultPlusDays(date);
     }
@@ -74,6 +148,164 @@ public class HotelResource {
             return false;
         }
 
+        if (sequencer.isEnabled()) {
+            return roomNumber != null && checkInDate != null && BookingSequencer.await(
+                    sequencer.cancelReservation(ReservationKey.of(customerEmail, roomNumber, checkInDate)));
+        }
+
         return reservationService.cancelReservation(customer, roomNumber, checkInDate);
     }
+
+    // Cancels the reservation identified by the key, see ReservationKey.of(reservation)
+    public boolean cancelReservation(ReservationKey reservationKey) {
+        if (sequencer.isEnabled()) {
+            return BookingSequencer.await(sequencer.cancelReservation(reservationKey));
+        }
+
+        return reservationService.cancelReservation(reservationKey);
+    }
+
+    public Reservation getReservation(long reservationId) {
+        return reservationService.getReservation(reservationId);
+    }
+
+    public boolean cancelReservation(long reservationId) {
+        if (sequencer.isEnabled()) {
+            return BookingSequencer.await(sequencer.cancelReservation(reservationId));
+        }
+
+        return reservationService.cancelReservation(reservationId);
+    }
+
+    // Waits for the room to become free for the stay and books it then; see ReservationService.joinWaitlist
+    public WaitlistEntry joinWaitlist(String customerEmail, IRoom room, Date checkInDate, Date checkOutDate) {
+        return reservationService.joinWaitlist(getCustomer(customerEmail), room, checkInDate, checkOutDate);
+    }
+
+    public boolean leaveWaitlist(long entryId) {
+        return reservationService.leaveWaitlist(entryId);
+    }
+
+    public List<WaitlistEntry> getWaitlist(String customerEmail) {
+        final Customer customer = getCustomer(customerEmail);
+
+        if (customer == null) {
+            return Collections.emptyList();
+        }
+
+        return reservationService.getWaitlist(customer);
+    }
+
+    // ================== Async variants ==================
+    // Each runs its synchronous counterpart on the async executor, so callers can fan out
+    // several calls (e.g. exact and alternative dates) and combine the futures.
+
+    public CompletableFuture<Customer> getCustomerAsync(String email) {
+        return CompletableFuture.supplyAsync(() -> getCustomer(email), asyncExecutor);
+    }
+
+    public CompletableFuture<Void> createACustomerAsync(String email, String firstName, String lastName) {
+        if (sequencer.isEnabled()) {
+            return sequencer.addCustomer(email, firstName, lastName);
+        }
+
+        return CompletableFuture.runAsync(() -> createACustomer(email, firstName, lastName), asyncExecutor);
+    }
+
+    public CompletableFuture<List<Reservation>> bookGroupAsync(String customerEmail, List<String> roomNumbers,
+            Date checkInDate, Date checkOutDate) {
+        if (sequencer.isEnabled()) {
+            return sequencer.reserveRooms(customerEmail, roomNumbers, checkInDate, checkOutDate);
+        }
+
+        return CompletableFuture.supplyAsync(() -> reservationService.reserveRooms(getCustomer(customerEmail),
+                roomNumbers, checkInDate, checkOutDate), asyncExecutor);
+    }
+
+    public CompletableFuture<IRoom> getRoomAsync(String roomNumber) {
+        return CompletableFuture.supplyAsync(() -> getRoom(roomNumber), asyncExecutor);
+    }
+
+    public CompletableFuture<Collection<Reservation>> getCustomersReservationsAsync(String customerEmail) {
+        return CompletableFuture.supplyAsync(() -> getCustomersReservations(customerEmail), asyncExecutor);
+    }
+
+    public CompletableFuture<List<Reservation>> getCustomerReservationHistoryAsync(String customerEmail,
+            int offset, int limit) {
+        return CompletableFuture.supplyAsync(() -> getCustomerReservationHistory(customerEmail, offset, limit),
+                asyncExecutor);
+    }
+
+    public CompletableFuture<Collection<IRoom>> findARoomAsync(final Date checkIn, final Date checkOut) {
+        return CompletableFuture.supplyAsync(() -> findARoom(checkIn, checkOut), asyncExecutor);
+    }
+
+    public CompletableFuture<Collection<IRoom>> findAlternativeRoomsAsync(final Date checkIn, final Date checkOut) {
+        return CompletableFuture.supplyAsync(() -> findAlternativeRooms(checkIn, checkOut), asyncExecutor);
+    }
+
+    public CompletableFuture<List<AlternativeDates>> findAlternativeDatesAsync(final Date checkIn,
+            final Date checkOut) {
+        return CompletableFuture.supplyAsync(() -> findAlternativeDates(checkIn, checkOut), asyncExecutor);
+    }
+
+    public CompletableFuture<List<AlternativeDates>> findAlternativeDatesAsync(final Date checkIn,
+            final Date checkOut, final int maxOffsetDays) {
+        return CompletableFuture.supplyAsync(() -> findAlternativeDates(checkIn, checkOut, maxOffsetDays),
+                asyncExecutor);
+    }
+
+    public CompletableFuture<List<AvailableStay>> findEarliestAvailabilityAsync(final Date from,
+            final int nights, final RoomType roomType, final int limit) {
+        return CompletableFuture.supplyAsync(() -> findEarliestAvailability(from, nights, roomType, limit),
+                asyncExecutor);
+    }
+
+    public CompletableFuture<Boolean> cancelReservationAsync(String customerEmail, String roomNumber,
+            Date checkInDate) {
+        if (sequencer.isEnabled()) {
+            // a key of an unknown customer matches no reservation
+            if (customerEmail == null || roomNumber == null || checkInDate == null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            return sequencer.cancelReservation(ReservationKey.of(customerEmail, roomNumber, checkInDate));
+        }
+
+        return CompletableFuture.supplyAsync(() -> cancelReservation(customerEmail, roomNumber, checkInDate),
+                asyncExecutor);
+    }
+
+    public CompletableFuture<Boolean> cancelReservationAsync(ReservationKey reservationKey) {
+        if (sequencer.isEnabled()) {
+            return sequencer.cancelReservation(reservationKey);
+        }
+
+        return CompletableFuture.supplyAsync(() -> cancelReservation(reservationKey), asyncExecutor);
+    }
+
+    public CompletableFuture<Reservation> getReservationAsync(long reservationId) {
+        return CompletableFuture.supplyAsync(() -> getReservation(reservationId), asyncExecutor);
+    }
+
+    public CompletableFuture<Boolean> cancelReservationAsync(long reservationId) {
+        if (sequencer.isEnabled()) {
+            return sequencer.cancelReservation(reservationId);
+        }
+
+        return CompletableFuture.supplyAsync(() -> cancelReservation(reservationId), asyncExecutor);
+    }
+
+    public CompletableFuture<WaitlistEntry> joinWaitlistAsync(String customerEmail, IRoom room, Date checkInDate,
+            Date checkOutDate) {
+        return CompletableFuture.supplyAsync(() -> joinWaitlist(customerEmail, room, checkInDate, checkOutDate),
+                asyncExecutor);
+    }
+
+    public CompletableFuture<Boolean> leaveWaitlistAsync(long entryId) {
+        return CompletableFuture.supplyAsync(() -> leaveWaitlist(entryId), asyncExecutor);
+    }
+
+    public CompletableFuture<List<WaitlistEntry>> getWaitlistAsync(String customerEmail) {
+        return CompletableFuture.supplyAsync(() -> getWaitlist(customerEmail), asyncExecutor);
+    }
 }
@@ -0,0 +1,52 @@
+package model.reservation;
+
+import model.room.IRoom;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Rooms that are free when a requested stay is shifted by a number of days.
+ *
+ * @author joseneto
+ *
+ */
+public class AlternativeDates {
+
+    private final int offsetDays;
+    private final Date checkInDate;
+    private final Date checkOutDate;
+    private final Collection<IRoom> rooms;
+
+    public AlternativeDates(final int offsetDays, final Date checkInDate,
+                            final Date checkOutDate, final Collection<IRoom> rooms) {
+        this.offsetDays = offsetDays;
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+        this.rooms = rooms;
+    }
+
+    public int getOffsetDays() {
+        return this.offsetDays;
+    }
+
+    public Date getCheckInDate() {
+        return this.checkInDate;
+    }
+
+    public Date getCheckOutDate() {
+        return this.checkOutDate;
+    }
+
+    public Collection<IRoom> getRooms() {
+        return this.rooms;
+    }
+
+    @Override
+    public String toString() {
+        return "Offset: " + (this.offsetDays > 0 ? "+" : "") + this.offsetDays + " days"
+                + "\nCheckIn Date: " + this.checkInDate
+                + "\nCheckOut Date: " + this.checkOutDate
+                + "\nRooms: " + this.rooms.size();
+    }
+}
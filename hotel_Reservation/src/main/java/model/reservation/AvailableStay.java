@@ -0,0 +1,44 @@
+package model.reservation;
+
+import model.room.IRoom;
+
+import java.util.Date;
+
+/**
+ * A free window of a room: the room can be booked from the check-in date to
+ * the check-out date.
+ *
+ * @author joseneto
+ *
+ */
+public class AvailableStay {
+
+    private final IRoom room;
+    private final Date checkInDate;
+    private final Date checkOutDate;
+
+    public AvailableStay(final IRoom room, final Date checkInDate, final Date checkOutDate) {
+        this.room = room;
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+    }
+
+    public IRoom getRoom() {
+        return this.room;
+    }
+
+    public Date getCheckInDate() {
+        return this.checkInDate;
+    }
+
+    public Date getCheckOutDate() {
+        return this.checkOutDate;
+    }
+
+    @Override
+    public String toString() {
+        return "Room: " + this.room.toString()
+                + "\nCheckIn Date: " + this.checkInDate
+                + "\nCheckOut Date: " + this.checkOutDate;
+    }
+}
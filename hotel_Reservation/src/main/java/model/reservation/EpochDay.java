@@ -0,0 +1,42 @@
+package model.reservation;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Conversions between {@link Date} and epoch days, the number of days since
+ * 1970-01-01 as returned by {@link LocalDate#toEpochDay()}.
+ *
+ * Reservations are compared, shifted and indexed as int epoch days, which
+ * drops the time-of-day part of the dates the user typed in and avoids a
+ * Calendar or ZonedDateTime per comparison. Days are calendar days in the
+ * default time zone of the JVM when this class was loaded.
+ *
+ * @author joseneto
+ *
+ */
+public final class EpochDay {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final TimeZone ZONE = TimeZone.getDefault();
+
+    private EpochDay() {
+    }
+
+    public static int of(final Date date) {
+        final long millis = date.getTime();
+        return (int) Math.floorDiv(millis + ZONE.getOffset(millis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * @return the start of the day in the default time zone
+     */
+    public static Date toDate(final int epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZONE.toZoneId()).toInstant());
+    }
+
+    public static Date plusDays(final Date date, final int days) {
+        return Date.from(date.toInstant().atZone(ZONE.toZoneId()).plusDays(days).toInstant());
+    }
+}
@@ -4,6 +4,7 @@ import model.customer.Customer;
 import model.room.IRoom;
 
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author joseneto
@@ -11,17 +12,44 @@ import java.util.Date;
  */
 public class Reservation {
 
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final long id;
     private final Customer customer;
     private final IRoom room;
-    private final Date checkInDate;
-    private final Date checkOutDate;
+    private final int checkInDay;
+    private final int checkOutDay;
 
     public Reservation(final Customer customer, final IRoom room,
                        final Date checkInDate, final Date checkOutDate) {
+        this(customer, room, EpochDay.of(checkInDate), EpochDay.of(checkOutDate));
+    }
+
+    public Reservation(final Customer customer, final IRoom room,
+                       final int checkInDay, final int checkOutDay) {
+        this(NEXT_ID.incrementAndGet(), customer, room, checkInDay, checkOutDay);
+    }
+
+    /**
+     * Recreates a reservation with the id it was given before, e.g. when it
+     * is read back from disk. Ids handed out afterwards are higher than it.
+     */
+    public Reservation(final long id, final Customer customer, final IRoom room,
+                       final int checkInDay, final int checkOutDay) {
+        NEXT_ID.accumulateAndGet(id, Math::max);
+        this.id = id;
         this.customer = customer;
         this.room = room;
-        this.checkInDate = checkInDate;
-        this.checkOutDate = checkOutDate;
+        this.checkInDay = checkInDay;
+        this.checkOutDay = checkOutDay;
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public Customer getCustomer() {
+        return this.customer;
     }
 
     public IRoom getRoom() {
@@ -29,18 +57,33 @@ public class Reservation {
     }
 
     public Date getCheckInDate() {
-        return this.checkInDate;
+        return EpochDay.toDate(this.checkInDay);
     }
 
     public Date getCheckOutDate() {
-        return this.checkOutDate;
+        return EpochDay.toDate(this.checkOutDay);
+    }
+
+    /**
+     * @return the check-in date as an epoch day, see {@link EpochDay}
+     */
+    public int getCheckInDay() {
+        return this.checkInDay;
+    }
+
+    /**
+     * @return the check-out date as an epoch day, see {@link EpochDay}
+     */
+    public int getCheckOutDay() {
+        return this.checkOutDay;
     }
 
     @Override
     public String toString() {
-        return "Customer: " + this.customer.toString()
+        return "Reservation ID: " + this.id
+                + "\nCustomer: " + this.customer.toString()
                 + "\nRoom: " + this.room.toString()
-                + "\nCheckIn Date: " + this.checkInDate
-                + "\nCheckOut Date: " + this.checkOutDate;
+                + "\nCheckIn Date: " + getCheckInDate()
+                + "\nCheckOut Date: " + getCheckOutDate();
     }
 }
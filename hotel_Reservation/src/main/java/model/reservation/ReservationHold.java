@@ -0,0 +1,47 @@
+package model.reservation;
+
+import java.util.Date;
+
+/**
+ * A tentative booking: the room is kept for the stay of the reservation until
+ * the hold is confirmed, released or expires, whichever comes first. The hold
+ * has the id of its reservation.
+ *
+ * @author joseneto
+ *
+ */
+public class ReservationHold {
+
+    private final Reservation reservation;
+    private final long expiresAtMillis;
+
+    public ReservationHold(final Reservation reservation, final long expiresAtMillis) {
+        this.reservation = reservation;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public long getId() {
+        return this.reservation.getId();
+    }
+
+    /**
+     * @return the reservation the hold turns into once it is confirmed
+     */
+    public Reservation getReservation() {
+        return this.reservation;
+    }
+
+    public Date getExpiresAt() {
+        return new Date(this.expiresAtMillis);
+    }
+
+    public long getExpiresAtMillis() {
+        return this.expiresAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "Hold of " + this.reservation.toString()
+                + "\nExpires At: " + getExpiresAt();
+    }
+}
@@ -0,0 +1,77 @@
+package model.reservation;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * Identifies a reservation by customer email, room number and check-in day.
+ *
+ * A room can only be booked once per night, so the three fields are enough to
+ * find a single reservation without scanning the customer's bookings.
+ *
+ * @author joseneto
+ *
+ */
+public final class ReservationKey {
+
+    private final String customerEmail;
+    private final String roomNumber;
+    private final int checkInDay;
+
+    private ReservationKey(final String customerEmail, final String roomNumber, final int checkInDay) {
+        this.customerEmail = customerEmail;
+        this.roomNumber = roomNumber;
+        this.checkInDay = checkInDay;
+    }
+
+    public static ReservationKey of(final String customerEmail, final String roomNumber, final Date checkInDate) {
+        return new ReservationKey(customerEmail, roomNumber, EpochDay.of(checkInDate));
+    }
+
+    public static ReservationKey of(final String customerEmail, final String roomNumber, final int checkInDay) {
+        return new ReservationKey(customerEmail, roomNumber, checkInDay);
+    }
+
+    public static ReservationKey of(final Reservation reservation) {
+        return of(reservation.getCustomer().getEmail(), reservation.getRoom().getRoomNumber(),
+                reservation.getCheckInDay());
+    }
+
+    public String getCustomerEmail() {
+        return this.customerEmail;
+    }
+
+    public String getRoomNumber() {
+        return this.roomNumber;
+    }
+
+    public int getCheckInDay() {
+        return this.checkInDay;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+
+        if (!(obj instanceof ReservationKey)) {
+            return false;
+        }
+
+        final ReservationKey key = (ReservationKey) obj;
+        return this.checkInDay == key.checkInDay
+                && this.roomNumber.equals(key.roomNumber)
+                && this.customerEmail.equals(key.customerEmail);
+    }
+
+    @Override
+    public int hashCode() {
+        return (31 * customerEmail.hashCode() + roomNumber.hashCode()) * 31 + checkInDay;
+    }
+
+    @Override
+    public String toString() {
+        return this.customerEmail + "/" + this.roomNumber + "/" + LocalDate.ofEpochDay(this.checkInDay);
+    }
+}
@@ -0,0 +1,90 @@
+package model.reservation;
+
+import model.customer.Customer;
+import model.room.IRoom;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A customer waiting for a room to become free for a stay. Entries are
+ * served in the order they joined, which is the order of their ids.
+ *
+ * @author joseneto
+ *
+ */
+public class WaitlistEntry {
+
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final long id;
+    private final Customer customer;
+    private final IRoom room;
+    private final int checkInDay;
+    private final int checkOutDay;
+    private volatile Reservation reservation;
+
+    public WaitlistEntry(final Customer customer, final IRoom room, final int checkInDay, final int checkOutDay) {
+        this.id = NEXT_ID.incrementAndGet();
+        this.customer = customer;
+        this.room = room;
+        this.checkInDay = checkInDay;
+        this.checkOutDay = checkOutDay;
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public Customer getCustomer() {
+        return this.customer;
+    }
+
+    public IRoom getRoom() {
+        return this.room;
+    }
+
+    public Date getCheckInDate() {
+        return EpochDay.toDate(this.checkInDay);
+    }
+
+    public Date getCheckOutDate() {
+        return EpochDay.toDate(this.checkOutDay);
+    }
+
+    /**
+     * @return the check-in date as an epoch day, see {@link EpochDay}
+     */
+    public int getCheckInDay() {
+        return this.checkInDay;
+    }
+
+    /**
+     * @return the check-out date as an epoch day, see {@link EpochDay}
+     */
+    public int getCheckOutDay() {
+        return this.checkOutDay;
+    }
+
+    /**
+     * @return the reservation made for this entry once the room became free,
+     * or null while the customer is still waiting
+     */
+    public Reservation getReservation() {
+        return this.reservation;
+    }
+
+    public void setReservation(final Reservation reservation) {
+        this.reservation = reservation;
+    }
+
+    @Override
+    public String toString() {
+        return "Waitlist ID: " + this.id
+                + "\nCustomer: " + this.customer.toString()
+                + "\nRoom: " + this.room.toString()
+                + "\nCheckIn Date: " + getCheckInDate()
+                + "\nCheckOut Date: " + getCheckOutDate()
+                + (this.reservation == null ? "" : "\nAssigned Reservation ID: " + this.reservation.getId());
+    }
+}
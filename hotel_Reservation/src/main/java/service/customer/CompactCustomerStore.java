@@ -0,0 +1,198 @@
+package service.customer;
+
+import model.customer.Customer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Customers stored as rows of ints instead of objects.
+ *
+ * Every distinct email is given a dense int code in a dictionary of emails,
+ * and that code is also the customer's row: its first and last name as codes
+ * in one dictionary of names. Names repeat across guests, so each distinct
+ * name is stored once. Strings are kept as UTF-8 in byte arrays, so a
+ * customer costs its email bytes and a few ints instead of a
+ * {@link Customer}, three Strings and a hash map entry.
+ *
+ * Lookups return a {@link Customer} decoded from the row through its
+ * validating constructor. A row is decoded the first time it is looked up
+ * and the customer then kept, so the same customer is always the same
+ * object, and only customers that were looked up hold Strings. Replacing a
+ * customer overwrites its row and removing one only marks it gone, so an
+ * email never takes more than one row; the objects handed out before keep
+ * their fields.
+ *
+ * Changes take the write lock of a {@link StampedLock} and lookups by email
+ * the read lock.
+ *
+ * @author joseneto
+ *
+ */
+final class CompactCustomerStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int ROW_INTS = 2;
+    private static final int NO_NAME = -1;
+    private static final int NO_CUSTOMER = -1;
+
+    private final StampedLock lock = new StampedLock();
+    private final Utf8Dictionary emails = new Utf8Dictionary();
+    private final Utf8Dictionary names = new Utf8Dictionary();
+    // first name code, last name code per email code
+    private int[] rows = new int[INITIAL_CAPACITY * ROW_INTS];
+    // the customer of each row once it was looked up; replaced only under the write lock
+    private AtomicReferenceArray<Customer> views = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    // whether the customer of each email code is live
+    private boolean[] live = new boolean[INITIAL_CAPACITY];
+    private int liveCount;
+
+    /**
+     * Adds the customer, or replaces the one with the same email in its row.
+     * The action runs under the lock first, so it sees changes in the order
+     * they apply.
+     */
+    void put(final String email, final String firstName, final String lastName, final Runnable action) {
+        final long stamp = lock.writeLock();
+        try {
+            action.run();
+
+            final int id = emails.intern(email);
+            if (id == live.length) {
+                rows = Arrays.copyOf(rows, rows.length * 2);
+                views = grow(views, id * 2);
+                live = Arrays.copyOf(live, id * 2);
+            }
+            rows[id * ROW_INTS] = firstName == null ? NO_NAME : names.intern(firstName);
+            rows[id * ROW_INTS + 1] = lastName == null ? NO_NAME : names.intern(lastName);
+            // decoded again on the next lookup
+            views.set(id, null);
+
+            if (!live[id]) {
+                live[id] = true;
+                liveCount++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the live customer with the email, or null
+     */
+    Customer get(final String email) {
+        final long stamp = lock.readLock();
+        try {
+            final int id = liveId(email);
+
+            return id == NO_CUSTOMER ? null : view(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the live customers, in the order their emails were
+     * first added
+     */
+    List<Customer> getAll() {
+        final long stamp = lock.readLock();
+        try {
+            final List<Customer> customers = new ArrayList<>(liveCount);
+
+            for (int id = 0; id < emails.size(); id++) {
+                if (live[id]) {
+                    customers.add(view(id));
+                }
+            }
+
+            return customers;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Removes the live customer with the email, running the action under the
+     * lock first if there is one.
+     *
+     * @return true if there was one
+     */
+    boolean remove(final String email, final Runnable action) {
+        final long stamp = lock.writeLock();
+        try {
+            final int id = liveId(email);
+            if (id == NO_CUSTOMER) {
+                return false;
+            }
+
+            action.run();
+            live[id] = false;
+            views.set(id, null);
+            liveCount--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the number of distinct first and last names stored
+     */
+    int nameCount() {
+        final long stamp = lock.readLock();
+        try {
+            return names.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the number of rows in use, live or removed
+     */
+    int rowCount() {
+        final long stamp = lock.readLock();
+        try {
+            return emails.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // readers holding the read lock may race to build it; the first one wins
+    private Customer view(final int id) {
+        final Customer built = views.get(id);
+        if (built != null) {
+            return built;
+        }
+
+        views.compareAndSet(id, null, new Customer(name(id, 0), name(id, 1), emails.get(id)));
+        return views.get(id);
+    }
+
+    private static AtomicReferenceArray<Customer> grow(final AtomicReferenceArray<Customer> views,
+            final int capacity) {
+        final AtomicReferenceArray<Customer> grown = new AtomicReferenceArray<>(capacity);
+
+        for (int id = 0; id < views.length(); id++) {
+            grown.set(id, views.get(id));
+        }
+        return grown;
+    }
+
+    private int liveId(final String email) {
+        final int id = emails.find(email);
+
+        return id < 0 || !live[id] ? NO_CUSTOMER : id;
+    }
+
+    private String name(final int id, final int column) {
+        final int code = rows[id * ROW_INTS + column];
+
+        return code == NO_NAME ? null : names.get(code);
+    }
+}
@@ -1,12 +1,15 @@
 package service.customer;
 
 import model.customer.Customer;
+import service.persistence.MutationLog;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
+ * Customers are kept in a {@link CompactCustomerStore}: a few ints per
+ * customer and deduplicated UTF-8 strings instead of objects. Lookups
+ * decode a row into a {@link Customer} the first time it is asked for.
+ *
  * @author joseneto
  *
  */
@@ -14,7 +17,8 @@ public class CustomerService {
 
     private static final CustomerService SINGLETON = new CustomerService();
 
-    private final Map<String, Customer> customers = new HashMap<>();
+    private volatile CompactCustomerStore customers = new CompactCustomerStore();
+    private volatile MutationLog mutationLog = MutationLog.NONE;
 
     private CustomerService() {
     }
@@ -23,8 +27,23 @@ public class CustomerService {
         return SINGLETON;
     }
 
+    /**
+     * Reports every later change to the given log, see
+     * {@link service.persistence.WriteAheadLog}.
+     */
+    public void setMutationLog(final MutationLog mutationLog) {
+        if (mutationLog == null) {
+            throw new NullPointerException("mutation log cannot be null");
+        }
+        this.mutationLog = mutationLog;
+    }
+
     public void addCustomer(final String email, final String firstName, final String lastName) {
-        customers.put(email, new Customer(firstName, lastName, email));
+        // only validates the email; the store keeps the fields, not the object
+        new Customer(firstName, lastName, email);
+
+        // logged under the store's lock, so the log keeps the order of changes
+        customers.put(email, firstName, lastName, () -> mutationLog.customerAdded(email, firstName, lastName));
     }
 
     public Customer getCustomer(final String customerEmail) {
@@ -32,17 +51,16 @@ public class CustomerService {
     }
 
     public Collection<Customer> getAllCustomers() {
-        return customers.values();
+        return customers.getAll();
     }
 
     public void removeCustomer(String email) {
-        customers.remove(email);
+        customers.remove(email, () -> mutationLog.customerRemoved(email));
     }
 
 // Add this method to clear all customers
     public void clearAllCustomers() {
-        if (customers != null) {
-            customers.clear();
-        }
+        // customers handed out before keep their fields
+        customers = new CompactCustomerStore();
     }
 }
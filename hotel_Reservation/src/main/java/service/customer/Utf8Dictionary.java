@@ -0,0 +1,146 @@
+package service.customer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Strings stored once each, as UTF-8 in one growing byte array, and
+ * referred to by dense int codes in the order they were added.
+ *
+ * The end of every string is kept in an int[] beside the bytes, and codes
+ * are found by an open-addressing table of codes probed linearly, which
+ * compares the stored bytes instead of holding String objects. Strings are
+ * never removed.
+ *
+ * Not thread-safe for {@link #intern} and {@link #find}: callers lock the
+ * dictionary. {@link #get} may run concurrently with them for any code the
+ * reader learned after it was added, since the arrays only grow by copy and
+ * are published through volatile fields.
+ *
+ * @author joseneto
+ *
+ */
+final class Utf8Dictionary {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile byte[] bytes = new byte[INITIAL_CAPACITY * 8];
+    private volatile int[] ends = new int[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    // code + 1 per entry, 0 when empty
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+    private int byteCount;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the code of the string, adding it if it is not stored yet
+     */
+    int intern(final String value) {
+        final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        final int hash = hash(utf8);
+        final int found = find(utf8, hash);
+
+        return found >= 0 ? found : add(utf8, hash);
+    }
+
+    /**
+     * @return the code of the string, or -1 if it is not stored
+     */
+    int find(final String value) {
+        final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+
+        return find(utf8, hash(utf8));
+    }
+
+    String get(final int code) {
+        final int[] currentEnds = ends;
+        final int start = code == 0 ? 0 : currentEnds[code - 1];
+
+        return new String(bytes, start, currentEnds[code] - start, StandardCharsets.UTF_8);
+    }
+
+    private int find(final byte[] utf8, final int hash) {
+        final int mask = table.length - 1;
+
+        for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            final int code = table[slot] - 1;
+
+            if (hashes[code] == hash && matches(code, utf8)) {
+                return code;
+            }
+        }
+
+        return -1;
+    }
+
+    private boolean matches(final int code, final byte[] utf8) {
+        final int start = code == 0 ? 0 : ends[code - 1];
+
+        if (ends[code] - start != utf8.length) {
+            return false;
+        }
+        for (int index = 0; index < utf8.length; index++) {
+            if (bytes[start + index] != utf8[index]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private int add(final byte[] utf8, final int hash) {
+        final int code = size;
+
+        if (byteCount + utf8.length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, byteCount + utf8.length));
+        }
+        System.arraycopy(utf8, 0, bytes, byteCount, utf8.length);
+        byteCount += utf8.length;
+
+        if (code == ends.length) {
+            ends = Arrays.copyOf(ends, code * 2);
+            hashes = Arrays.copyOf(hashes, code * 2);
+        }
+        ends[code] = byteCount;
+        hashes[code] = hash;
+        size++;
+
+        // at most half full, so probes stay short
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            insert(table, code);
+        }
+
+        return code;
+    }
+
+    private void rehash(final int capacity) {
+        final int[] rehashed = new int[capacity];
+
+        for (int code = 0; code < size; code++) {
+            insert(rehashed, code);
+        }
+        table = rehashed;
+    }
+
+    private void insert(final int[] target, final int code) {
+        final int mask = target.length - 1;
+        int slot = hashes[code] & mask;
+
+        while (target[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        target[slot] = code + 1;
+    }
+
+    private static int hash(final byte[] utf8) {
+        int hash = Arrays.hashCode(utf8);
+        // spread the high bits, since the table masks the low ones
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,32 @@
+package service.persistence;
+
+/**
+ * When the {@link WriteAheadLog} forces its writes to the disk. Every policy
+ * hands each record to the operating system before the change returns, so
+ * none of them loses data when only the JVM dies; they differ in what a
+ * crash of the machine can lose.
+ *
+ * @author joseneto
+ *
+ */
+public enum FsyncPolicy {
+
+    /**
+     * Forces the log after every record: nothing is lost, every change waits
+     * for the disk.
+     */
+    EVERY_WRITE,
+
+    /**
+     * Forces the log from a background thread every few milliseconds, in one
+     * call for all records written meanwhile: at most that interval of
+     * changes is lost.
+     */
+    GROUP_COMMIT,
+
+    /**
+     * Never forces the log before it is closed and leaves flushing to the
+     * operating system.
+     */
+    OS_MANAGED
+}
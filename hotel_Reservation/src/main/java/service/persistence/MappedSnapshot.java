@@ -0,0 +1,367 @@
+package service.persistence;
+
+import model.room.FreeRoom;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A snapshot file mapped into memory and read in place.
+ *
+ * The file has a fixed layout, so any row is found by arithmetic instead of
+ * by decoding everything before it:
+ *
+ * <pre>
+ * header        magic, customer count, room count, reservation count, string bytes
+ * customers     24-byte rows sorted by email: email, first name, last name,
+ *               live flag, start and length of the customer's history run
+ * rooms         24-byte rows sorted by number: number, kind, type, has price,
+ *               price, start and length of the room's reservation run
+ * reservations  24-byte rows sorted by room, then check-in day: id, customer
+ *               row, room row, check-in day, check-out day
+ * history       reservation rows grouped by customer, newest stay first
+ * ids           reservation rows sorted by id
+ * strings       length-prefixed UTF-8, referred to by offset, stored once
+ * checksum      CRC-32 of everything before it
+ * </pre>
+ *
+ * Opening a snapshot only maps it and checks that its size matches the
+ * counts in the header; pages are read by the OS when a row is touched.
+ * Stays of a room never overlap, so in a room's run the check-out days rise
+ * with the check-in days and the stays that ended by a given day are a
+ * prefix of the run.
+ *
+ * The file is mapped as one buffer, so it holds at most {@link #MAX_BYTES};
+ * a checkpoint that would outgrow that fails and leaves the log as it is.
+ *
+ * @author joseneto
+ *
+ */
+final class MappedSnapshot {
+
+    static final int MAGIC = 0x48534E32;
+    // the length stored for a missing string
+    static final int NO_STRING = -1;
+    static final int HEADER_BYTES = 20;
+    static final int CUSTOMER_BYTES = 24;
+    static final int ROOM_BYTES = 24;
+    static final int RESERVATION_BYTES = 24;
+    static final int INDEX_BYTES = 4;
+    static final int CHECKSUM_BYTES = 8;
+    // rows are found by int offsets into one mapping
+    static final long MAX_BYTES = Integer.MAX_VALUE;
+
+    static final byte ROOM = 0;
+    static final byte FREE_ROOM = 1;
+
+    private final ByteBuffer buffer;
+    private final int customerCount;
+    private final int roomCount;
+    private final int reservationCount;
+    private final int customers;
+    private final int rooms;
+    private final int reservations;
+    private final int history;
+    private final int ids;
+    private final int strings;
+
+    private MappedSnapshot(final Path path, final ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a snapshot");
+        }
+
+        this.buffer = buffer;
+        this.customerCount = buffer.getInt(4);
+        this.roomCount = buffer.getInt(8);
+        this.reservationCount = buffer.getInt(12);
+        final int stringBytes = buffer.getInt(16);
+
+        if (customerCount < 0 || roomCount < 0 || reservationCount < 0 || stringBytes < 0) {
+            throw new IOException(path + " has a damaged header");
+        }
+
+        final long customerTable = HEADER_BYTES;
+        final long roomTable = customerTable + (long) customerCount * CUSTOMER_BYTES;
+        final long reservationTable = roomTable + (long) roomCount * ROOM_BYTES;
+        final long historyIndex = reservationTable + (long) reservationCount * RESERVATION_BYTES;
+        final long idIndex = historyIndex + (long) reservationCount * INDEX_BYTES;
+        final long stringArea = idIndex + (long) reservationCount * INDEX_BYTES;
+
+        if (stringArea + stringBytes + CHECKSUM_BYTES != buffer.capacity()) {
+            throw new IOException(path + " does not match the size in its header");
+        }
+
+        this.customers = (int) customerTable;
+        this.rooms = (int) roomTable;
+        this.reservations = (int) reservationTable;
+        this.history = (int) historyIndex;
+        this.ids = (int) idIndex;
+        this.strings = (int) stringArea;
+    }
+
+    /**
+     * Maps the snapshot read-only. The mapping outlives the file, so the
+     * snapshot can still be read after a checkpoint deletes it.
+     *
+     * @throws IOException if the file is not a snapshot or is not complete
+     */
+    static MappedSnapshot open(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+
+            if (size < HEADER_BYTES + CHECKSUM_BYTES) {
+                throw new IOException(path + " is not a snapshot");
+            }
+            if (size > MAX_BYTES) {
+                throw new IOException(path + " has " + size + " bytes, more than the " + MAX_BYTES
+                        + " a snapshot can map");
+            }
+
+            return new MappedSnapshot(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Replays the snapshot as records: customers, rooms, the reservations
+     * that end after horizonDay, and then the removal of the customers that
+     * are gone, since those reservations may still refer to them.
+     */
+    void replay(final RecordHandler handler, final int horizonDay) throws IOException {
+        final String[] emails = new String[customerCount];
+
+        for (int customer = 0; customer < customerCount; customer++) {
+            emails[customer] = email(customer);
+            handler.customerAdded(emails[customer], firstName(customer), lastName(customer));
+        }
+
+        for (int room = 0; room < roomCount; room++) {
+            handler.roomAdded(room(room));
+        }
+
+        for (int room = 0; room < roomCount; room++) {
+            final String roomNumber = roomNumber(room);
+            final int end = firstRow(room) + rowCount(room);
+
+            for (int row = firstRowAfter(room, horizonDay); row < end; row++) {
+                handler.reserved(id(row), emails[customerOf(row)], roomNumber, checkInDay(row), checkOutDay(row));
+            }
+        }
+
+        for (int customer = 0; customer < customerCount; customer++) {
+            if (!isLive(customer)) {
+                handler.customerRemoved(emails[customer]);
+            }
+        }
+    }
+
+    int roomCount() {
+        return roomCount;
+    }
+
+    String email(final int customer) {
+        return string(buffer.getInt(customers + customer * CUSTOMER_BYTES));
+    }
+
+    String firstName(final int customer) {
+        return string(buffer.getInt(customers + customer * CUSTOMER_BYTES + 4));
+    }
+
+    String lastName(final int customer) {
+        return string(buffer.getInt(customers + customer * CUSTOMER_BYTES + 8));
+    }
+
+    boolean isLive(final int customer) {
+        return buffer.getInt(customers + customer * CUSTOMER_BYTES + 12) != 0;
+    }
+
+    int historyStart(final int customer) {
+        return buffer.getInt(customers + customer * CUSTOMER_BYTES + 16);
+    }
+
+    int historyCount(final int customer) {
+        return buffer.getInt(customers + customer * CUSTOMER_BYTES + 20);
+    }
+
+    /**
+     * @return the reservation row at the given position of the history index
+     */
+    int historyRow(final int index) {
+        return buffer.getInt(history + index * INDEX_BYTES);
+    }
+
+    String roomNumber(final int room) {
+        return string(buffer.getInt(rooms + room * ROOM_BYTES));
+    }
+
+    IRoom room(final int room) {
+        final int row = rooms + room * ROOM_BYTES;
+        final String roomNumber = roomNumber(room);
+        final byte typeOrdinal = buffer.get(row + 5);
+        final RoomType roomType = typeOrdinal < 0 ? null : RoomType.values()[typeOrdinal];
+
+        return buffer.get(row + 4) == FREE_ROOM ? new FreeRoom(roomNumber, roomType)
+                : new Room(roomNumber, buffer.get(row + 6) != 0 ? buffer.getDouble(row + 8) : null, roomType);
+    }
+
+    int firstRow(final int room) {
+        return buffer.getInt(rooms + room * ROOM_BYTES + 16);
+    }
+
+    int rowCount(final int room) {
+        return buffer.getInt(rooms + room * ROOM_BYTES + 20);
+    }
+
+    long id(final int row) {
+        return buffer.getLong(reservations + row * RESERVATION_BYTES);
+    }
+
+    int customerOf(final int row) {
+        return buffer.getInt(reservations + row * RESERVATION_BYTES + 8);
+    }
+
+    int roomOf(final int row) {
+        return buffer.getInt(reservations + row * RESERVATION_BYTES + 12);
+    }
+
+    int checkInDay(final int row) {
+        return buffer.getInt(reservations + row * RESERVATION_BYTES + 16);
+    }
+
+    int checkOutDay(final int row) {
+        return buffer.getInt(reservations + row * RESERVATION_BYTES + 20);
+    }
+
+    /**
+     * @return the customer row with the given email, or -1
+     */
+    int findCustomer(final String email) {
+        int low = 0;
+        int high = customerCount - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = email(middle).compareTo(email);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the room row with the given number, or -1
+     */
+    int findRoom(final String roomNumber) {
+        int low = 0;
+        int high = roomCount - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = roomNumber(middle).compareTo(roomNumber);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the reservation row with the given id, or -1
+     */
+    int findReservation(final long reservationId) {
+        int low = 0;
+        int high = reservationCount - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int row = buffer.getInt(ids + middle * INDEX_BYTES);
+            final long id = id(row);
+
+            if (id < reservationId) {
+                low = middle + 1;
+            } else if (id > reservationId) {
+                high = middle - 1;
+            } else {
+                return row;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the first row of the room whose stay ends after day, or the
+     * end of the room's run if every stay ends by then
+     */
+    int firstRowAfter(final int room, final int day) {
+        int low = firstRow(room);
+        int high = low + rowCount(room);
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (checkOutDay(middle) <= day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return the first row in [from, to) whose stay starts on or after day
+     */
+    int firstRowFrom(final int from, final int to, final int day) {
+        int low = from;
+        int high = to;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (checkInDay(middle) < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private String string(final int offset) {
+        final int start = strings + offset;
+        final int length = buffer.getInt(start);
+        if (length == NO_STRING) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[length];
+
+        for (int index = 0; index < bytes.length; index++) {
+            bytes[index] = buffer.get(start + 4 + index);
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,55 @@
+package service.persistence;
+
+import model.reservation.Reservation;
+import model.room.IRoom;
+
+/**
+ * Receives every change made to the customers, rooms and reservations of the
+ * hotel, in the order the changes were made, e.g. to write them to disk.
+ * Changes are reported before they are applied, while the object they touch
+ * is still locked or not yet seen by other threads, so the booking and the
+ * cancellation of a reservation are never reported out of order, and a
+ * report that throws leaves the services unchanged. A cancellation is reported before its nights are freed and a
+ * booking after its nights are claimed, so when a cancelled stay's nights
+ * are booked again, the booking is always reported after the cancellation.
+ *
+ * @author joseneto
+ *
+ */
+public interface MutationLog {
+
+    /**
+     * Records nothing; used until a log is attached.
+     */
+    MutationLog NONE = new MutationLog() {
+        @Override
+        public void customerAdded(final String email, final String firstName, final String lastName) {
+        }
+
+        @Override
+        public void customerRemoved(final String email) {
+        }
+
+        @Override
+        public void roomAdded(final IRoom room) {
+        }
+
+        @Override
+        public void reserved(final Reservation reservation) {
+        }
+
+        @Override
+        public void cancelled(final long reservationId) {
+        }
+    };
+
+    void customerAdded(String email, String firstName, String lastName);
+
+    void customerRemoved(String email);
+
+    void roomAdded(IRoom room);
+
+    void reserved(Reservation reservation);
+
+    void cancelled(long reservationId);
+}
@@ -0,0 +1,26 @@
+package service.persistence;
+
+import model.room.IRoom;
+
+import java.io.IOException;
+
+/**
+ * Receives the changes read back from log segments and snapshots, in the
+ * order they are stored.
+ *
+ * @author joseneto
+ *
+ */
+interface RecordHandler {
+
+    void customerAdded(String email, String firstName, String lastName) throws IOException;
+
+    void customerRemoved(String email) throws IOException;
+
+    void roomAdded(IRoom room) throws IOException;
+
+    void reserved(long reservationId, String email, String roomNumber, int checkInDay, int checkOutDay)
+            throws IOException;
+
+    void cancelled(long reservationId) throws IOException;
+}
@@ -0,0 +1,67 @@
+package service.persistence;
+
+import model.customer.Customer;
+import model.room.IRoom;
+import service.customer.CustomerService;
+import service.reservation.ReservationService;
+
+import java.io.IOException;
+
+/**
+ * Applies the changes read back from disk to the services.
+ *
+ * @author joseneto
+ *
+ */
+class ServiceReplay implements RecordHandler {
+
+    private final CustomerService customerService;
+    private final ReservationService reservationService;
+    private long applied;
+
+    ServiceReplay(final CustomerService customerService, final ReservationService reservationService) {
+        this.customerService = customerService;
+        this.reservationService = reservationService;
+    }
+
+    long applied() {
+        return applied;
+    }
+
+    @Override
+    public void customerAdded(final String email, final String firstName, final String lastName) {
+        customerService.addCustomer(email, firstName, lastName);
+        applied++;
+    }
+
+    @Override
+    public void customerRemoved(final String email) {
+        customerService.removeCustomer(email);
+        applied++;
+    }
+
+    @Override
+    public void roomAdded(final IRoom room) {
+        reservationService.addRoom(room);
+        applied++;
+    }
+
+    @Override
+    public void reserved(final long reservationId, final String email, final String roomNumber,
+            final int checkInDay, final int checkOutDay) throws IOException {
+        final Customer customer = customerService.getCustomer(email);
+        final IRoom room = reservationService.getARoom(roomNumber);
+
+        if (customer == null || room == null) {
+            throw new IOException("Reservation " + reservationId + " refers to an unknown customer or room");
+        }
+        reservationService.restoreReservation(reservationId, customer, room, checkInDay, checkOutDay);
+        applied++;
+    }
+
+    @Override
+    public void cancelled(final long reservationId) {
+        reservationService.cancelReservation(reservationId);
+        applied++;
+    }
+}
@@ -0,0 +1,355 @@
+package service.persistence;
+
+import model.room.FreeRoom;
+import model.room.IRoom;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The state left by a run of log records, folded down to what is still live:
+ * the last version of every customer and room and the reservations that were
+ * not cancelled. It is built by reading a snapshot and the log segments after
+ * it, never from the services, so it always matches a position in the log.
+ *
+ * A snapshot file holds the customers, the rooms and the reservations as
+ * fixed-size rows that refer to each other by row number, see
+ * {@link MappedSnapshot}, followed by the CRC-32 of everything before it.
+ * Removed customers are only kept while a reservation still refers to them.
+ *
+ * @author joseneto
+ *
+ */
+class Snapshot implements RecordHandler {
+
+    private final Map<String, CustomerEntry> customers = new HashMap<>();
+    private final Map<String, IRoom> rooms = new LinkedHashMap<>();
+    private final Map<Long, ReservationEntry> reservations = new LinkedHashMap<>();
+
+    @Override
+    public void customerAdded(final String email, final String firstName, final String lastName) {
+        customers.put(email, new CustomerEntry(firstName, lastName, true));
+    }
+
+    @Override
+    public void customerRemoved(final String email) {
+        final CustomerEntry customer = customers.get(email);
+
+        if (customer != null) {
+            customers.put(email, new CustomerEntry(customer.firstName, customer.lastName, false));
+        }
+    }
+
+    @Override
+    public void roomAdded(final IRoom room) {
+        rooms.put(room.getRoomNumber(), room);
+    }
+
+    @Override
+    public void reserved(final long reservationId, final String email, final String roomNumber,
+            final int checkInDay, final int checkOutDay) {
+        reservations.put(reservationId, new ReservationEntry(reservationId, email, roomNumber, checkInDay,
+                checkOutDay));
+    }
+
+    @Override
+    public void cancelled(final long reservationId) {
+        reservations.remove(reservationId);
+    }
+
+    int reservationCount() {
+        return reservations.size();
+    }
+
+    /**
+     * Writes the state in the layout of {@link MappedSnapshot} to a temporary
+     * file, forces it to the disk and then moves it over path, so path is
+     * always either absent or complete.
+     */
+    void writeTo(final Path path) throws IOException {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        final Set<String> referenced = new HashSet<>();
+        for (ReservationEntry reservation : reservations.values()) {
+            referenced.add(reservation.email);
+        }
+
+        final List<String> emails = new ArrayList<>();
+        for (Map.Entry<String, CustomerEntry> entry : customers.entrySet()) {
+            if (entry.getValue().live || referenced.contains(entry.getKey())) {
+                emails.add(entry.getKey());
+            }
+        }
+        Collections.sort(emails);
+        final List<String> roomNumbers = new ArrayList<>(rooms.keySet());
+        Collections.sort(roomNumbers);
+
+        final Map<String, Integer> customerRows = rowsOf(emails);
+        final Map<String, Integer> roomRows = rowsOf(roomNumbers);
+        final ReservationEntry[] rows = reservations.values().toArray(new ReservationEntry[0]);
+        for (ReservationEntry reservation : rows) {
+            if (!customerRows.containsKey(reservation.email) || !roomRows.containsKey(reservation.roomNumber)) {
+                throw new IOException("Reservation " + reservation.id + " refers to an unknown customer or room");
+            }
+        }
+        Arrays.sort(rows, Comparator.<ReservationEntry>comparingInt(reservation -> roomRows.get(reservation.roomNumber))
+                .thenComparingInt(reservation -> reservation.checkInDay)
+                .thenComparingLong(reservation -> reservation.id));
+
+        final int[] customerOf = new int[rows.length];
+        final Integer[] history = new Integer[rows.length];
+        final Integer[] ids = new Integer[rows.length];
+        for (int row = 0; row < rows.length; row++) {
+            customerOf[row] = customerRows.get(rows[row].email);
+            history[row] = row;
+            ids[row] = row;
+        }
+        // the order of the customer's reservations in the service, newest first
+        Arrays.sort(history, Comparator.<Integer>comparingInt(row -> customerOf[row])
+                .thenComparing(Comparator.<Integer>comparingInt(row -> rows[row].checkInDay).reversed())
+                .thenComparing(row -> rows[row].roomNumber)
+                .thenComparingLong(row -> rows[row].id));
+        Arrays.sort(ids, Comparator.comparingLong(row -> rows[row].id));
+
+        final StringArea strings = new StringArea();
+        final int[] emailOffsets = new int[emails.size()];
+        for (int customer = 0; customer < emails.size(); customer++) {
+            emailOffsets[customer] = strings.add(emails.get(customer));
+        }
+        final int[] firstNameOffsets = new int[emails.size()];
+        final int[] lastNameOffsets = new int[emails.size()];
+        for (int customer = 0; customer < emails.size(); customer++) {
+            final CustomerEntry entry = customers.get(emails.get(customer));
+            firstNameOffsets[customer] = strings.add(entry.firstName);
+            lastNameOffsets[customer] = strings.add(entry.lastName);
+        }
+        final int[] roomOffsets = new int[roomNumbers.size()];
+        for (int room = 0; room < roomNumbers.size(); room++) {
+            roomOffsets[room] = strings.add(roomNumbers.get(room));
+        }
+
+        final long size = MappedSnapshot.HEADER_BYTES + (long) emails.size() * MappedSnapshot.CUSTOMER_BYTES
+                + (long) roomNumbers.size() * MappedSnapshot.ROOM_BYTES
+                + (long) rows.length * (MappedSnapshot.RESERVATION_BYTES + 2 * MappedSnapshot.INDEX_BYTES)
+                + strings.size() + MappedSnapshot.CHECKSUM_BYTES;
+        if (size > MappedSnapshot.MAX_BYTES) {
+            throw new IOException(path + " would take " + size + " bytes, more than the "
+                    + MappedSnapshot.MAX_BYTES + " a snapshot can map; the log is kept instead");
+        }
+
+        final CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(temporary);
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(file, 1 << 16), crc))) {
+            out.writeInt(MappedSnapshot.MAGIC);
+            out.writeInt(emails.size());
+            out.writeInt(roomNumbers.size());
+            out.writeInt(rows.length);
+            out.writeInt(strings.size());
+
+            int historyStart = 0;
+            for (int customer = 0; customer < emails.size(); customer++) {
+                int historyCount = 0;
+                while (historyStart + historyCount < history.length
+                        && customerOf[history[historyStart + historyCount]] == customer) {
+                    historyCount++;
+                }
+
+                out.writeInt(emailOffsets[customer]);
+                out.writeInt(firstNameOffsets[customer]);
+                out.writeInt(lastNameOffsets[customer]);
+                out.writeInt(customers.get(emails.get(customer)).live ? 1 : 0);
+                out.writeInt(historyStart);
+                out.writeInt(historyCount);
+                historyStart += historyCount;
+            }
+
+            int firstRow = 0;
+            for (int room = 0; room < roomNumbers.size(); room++) {
+                final IRoom entry = rooms.get(roomNumbers.get(room));
+                int rowCount = 0;
+                while (firstRow + rowCount < rows.length
+                        && roomRows.get(rows[firstRow + rowCount].roomNumber) == room) {
+                    rowCount++;
+                }
+
+                out.writeInt(roomOffsets[room]);
+                out.writeByte(entry instanceof FreeRoom ? MappedSnapshot.FREE_ROOM : MappedSnapshot.ROOM);
+                out.writeByte(entry.getRoomType() == null ? -1 : entry.getRoomType().ordinal());
+                out.writeBoolean(entry.getRoomPrice() != null);
+                out.writeByte(0);
+                out.writeDouble(entry.getRoomPrice() == null ? 0.0 : entry.getRoomPrice());
+                out.writeInt(firstRow);
+                out.writeInt(rowCount);
+                firstRow += rowCount;
+            }
+
+            for (int row = 0; row < rows.length; row++) {
+                out.writeLong(rows[row].id);
+                out.writeInt(customerOf[row]);
+                out.writeInt(roomRows.get(rows[row].roomNumber));
+                out.writeInt(rows[row].checkInDay);
+                out.writeInt(rows[row].checkOutDay);
+            }
+            for (Integer row : history) {
+                out.writeInt(row);
+            }
+            for (Integer row : ids) {
+                out.writeInt(row);
+            }
+            strings.writeTo(out);
+
+            out.flush();
+            // the checksum itself is not part of what it covers
+            new DataOutputStream(file).writeLong(crc.getValue());
+        }
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Only checks that the file is laid out as its header says, so startup
+     * does not read the whole file; the checksum is checked by
+     * {@link #readFrom(Path, RecordHandler)} when a checkpoint folds it.
+     *
+     * @throws IOException if the file is not a complete snapshot or is too
+     * large to map
+     */
+    static void check(final Path path) throws IOException {
+        MappedSnapshot.open(path);
+    }
+
+    /**
+     * Replays every record of a snapshot into the handler after checking
+     * its checksum.
+     */
+    static void readFrom(final Path path, final RecordHandler handler) throws IOException {
+        final long size = Files.size(path);
+        final CRC32 crc = new CRC32();
+
+        try (InputStream file = Files.newInputStream(path);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            final byte[] buffer = new byte[1 << 16];
+            long remaining = size - MappedSnapshot.CHECKSUM_BYTES;
+
+            while (remaining > 0) {
+                final int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException(path + " is truncated");
+                }
+                crc.update(buffer, 0, read);
+                remaining -= read;
+            }
+
+            if (in.readLong() != crc.getValue()) {
+                throw new IOException(path + " does not match its checksum");
+            }
+        }
+
+        MappedSnapshot.open(path).replay(handler, Integer.MIN_VALUE);
+    }
+
+    private static Map<String, Integer> rowsOf(final List<String> sorted) {
+        final Map<String, Integer> rows = new HashMap<>();
+        for (int row = 0; row < sorted.size(); row++) {
+            rows.put(sorted.get(row), row);
+        }
+        return rows;
+    }
+
+    /**
+     * Length-prefixed UTF-8 strings, each stored once and referred to by its
+     * offset; first and last names repeat a lot. A missing string has the
+     * length {@link MappedSnapshot#NO_STRING}.
+     */
+    private static final class StringArea {
+
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        private int add(final String value) throws IOException {
+            final Integer known = offsets.get(value);
+            if (known != null) {
+                return known;
+            }
+
+            final int offset = bytes.size();
+            if (value == null) {
+                out.writeInt(MappedSnapshot.NO_STRING);
+            } else {
+                final byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+            offsets.put(value, offset);
+            return offset;
+        }
+
+        private int size() {
+            return bytes.size();
+        }
+
+        private void writeTo(final OutputStream target) throws IOException {
+            bytes.writeTo(target);
+        }
+    }
+
+    private static final class CustomerEntry {
+
+        private final String firstName;
+        private final String lastName;
+        private final boolean live;
+
+        private CustomerEntry(final String firstName, final String lastName, final boolean live) {
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.live = live;
+        }
+    }
+
+    private static final class ReservationEntry {
+
+        private final long id;
+        private final String email;
+        private final String roomNumber;
+        private final int checkInDay;
+        private final int checkOutDay;
+
+        private ReservationEntry(final long id, final String email, final String roomNumber, final int checkInDay,
+                final int checkOutDay) {
+            this.id = id;
+            this.email = email;
+            this.roomNumber = roomNumber;
+            this.checkInDay = checkInDay;
+            this.checkOutDay = checkOutDay;
+        }
+    }
+}
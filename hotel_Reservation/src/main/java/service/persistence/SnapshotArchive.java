@@ -0,0 +1,154 @@
+package service.persistence;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.reservation.ReservationKey;
+import model.room.IRoom;
+import service.customer.CustomerService;
+import service.reservation.ReservationArchive;
+import service.reservation.ReservationService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * The stays of a mapped snapshot that ended by the horizon day, answered
+ * from the mapped rows. A reservation object is only built the first time
+ * its row is looked up and is then kept, so the same stay is always the
+ * same object. Its customer and room are the ones in the services when they
+ * still exist.
+ *
+ * @author joseneto
+ *
+ */
+final class SnapshotArchive implements ReservationArchive {
+
+    private final MappedSnapshot snapshot;
+    private final int horizonDay;
+    private final CustomerService customerService;
+    private final ReservationService reservationService;
+    private final Map<Integer, Reservation> built = new ConcurrentHashMap<>();
+    private final Set<Long> cancelled = ConcurrentHashMap.newKeySet();
+
+    SnapshotArchive(final MappedSnapshot snapshot, final int horizonDay, final CustomerService customerService,
+            final ReservationService reservationService) {
+        this.snapshot = snapshot;
+        this.horizonDay = horizonDay;
+        this.customerService = customerService;
+        this.reservationService = reservationService;
+    }
+
+    @Override
+    public int getHorizonDay() {
+        return horizonDay;
+    }
+
+    @Override
+    public Reservation find(final long reservationId) {
+        final int row = snapshot.findReservation(reservationId);
+
+        return row >= 0 && isArchived(row) ? reservation(row) : null;
+    }
+
+    @Override
+    public Reservation find(final ReservationKey key) {
+        final int room = snapshot.findRoom(key.getRoomNumber());
+        if (room < 0) {
+            return null;
+        }
+
+        final int end = snapshot.firstRowAfter(room, horizonDay);
+        final int row = snapshot.firstRowFrom(snapshot.firstRow(room), end, key.getCheckInDay());
+
+        if (row < end && snapshot.checkInDay(row) == key.getCheckInDay() && isArchived(row)
+                && snapshot.email(snapshot.customerOf(row)).equals(key.getCustomerEmail())) {
+            return reservation(row);
+        }
+
+        return null;
+    }
+
+    @Override
+    public List<Reservation> findByCustomer(final String customerEmail) {
+        final List<Reservation> archived = new ArrayList<>();
+        final int customer = snapshot.findCustomer(customerEmail);
+
+        if (customer >= 0) {
+            final int start = snapshot.historyStart(customer);
+            final int end = start + snapshot.historyCount(customer);
+
+            for (int index = start; index < end; index++) {
+                final int row = snapshot.historyRow(index);
+
+                if (isArchived(row)) {
+                    archived.add(reservation(row));
+                }
+            }
+        }
+
+        return archived;
+    }
+
+    @Override
+    public boolean isBooked(final String roomNumber, final int checkInDay, final int checkOutDay) {
+        final int room = snapshot.findRoom(roomNumber);
+        if (room < 0) {
+            return false;
+        }
+
+        final int first = snapshot.firstRow(room);
+        // stays of a room do not overlap, so the ones ending after checkInDay come right before this row
+        for (int row = snapshot.firstRowFrom(first, snapshot.firstRowAfter(room, horizonDay), checkOutDay) - 1;
+                row >= first && snapshot.checkOutDay(row) > checkInDay; row--) {
+            if (!cancelled.contains(snapshot.id(row))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean cancel(final long reservationId) {
+        final int row = snapshot.findReservation(reservationId);
+
+        return row >= 0 && snapshot.checkOutDay(row) <= horizonDay && cancelled.add(reservationId);
+    }
+
+    @Override
+    public void forEachRoomCount(final ObjIntConsumer<String> action) {
+        for (int room = 0; room < snapshot.roomCount(); room++) {
+            final int count = snapshot.firstRowAfter(room, horizonDay) - snapshot.firstRow(room);
+
+            if (count > 0) {
+                action.accept(snapshot.roomNumber(room), count);
+            }
+        }
+    }
+
+    private boolean isArchived(final int row) {
+        return snapshot.checkOutDay(row) <= horizonDay && !cancelled.contains(snapshot.id(row));
+    }
+
+    private Reservation reservation(final int row) {
+        return built.computeIfAbsent(row, key -> new Reservation(snapshot.id(row), customer(snapshot.customerOf(row)),
+                room(snapshot.roomOf(row)), snapshot.checkInDay(row), snapshot.checkOutDay(row)));
+    }
+
+    private Customer customer(final int customer) {
+        final Customer known = customerService.getCustomer(snapshot.email(customer));
+
+        return known != null ? known
+                : new Customer(snapshot.firstName(customer), snapshot.lastName(customer), snapshot.email(customer));
+    }
+
+    private IRoom room(final int room) {
+        final IRoom known = reservationService.getARoom(snapshot.roomNumber(room));
+
+        return known != null ? known : snapshot.room(room);
+    }
+}
@@ -0,0 +1,742 @@
+package service.persistence;
+
+import model.reservation.EpochDay;
+import model.reservation.Reservation;
+import model.room.FreeRoom;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+import service.customer.CustomerService;
+import service.reservation.ReservationService;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of the changes made to customers, rooms and
+ * reservations, replayed at startup to rebuild the services.
+ *
+ * The log lives in a directory as numbered segments. Each segment starts
+ * with a magic number, followed by one record per change: the payload
+ * length, the CRC-32 of the payload and the payload itself, a type byte and
+ * the fields of the change. A crash can leave a torn record at the end of
+ * the last segment; opening the log cuts it back to its last complete
+ * record. A record whose write or force fails is cut back off at once, and
+ * if that fails as well the log rejects every later record, so no record
+ * is ever acknowledged behind a torn one. When the records reach the disk
+ * is set by the {@link FsyncPolicy}.
+ *
+ * A checkpoint starts a new segment and folds the previous snapshot and
+ * every older segment into a new {@link Snapshot}, after which those files
+ * are deleted. The fold only reads files that are no longer written to, so
+ * bookings carry on while it runs; the only pause is the switch to the new
+ * segment. A checkpoint rewrites the whole snapshot, so the background
+ * checkpoints wait until the log after it is big enough to be worth that.
+ * Startup maps the latest snapshot, loads what is still upcoming from it
+ * and replays the segments after it.
+ *
+ * Reservations are logged with their ids, so a cancellation logged after a
+ * restart still refers to the reservation it cancelled.
+ *
+ * @author joseneto
+ *
+ */
+public class WriteAheadLog implements MutationLog, Closeable {
+
+    private static final int MAGIC = 0x48574C31;
+    private static final int FILE_HEADER_BYTES = 4;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final String SEGMENT_PREFIX = "log-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final long DEFAULT_MIN_CHECKPOINT_BYTES = 4L << 20;
+
+    private static final byte CUSTOMER_ADDED = 1;
+    private static final byte CUSTOMER_REMOVED = 2;
+    private static final byte ROOM_ADDED = 3;
+    private static final byte RESERVED = 4;
+    private static final byte CANCELLED = 5;
+
+    private static final byte ROOM = 0;
+    private static final byte FREE_ROOM = 1;
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final RecordBuffer record = new RecordBuffer();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 checksum = new CRC32();
+    private final Thread groupCommitter;
+    private final Object groupCommitSignal = new Object();
+    private final Object checkpointLock = new Object();
+    private final Object checkpointSignal = new Object();
+    private volatile FileChannel channel;
+    private long segment;
+    private boolean segmentHasRecords;
+    private Thread checkpointer;
+    private volatile boolean unforcedWrites;
+    private volatile IOException groupCommitFailure;
+    // set when a failed append could not be cut back off; every later append fails with it
+    private volatile IOException appendFailure;
+    private volatile boolean closed;
+
+    private WriteAheadLog(final Path directory, final FsyncPolicy fsyncPolicy, final long groupCommitMillis,
+            final long segment, final FileChannel channel) throws IOException {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.segment = segment;
+        this.channel = channel;
+        this.segmentHasRecords = channel.size() > FILE_HEADER_BYTES;
+
+        if (fsyncPolicy == FsyncPolicy.GROUP_COMMIT) {
+            groupCommitter = new Thread(() -> commitGroups(groupCommitMillis), "wal-group-commit");
+            groupCommitter.setDaemon(true);
+            groupCommitter.start();
+        } else {
+            groupCommitter = null;
+        }
+    }
+
+    /**
+     * Opens the log in directory, creating it if needed, and cuts off a torn
+     * record left at the end of the last segment by a crash. A damaged latest
+     * snapshot fails the open and nothing is deleted. New records are
+     * appended after the existing ones; call
+     * {@link #replay(CustomerService, ReservationService)} first to load
+     * those.
+     *
+     * @param groupCommitMillis how often the log is forced with
+     * {@link FsyncPolicy#GROUP_COMMIT}, ignored otherwise
+     */
+    public static WriteAheadLog open(final Path directory, final FsyncPolicy fsyncPolicy,
+            final long groupCommitMillis) throws IOException {
+        if (fsyncPolicy == null) {
+            throw new NullPointerException("fsync policy cannot be null");
+        }
+        if (fsyncPolicy == FsyncPolicy.GROUP_COMMIT && groupCommitMillis <= 0) {
+            throw new IllegalArgumentException("Group commit interval must be positive");
+        }
+
+        Files.createDirectories(directory);
+        // throws before anything is deleted if the latest snapshot is damaged
+        final long snapshot = latestSnapshot(directory, Long.MAX_VALUE);
+        final List<Long> segments = list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+
+        // left behind by a crash during the last checkpoint, and folded into the valid latest snapshot
+        for (Long older : segments) {
+            if (older < snapshot) {
+                Files.delete(segmentPath(directory, older));
+            }
+        }
+        for (Long older : list(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (older < snapshot) {
+                Files.delete(snapshotPath(directory, older));
+            }
+        }
+        try (DirectoryStream<Path> unfinished = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*.tmp")) {
+            for (Path file : unfinished) {
+                Files.delete(file);
+            }
+        }
+
+        final long last = segments.isEmpty() ? Math.max(snapshot, 0)
+                : Math.max(segments.get(segments.size() - 1), Math.max(snapshot, 0));
+        final Path path = segmentPath(directory, last);
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < FILE_HEADER_BYTES) {
+                // a new segment, or one whose header write was torn
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(0, MAGIC));
+                channel.force(true);
+            } else {
+                final long end = readSegment(path, null);
+
+                if (end < channel.size()) {
+                    channel.truncate(end);
+                    channel.force(true);
+                }
+            }
+            channel.position(channel.size());
+
+            return new WriteAheadLog(directory, fsyncPolicy, groupCommitMillis, last, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Applies the latest snapshot and every logged change after it to the
+     * services, in the order they were made. The services must not have a
+     * log attached yet, or the changes would be logged again, and no
+     * checkpoint may run meanwhile.
+     *
+     * Stays of the snapshot that ended by today are not loaded: the snapshot
+     * stays mapped and is attached to the reservation service as its
+     * {@link service.reservation.ReservationArchive}, which reads them when
+     * they are looked up. Startup time so grows with the rooms, the customers
+     * and the upcoming stays, not with the history.
+     *
+     * @return the number of changes applied, archived stays left out
+     */
+    public long replay(final CustomerService customerService, final ReservationService reservationService)
+            throws IOException {
+        return replay(customerService, reservationService, EpochDay.of(new Date()));
+    }
+
+    long replay(final CustomerService customerService, final ReservationService reservationService,
+            final int horizonDay) throws IOException {
+        final ServiceReplay replay = new ServiceReplay(customerService, reservationService);
+        final long snapshot = latestSnapshot(directory, Long.MAX_VALUE);
+
+        if (snapshot >= 0) {
+            final MappedSnapshot mapped = MappedSnapshot.open(snapshotPath(directory, snapshot));
+
+            mapped.replay(replay, horizonDay);
+            // before the log, which may cancel archived stays
+            reservationService.attachArchive(new SnapshotArchive(mapped, horizonDay, customerService,
+                    reservationService));
+        }
+        for (Long segment : list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (segment >= snapshot) {
+                readSegment(segmentPath(directory, segment), replay);
+            }
+        }
+
+        return replay.applied();
+    }
+
+    /**
+     * Starts a new segment and folds everything before it into a snapshot,
+     * then deletes the older segments and snapshot. Appends only wait for the
+     * switch to the new segment.
+     *
+     * @return the number of reservations in the new snapshot, or -1 if
+     * nothing was logged since the last checkpoint
+     */
+    public long checkpoint() throws IOException {
+        return checkpoint(0);
+    }
+
+    /**
+     * A checkpoint rewrites the whole snapshot, so it only runs once the log
+     * after the snapshot holds at least minLogBytes and a quarter of the
+     * snapshot's size; the rewrites then cost a bounded multiple of what was
+     * logged, however long the history.
+     *
+     * @return as {@link #checkpoint()}, or -1 if the log is below that size
+     */
+    private long checkpoint(final long minLogBytes) throws IOException {
+        synchronized (checkpointLock) {
+            if (minLogBytes > 0) {
+                final long snapshot = latestSnapshot(directory, Long.MAX_VALUE);
+                long logBytes = 0;
+                for (Long logged : list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                    if (logged >= snapshot) {
+                        logBytes += Files.size(segmentPath(directory, logged)) - FILE_HEADER_BYTES;
+                    }
+                }
+                final long snapshotBytes = snapshot < 0 ? 0 : Files.size(snapshotPath(directory, snapshot));
+
+                if (logBytes < Math.max(minLogBytes, snapshotBytes / 4)) {
+                    return -1;
+                }
+            }
+
+            final long upTo;
+
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("Log is closed");
+                }
+                if (segmentHasRecords) {
+                    startSegment(segment + 1);
+                }
+                upTo = segment;
+            }
+
+            final long previous = latestSnapshot(directory, upTo);
+            final List<Long> folded = new ArrayList<>();
+            for (Long older : list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                if (older < upTo) {
+                    folded.add(older);
+                }
+            }
+            if (folded.isEmpty()) {
+                return -1;
+            }
+
+            final Snapshot state = new Snapshot();
+            if (previous >= 0) {
+                Snapshot.readFrom(snapshotPath(directory, previous), state);
+            }
+            for (Long older : folded) {
+                readSegment(segmentPath(directory, older), state);
+            }
+            state.writeTo(snapshotPath(directory, upTo));
+
+            if (previous >= 0) {
+                Files.delete(snapshotPath(directory, previous));
+            }
+            for (Long older : folded) {
+                Files.delete(segmentPath(directory, older));
+            }
+
+            return state.reservationCount();
+        }
+    }
+
+    /**
+     * As {@link #startCheckpoints(long, long)}, waiting for at least
+     * {@value #DEFAULT_MIN_CHECKPOINT_BYTES} bytes of log.
+     */
+    public void startCheckpoints(final long periodMillis) {
+        startCheckpoints(periodMillis, DEFAULT_MIN_CHECKPOINT_BYTES);
+    }
+
+    /**
+     * Runs a checkpoint in the background every periodMillis until the log
+     * is closed, as soon as the log after the latest snapshot holds at least
+     * minLogBytes and a quarter of the snapshot's size.
+     */
+    public synchronized void startCheckpoints(final long periodMillis, final long minLogBytes) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        if (minLogBytes < 0) {
+            throw new IllegalArgumentException("Checkpoint size cannot be negative");
+        }
+        if (checkpointer != null) {
+            throw new IllegalStateException("Checkpoints already started");
+        }
+
+        checkpointer = new Thread(() -> runCheckpoints(periodMillis, minLogBytes), "wal-checkpoint");
+        checkpointer.setDaemon(true);
+        checkpointer.start();
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    @Override
+    public synchronized void customerAdded(final String email, final String firstName, final String lastName) {
+        try {
+            startRecord(CUSTOMER_ADDED);
+            recordOut.writeUTF(email);
+            writeNullableUTF(recordOut, firstName);
+            writeNullableUTF(recordOut, lastName);
+            appendRecord();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void customerRemoved(final String email) {
+        try {
+            startRecord(CUSTOMER_REMOVED);
+            recordOut.writeUTF(email);
+            appendRecord();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void roomAdded(final IRoom room) {
+        try {
+            startRecord(ROOM_ADDED);
+            writeRoom(recordOut, room);
+            appendRecord();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void reserved(final Reservation reservation) {
+        try {
+            startRecord(RESERVED);
+            recordOut.writeLong(reservation.getId());
+            recordOut.writeUTF(reservation.getCustomer().getEmail());
+            recordOut.writeUTF(reservation.getRoom().getRoomNumber());
+            recordOut.writeInt(reservation.getCheckInDay());
+            recordOut.writeInt(reservation.getCheckOutDay());
+            appendRecord();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void cancelled(final long reservationId) {
+        try {
+            startRecord(CANCELLED);
+            recordOut.writeLong(reservationId);
+            appendRecord();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stops the background threads and forces every record to the disk.
+     */
+    @Override
+    public void close() throws IOException {
+        final Thread runningCheckpointer;
+
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            runningCheckpointer = checkpointer;
+        }
+
+        // not interrupted: that would close the channel under a running force
+        stopThread(groupCommitter, groupCommitSignal);
+        stopThread(runningCheckpointer, checkpointSignal);
+
+        synchronized (this) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    // leaves room for the record header, which is filled in once the payload is complete
+    private void startRecord(final byte type) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Log is closed");
+        }
+
+        final IOException failure = groupCommitFailure != null ? groupCommitFailure : appendFailure;
+        if (failure != null) {
+            throw failure;
+        }
+
+        record.reset();
+        recordOut.writeLong(0L);
+        recordOut.writeByte(type);
+    }
+
+    private void appendRecord() throws IOException {
+        final byte[] bytes = record.bytes();
+        final int payloadLength = record.size() - RECORD_HEADER_BYTES;
+
+        checksum.reset();
+        checksum.update(bytes, RECORD_HEADER_BYTES, payloadLength);
+
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, record.size());
+        buffer.putInt(0, payloadLength);
+        buffer.putInt(4, (int) checksum.getValue());
+
+        final long start = channel.position();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsyncPolicy == FsyncPolicy.EVERY_WRITE) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            // a record left in part would cut off every record after it on replay, and a whole one that
+            // failed to force would be replayed although the caller undid the change
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+                appendFailure = e;
+            }
+            throw e;
+        }
+        segmentHasRecords = true;
+
+        if (fsyncPolicy != FsyncPolicy.EVERY_WRITE) {
+            unforcedWrites = true;
+        }
+    }
+
+    // forces and closes the current segment, then appends to a new one
+    private void startSegment(final long next) throws IOException {
+        channel.force(true);
+        channel.close();
+
+        final FileChannel created = FileChannel.open(segmentPath(directory, next), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        created.write(ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(0, MAGIC));
+        created.force(true);
+
+        channel = created;
+        segment = next;
+        segmentHasRecords = false;
+    }
+
+    private void commitGroups(final long groupCommitMillis) {
+        while (!closed) {
+            try {
+                synchronized (groupCommitSignal) {
+                    groupCommitSignal.wait(groupCommitMillis);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (unforcedWrites) {
+                unforcedWrites = false;
+                try {
+                    // writers keep appending meanwhile; force covers what was written before it started
+                    channel.force(false);
+                } catch (ClosedChannelException e) {
+                    // the segment was switched meanwhile, which forced it
+                } catch (IOException e) {
+                    if (!closed) {
+                        groupCommitFailure = e;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private void runCheckpoints(final long periodMillis, final long minLogBytes) {
+        while (!closed) {
+            try {
+                synchronized (checkpointSignal) {
+                    checkpointSignal.wait(periodMillis);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (!closed) {
+                try {
+                    checkpoint(minLogBytes);
+                } catch (IOException | RuntimeException e) {
+                    // the segments are kept, the next checkpoint folds them
+                    System.err.println("Checkpoint of " + directory + " failed: " + e);
+                }
+            }
+        }
+    }
+
+    private static void stopThread(final Thread thread, final Object signal) {
+        if (thread == null) {
+            return;
+        }
+
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads the records of a segment, passing each complete one to the
+     * handler if there is one.
+     *
+     * @return the offset just after the last complete record
+     */
+    private static long readSegment(final Path path, final RecordHandler handler)
+            throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            final long size = Files.size(path);
+
+            if (in.readInt() != MAGIC) {
+                throw new IOException(path + " is not a write-ahead log");
+            }
+
+            final CRC32 crc = new CRC32();
+            long end = FILE_HEADER_BYTES;
+            byte[] payload = new byte[256];
+
+            while (end + RECORD_HEADER_BYTES <= size) {
+                final int length = in.readInt();
+                final int expectedChecksum = in.readInt();
+
+                if (length <= 0 || end + RECORD_HEADER_BYTES + length > size) {
+                    break;
+                }
+                if (payload.length < length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                in.readFully(payload, 0, length);
+
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != expectedChecksum) {
+                    break;
+                }
+
+                if (handler != null) {
+                    apply(new DataInputStream(new ByteArrayInputStream(payload, 0, length)), handler);
+                }
+                end += RECORD_HEADER_BYTES + length;
+            }
+
+            return end;
+        } catch (EOFException e) {
+            throw new IOException(path + " is not a write-ahead log", e);
+        }
+    }
+
+    private static void apply(final DataInputStream payload, final RecordHandler handler) throws IOException {
+        final byte type = payload.readByte();
+
+        switch (type) {
+            case CUSTOMER_ADDED:
+                handler.customerAdded(payload.readUTF(), readNullableUTF(payload), readNullableUTF(payload));
+                break;
+            case CUSTOMER_REMOVED:
+                handler.customerRemoved(payload.readUTF());
+                break;
+            case ROOM_ADDED:
+                handler.roomAdded(readRoom(payload));
+                break;
+            case RESERVED:
+                handler.reserved(payload.readLong(), payload.readUTF(), payload.readUTF(), payload.readInt(),
+                        payload.readInt());
+                break;
+            case CANCELLED:
+                handler.cancelled(payload.readLong());
+                break;
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    // a presence flag, then the string if there is one
+    static void writeNullableUTF(final DataOutput out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readNullableUTF(final DataInput payload) throws IOException {
+        return payload.readBoolean() ? payload.readUTF() : null;
+    }
+
+    static void writeRoom(final DataOutput out, final IRoom room) throws IOException {
+        out.writeByte(room instanceof FreeRoom ? FREE_ROOM : ROOM);
+        out.writeUTF(room.getRoomNumber());
+        out.writeBoolean(room.getRoomPrice() != null);
+        out.writeDouble(room.getRoomPrice() == null ? 0.0 : room.getRoomPrice());
+        out.writeByte(room.getRoomType() == null ? -1 : room.getRoomType().ordinal());
+    }
+
+    static IRoom readRoom(final DataInput payload) throws IOException {
+        final byte kind = payload.readByte();
+        final String roomNumber = payload.readUTF();
+        final boolean hasPrice = payload.readBoolean();
+        final double price = payload.readDouble();
+        final byte typeOrdinal = payload.readByte();
+        final RoomType roomType = typeOrdinal < 0 ? null : RoomType.values()[typeOrdinal];
+
+        return kind == FREE_ROOM ? new FreeRoom(roomNumber, roomType)
+                : new Room(roomNumber, hasPrice ? price : null, roomType);
+    }
+
+    /**
+     * Snapshots are only ever moved into place complete, and the segments
+     * folded into one are gone, so a damaged snapshot cannot be skipped
+     * without losing what it holds.
+     *
+     * @return the highest sequence number of a snapshot below before, or -1
+     * if there is none
+     * @throws IOException if that snapshot is damaged or too large to map
+     */
+    private static long latestSnapshot(final Path directory, final long before) throws IOException {
+        final List<Long> snapshots = list(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+
+        for (int index = snapshots.size() - 1; index >= 0; index--) {
+            final long snapshot = snapshots.get(index);
+
+            if (snapshot < before) {
+                final Path path = snapshotPath(directory, snapshot);
+                try {
+                    Snapshot.check(path);
+                } catch (IOException e) {
+                    throw new IOException("Cannot use " + path + ", nothing was deleted: " + e.getMessage(), e);
+                }
+                return snapshot;
+            }
+        }
+
+        return -1;
+    }
+
+    // the sequence numbers of the files named prefix + number + suffix, in ascending order
+    private static List<Long> list(final Path directory, final String prefix, final String suffix)
+            throws IOException {
+        final List<Long> sequences = new ArrayList<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                try {
+                    sequences.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(sequences);
+
+        return sequences;
+    }
+
+    private static Path segmentPath(final Path directory, final long sequence) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private static Path snapshotPath(final Path directory, final long sequence) {
+        return directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+    }
+
+    /**
+     * Reusable record buffer that exposes its array, so a record is written
+     * to the channel without being copied.
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        private RecordBuffer() {
+            super(256);
+        }
+
+        private byte[] bytes() {
+            return buf;
+        }
+    }
+}
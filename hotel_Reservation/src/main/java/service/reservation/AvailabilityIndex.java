@@ -0,0 +1,318 @@
+package service.reservation;
+
+import model.room.IRoom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Inverted day-to-rooms availability index.
+ *
+ * Every room is given a dense int id the first time it is seen, and every
+ * calendar day that has bookings keeps a bitset of the booked room ids. A
+ * search for [checkIn, checkOut) ORs the bitsets of the nights in the stay
+ * and returns the rooms of the inventory whose bit is still clear.
+ *
+ * The bitsets are kept in an array indexed by epoch day relative to the first
+ * booked day, so looking up a night is an array access. The array spans at
+ * most {@value BookedDays#MAX_DENSE_DAYS} days; nights beyond that, such as a
+ * booking years ahead, are kept in a sorted map by day instead, so one far-off
+ * night costs one bitset and not an array slot for every day up to it.
+ *
+ * Room ids are never reused, so bookings of a room that was removed from the
+ * inventory cannot leak into a room added later.
+ *
+ * Changes are serialized by {@link RoomInventory}, but searches never lock:
+ * bitsets and room arrays are copied on write and published through volatile
+ * references, so a search always works on bitsets that no other thread is
+ * changing.
+ *
+ * @author joseneto
+ *
+ */
+class AvailabilityIndex {
+
+    private final Map<String, Integer> roomIds = new ConcurrentHashMap<>();
+    private volatile IRoom[] roomsById = new IRoom[0];
+    private volatile BitSet inventory = new BitSet();
+    private volatile BookedDays bookedDays = BookedDays.empty();
+
+    void addRoom(final IRoom room) {
+        final int roomId = roomIdOf(room.getRoomNumber());
+        setRoom(roomId, room);
+        final BitSet updated = (BitSet) inventory.clone();
+        updated.set(roomId);
+        inventory = updated;
+    }
+
+    void removeRoom(final String roomNumber) {
+        final Integer roomId = roomIds.get(roomNumber);
+
+        if (roomId != null) {
+            final BitSet updated = (BitSet) inventory.clone();
+            updated.clear(roomId);
+            inventory = updated;
+            setRoom(roomId, null);
+        }
+    }
+
+    void book(final String roomNumber, final int checkInDay, final int checkOutDay) {
+        final int roomId = roomIdOf(roomNumber);
+        final BookedDays days = ensureDays(checkInDay, checkOutDay);
+
+        for (int day = checkInDay; day < checkOutDay; day++) {
+            final BitSet bookedRooms = days.get(day);
+            final BitSet updated = bookedRooms == null ? new BitSet() : (BitSet) bookedRooms.clone();
+            updated.set(roomId);
+            days.set(day, updated);
+        }
+    }
+
+    void release(final String roomNumber, final int checkInDay, final int checkOutDay) {
+        final Integer roomId = roomIds.get(roomNumber);
+
+        if (roomId == null) {
+            return;
+        }
+
+        final BookedDays days = bookedDays;
+
+        for (int day = checkInDay; day < checkOutDay; day++) {
+            final BitSet bookedRooms = days.get(day);
+
+            if (bookedRooms != null && bookedRooms.get(roomId)) {
+                final BitSet updated = (BitSet) bookedRooms.clone();
+                updated.clear(roomId);
+                days.set(day, updated);
+            }
+        }
+    }
+
+    BitSet findAvailableRoomIds(final int checkInDay, final int checkOutDay) {
+        final BitSet availableRooms = (BitSet) inventory.clone();
+        final BookedDays days = bookedDays;
+
+        for (int day = checkInDay; day < checkOutDay && !availableRooms.isEmpty(); day++) {
+            final BitSet bookedRooms = days.get(day);
+
+            if (bookedRooms != null) {
+                availableRooms.andNot(bookedRooms);
+            }
+        }
+
+        return availableRooms;
+    }
+
+    /**
+     * @return true if the room is one of the given room ids
+     */
+    boolean contains(final String roomNumber, final BitSet roomIdSet) {
+        final Integer roomId = roomIds.get(roomNumber);
+
+        return roomId != null && roomIdSet.get(roomId);
+    }
+
+    /**
+     * Adds the rooms of the given ids to the result. The room array is read
+     * after the ids were computed, so it always covers them.
+     */
+    void collectRooms(final BitSet availableRooms, final Collection<IRoom> result) {
+        final IRoom[] rooms = roomsById;
+
+        for (int roomId = availableRooms.nextSetBit(0); roomId >= 0;
+                roomId = availableRooms.nextSetBit(roomId + 1)) {
+            final IRoom room = rooms[roomId];
+
+            // skip rooms removed since the ids were computed
+            if (room != null) {
+                result.add(room);
+            }
+        }
+    }
+
+    /**
+     * Collects the free rooms of every shift of the stay by -maxOffsetDays to
+     * +maxOffsetDays days, except the unshifted stay itself, in one sweep.
+     *
+     * Instead of one search per offset, a window of the stay's length slides
+     * over the days and keeps a count of booked nights per room: each day's
+     * bitset is visited once when it enters the window and once when it
+     * leaves it. A room is free at an offset when its count is zero.
+     */
+    void collectAvailableRoomsByOffset(final int checkInDay, final int checkOutDay,
+            final int maxOffsetDays, final Map<Integer, List<IRoom>> result) {
+        final BitSet rooms = inventory;
+        final IRoom[] roomsSnapshot = roomsById;
+        final BookedDays days = bookedDays;
+        final int[] bookedNights = new int[roomsSnapshot.length];
+
+        for (int day = checkInDay - maxOffsetDays; day < checkOutDay - maxOffsetDays; day++) {
+            countBookedNights(days.get(day), bookedNights, 1);
+        }
+
+        for (int offset = -maxOffsetDays; offset <= maxOffsetDays; offset++) {
+            if (offset != 0) {
+                for (int roomId = rooms.nextSetBit(0); roomId >= 0 && roomId < bookedNights.length;
+                        roomId = rooms.nextSetBit(roomId + 1)) {
+                    if (bookedNights[roomId] == 0 && roomsSnapshot[roomId] != null) {
+                        result.computeIfAbsent(offset, key -> new ArrayList<>()).add(roomsSnapshot[roomId]);
+                    }
+                }
+            }
+
+            // slide the window one day forward
+            countBookedNights(days.get(checkInDay + offset), bookedNights, -1);
+            countBookedNights(days.get(checkOutDay + offset), bookedNights, 1);
+        }
+    }
+
+    private static void countBookedNights(final BitSet bookedRooms, final int[] bookedNights, final int delta) {
+        if (bookedRooms != null) {
+            for (int roomId = bookedRooms.nextSetBit(0); roomId >= 0 && roomId < bookedNights.length;
+                    roomId = bookedRooms.nextSetBit(roomId + 1)) {
+                bookedNights[roomId] += delta;
+            }
+        }
+    }
+
+    void clearRooms() {
+        inventory = new BitSet();
+        roomsById = new IRoom[roomsById.length];
+    }
+
+    void clearBookings() {
+        bookedDays = BookedDays.empty();
+    }
+
+    private void setRoom(final int roomId, final IRoom room) {
+        final IRoom[] updated = Arrays.copyOf(roomsById, Math.max(roomsById.length, roomId + 1));
+        updated[roomId] = room;
+        roomsById = updated;
+    }
+
+    /**
+     * Returns booked days covering [checkInDay, checkOutDay), publishing a
+     * grown copy when the current ones are too small.
+     */
+    private BookedDays ensureDays(final int checkInDay, final int checkOutDay) {
+        final BookedDays days = bookedDays;
+
+        if (days.covers(checkInDay, checkOutDay)) {
+            return days;
+        }
+
+        final BookedDays grown = days.grow(checkInDay, checkOutDay);
+        if (grown != days) {
+            bookedDays = grown;
+        }
+
+        return grown;
+    }
+
+    private int roomIdOf(final String roomNumber) {
+        Integer roomId = roomIds.get(roomNumber);
+
+        if (roomId == null) {
+            roomId = roomIds.size();
+            roomIds.put(roomNumber, roomId);
+            setRoom(roomId, null);
+        }
+
+        return roomId;
+    }
+
+    /**
+     * Booked-room bitsets by day: an array over a range of days, and a sorted
+     * map for the days outside it. The slots are written one by one with
+     * volatile semantics; growing the range publishes a new instance.
+     */
+    private static final class BookedDays {
+
+        // about ten years of nights
+        static final int MAX_DENSE_DAYS = 4096;
+
+        private final int firstDay;
+        private final AtomicReferenceArray<BitSet> bookedRooms;
+        private final ConcurrentSkipListMap<Integer, BitSet> farDays;
+
+        private BookedDays(final int firstDay, final AtomicReferenceArray<BitSet> bookedRooms,
+                final ConcurrentSkipListMap<Integer, BitSet> farDays) {
+            this.firstDay = firstDay;
+            this.bookedRooms = bookedRooms;
+            this.farDays = farDays;
+        }
+
+        static BookedDays empty() {
+            return new BookedDays(0, new AtomicReferenceArray<BitSet>(0), new ConcurrentSkipListMap<Integer, BitSet>());
+        }
+
+        BitSet get(final int day) {
+            final long index = (long) day - firstDay;
+
+            if (index >= 0 && index < bookedRooms.length()) {
+                return bookedRooms.get((int) index);
+            }
+
+            return farDays.isEmpty() ? null : farDays.get(day);
+        }
+
+        void set(final int day, final BitSet rooms) {
+            final long index = (long) day - firstDay;
+
+            if (index >= 0 && index < bookedRooms.length()) {
+                bookedRooms.set((int) index, rooms);
+            } else if (rooms.isEmpty()) {
+                farDays.remove(day);
+            } else {
+                farDays.put(day, rooms);
+            }
+        }
+
+        boolean covers(final int fromDay, final int toDay) {
+            return bookedRooms.length() > 0 && fromDay >= firstDay
+                    && (long) toDay - firstDay <= bookedRooms.length();
+        }
+
+        /**
+         * Returns booked days whose array covers as much of [fromDay, toDay)
+         * as {@link #MAX_DENSE_DAYS} allows, or this instance if the array
+         * cannot grow towards it. Only an array at its full span leaves days
+         * out, so there are no far days yet whenever it grows.
+         */
+        BookedDays grow(final int fromDay, final int toDay) {
+            final int length = bookedRooms.length();
+            final long newFirstDay;
+            final long newLastDay;
+
+            if (length == 0) {
+                newFirstDay = fromDay;
+                newLastDay = fromDay + Math.min(MAX_DENSE_DAYS, Math.max(64, (long) toDay - fromDay));
+            } else {
+                final long lastDay = (long) firstDay + length;
+                newFirstDay = fromDay < firstDay
+                        ? Math.max(Math.min(fromDay, (long) firstDay - length), lastDay - MAX_DENSE_DAYS) : firstDay;
+                newLastDay = toDay > lastDay
+                        ? Math.min(Math.max(toDay, lastDay + length), newFirstDay + MAX_DENSE_DAYS) : lastDay;
+
+                if (newFirstDay == firstDay && newLastDay == lastDay) {
+                    return this;
+                }
+            }
+
+            final AtomicReferenceArray<BitSet> grown = new AtomicReferenceArray<>((int) (newLastDay - newFirstDay));
+
+            for (int index = 0; index < length; index++) {
+                grown.set((int) (firstDay - newFirstDay) + index, bookedRooms.get(index));
+            }
+
+            return new BookedDays((int) newFirstDay, grown, farDays);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Decides, per room, which stays are booked.
+ *
+ * An engine owns the booked intervals of every room and makes the
+ * double-booking check and the insert one atomic step. Everything derived
+ * from those intervals (availability bitsets, customer lists, lookups) is
+ * kept by {@link ReservationService}.
+ *
+ * @author joseneto
+ *
+ */
+interface BookingEngine {
+
+    /**
+     * Books [checkInDay, checkOutDay) for the room unless it overlaps an
+     * existing booking.
+     *
+     * @param reservation creates the reservation to store; called at most once
+     * @return the stored reservation
+     * @throws IllegalStateException if the room is already booked in the period
+     */
+    Reservation book(String roomNumber, int checkInDay, int checkOutDay, Supplier<Reservation> reservation);
+
+    /**
+     * Books the same stay for every room, all or nothing.
+     *
+     * @param roomNumbers distinct room numbers
+     * @param reservations creates the reservation of the room at the given
+     * index; called at most once per room
+     * @return the stored reservations, in the order of the rooms
+     * @throws IllegalStateException if any of the rooms is already booked in
+     * the period; none of them is booked then
+     */
+    List<Reservation> bookAll(List<String> roomNumbers, int checkInDay, int checkOutDay,
+            IntFunction<Reservation> reservations);
+
+    /**
+     * @return true if the reservation was booked and is now removed
+     */
+    boolean cancel(Reservation reservation);
+
+    boolean isBooked(String roomNumber, int day);
+
+    /**
+     * @return the first day on or after fromDay from which the room is free
+     * for the given number of nights
+     */
+    int earliestFreeDay(String roomNumber, int fromDay, int nights);
+
+    /**
+     * @return the bookings of the room, ordered by check-in day
+     */
+    Collection<Reservation> reservations(String roomNumber);
+
+    void clear();
+}
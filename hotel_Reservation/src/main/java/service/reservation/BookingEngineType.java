@@ -0,0 +1,23 @@
+package service.reservation;
+
+/**
+ * The ways {@link ReservationService} can serialize bookings of a room.
+ *
+ * @author joseneto
+ *
+ */
+public enum BookingEngineType {
+
+    /**
+     * Bookings of a room are serialized by a striped lock and checked
+     * against the room's sorted check-in and check-out columns.
+     */
+    LOCKING,
+
+    /**
+     * Every room holds immutable sorted columns of its bookings; a booking
+     * publishes a copy with its interval inserted by compare-and-set and
+     * retries when another booking of the room got in first.
+     */
+    LOCK_FREE
+}
@@ -0,0 +1,355 @@
+package service.reservation;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.reservation.ReservationKey;
+import model.room.IRoom;
+import service.customer.CustomerService;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer sequencer for the mutating calls of the hotel.
+ *
+ * Bookings, cancellations, new rooms and new customers are turned into
+ * commands and written into a pre-allocated ring buffer. One writer thread
+ * applies them in the order they were claimed, so writes never contend for
+ * room locks and each command sees the effects of every earlier one (a
+ * booking can use a customer created just before it). Searches keep reading
+ * the published state of {@link ReservationService} directly.
+ *
+ * Producers claim a sequence number, fill the slot of that number and then
+ * publish it; when the buffer is full they wait for the writer to free a
+ * slot. The writer thread is started on the first {@link #start()} and
+ * parks while there is nothing to apply. It keeps running after
+ * {@link #stop()}, so a command submitted while the sequencer is being
+ * stopped is still applied. Commands submitted before the first start are
+ * rejected with an IllegalStateException.
+ *
+ * @author joseneto
+ *
+ */
+public class BookingSequencer {
+
+    private static final BookingSequencer SINGLETON = new BookingSequencer(
+            ReservationService.getSingleton(), CustomerService.getSingleton(), 1024);
+    private static final int SPINS_BEFORE_PARKING = 100;
+
+    private final ReservationService reservationService;
+    private final CustomerService customerService;
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimedSequence = new AtomicLong(-1);
+    private volatile long appliedSequence = -1;
+    private volatile boolean enabled;
+    private volatile boolean writerParked;
+    private volatile Thread writer;
+
+    BookingSequencer(final ReservationService reservationService, final CustomerService customerService,
+            final int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+
+        this.reservationService = reservationService;
+        this.customerService = customerService;
+        this.slots = new Slot[capacity];
+        this.mask = capacity - 1;
+
+        for (int index = 0; index < capacity; index++) {
+            slots[index] = new Slot();
+        }
+    }
+
+    public static BookingSequencer getSingleton() {
+        return SINGLETON;
+    }
+
+    /**
+     * Starts routing writes through the sequencer.
+     */
+    public synchronized void start() {
+        if (writer == null) {
+            writer = new Thread(this::applyCommands, "booking-sequencer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        enabled = true;
+    }
+
+    /**
+     * Stops routing writes through the sequencer and waits until every
+     * command submitted so far has been applied.
+     */
+    public void stop() {
+        enabled = false;
+        flush().join();
+    }
+
+    /**
+     * @return true between {@link #start()} and {@link #stop()}
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<Reservation> reserveARoom(final String customerEmail, final IRoom room,
+            final Date checkInDate, final Date checkOutDate) {
+        final CompletableFuture<Reservation> result = new CompletableFuture<>();
+        final long sequence = claim();
+        final Slot slot = slotOf(sequence);
+        slot.type = CommandType.RESERVE;
+        slot.email = customerEmail;
+        slot.room = room;
+        slot.checkInDate = checkInDate;
+        slot.checkOutDate = checkOutDate;
+        slot.result = result;
+        publish(slot, sequence);
+
+        return result;
+    }
+
+    public CompletableFuture<List<Reservation>> reserveRooms(final String customerEmail,
+            final List<String> roomNumbers, final Date checkInDate, final Date checkOutDate) {
+        final CompletableFuture<List<Reservation>> result = new CompletableFuture<>();
+        final long sequence = claim();
+        final Slot slot = slotOf(sequence);
+        slot.type = CommandType.RESERVE_GROUP;
+        slot.email = customerEmail;
+        slot.roomNumbers = roomNumbers;
+        slot.checkInDate = checkInDate;
+        slot.checkOutDate = checkOutDate;
+        slot.result = result;
+        publish(slot, sequence);
+
+        return result;
+    }
+
+    public CompletableFuture<Boolean> cancelReservation(final long reservationId) {
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        final long sequence = claim();
+        final Slot slot = slotOf(sequence);
+        slot.type = CommandType.CANCEL_BY_ID;
+        slot.reservationId = reservationId;
+        slot.result = result;
+        publish(slot, sequence);
+
+        return result;
+    }
+
+    public CompletableFuture<Boolean> cancelReservation(final ReservationKey reservationKey) {
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        final long sequence = claim();
+        final Slot slot = slotOf(sequence);
+        slot.type = CommandType.CANCEL_BY_KEY;
+        slot.reservationKey = reservationKey;
+        slot.result = result;
+        publish(slot, sequence);
+
+        return result;
+    }
+
+    public CompletableFuture<Void> addRoom(final IRoom room) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final long sequence = claim();
+        final Slot slot = slotOf(sequence);
+        slot.type = CommandType.ADD_ROOM;
+        slot.room = room;
+        slot.result = result;
+        publish(slot, sequence);
+
+        return result;
+    }
+
+    public CompletableFuture<Void> addCustomer(final String email, final String firstName, final String lastName) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final long sequence = claim();
+        final Slot slot = slotOf(sequence);
+        slot.type = CommandType.ADD_CUSTOMER;
+        slot.email = email;
+        slot.firstName = firstName;
+        slot.lastName = lastName;
+        slot.result = result;
+        publish(slot, sequence);
+
+        return result;
+    }
+
+    /**
+     * Waits for the result of a command and rethrows its failure as it was
+     * thrown by the service, instead of wrapped in a CompletionException.
+     */
+    public static <T> T await(final CompletableFuture<T> command) {
+        try {
+            return command.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return a future completed once every command submitted before it has
+     * been applied
+     */
+    public CompletableFuture<Void> flush() {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        if (writer == null) {
+            result.complete(null);
+            return result;
+        }
+
+        final long sequence = claim();
+        final Slot slot = slotOf(sequence);
+        slot.type = CommandType.FLUSH;
+        slot.result = result;
+        publish(slot, sequence);
+
+        return result;
+    }
+
+    private long claim() {
+        // without the writer nothing would ever apply the command or free its slot
+        if (writer == null) {
+            throw new IllegalStateException("Booking sequencer is not started");
+        }
+
+        final long sequence = claimedSequence.incrementAndGet();
+
+        // wait until the writer has freed the slot of this sequence
+        while (sequence - slots.length > appliedSequence) {
+            LockSupport.parkNanos(1_000L);
+        }
+
+        return sequence;
+    }
+
+    private Slot slotOf(final long sequence) {
+        return slots[(int) (sequence & mask)];
+    }
+
+    private void publish(final Slot slot, final long sequence) {
+        slot.publishedSequence = sequence;
+
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applyCommands() {
+        long next = appliedSequence + 1;
+
+        while (true) {
+            final Slot slot = slotOf(next);
+            awaitPublished(slot, next);
+
+            final CommandType type = slot.type;
+            final CompletableFuture<Object> result = (CompletableFuture<Object>) slot.result;
+            Object value = null;
+            Throwable failure = null;
+
+            // even an Error only fails its own command; the writer goes on with the next one
+            try {
+                value = apply(slot, type);
+            } catch (Throwable e) {
+                failure = e;
+            }
+
+            slot.clear();
+            appliedSequence = next++;
+
+            if (failure == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private Object apply(final Slot slot, final CommandType type) {
+        switch (type) {
+            case RESERVE:
+                final Customer customer = customerService.getCustomer(slot.email);
+                return reservationService.reserveARoom(customer, slot.room, slot.checkInDate, slot.checkOutDate);
+            case RESERVE_GROUP:
+                return reservationService.reserveRooms(customerService.getCustomer(slot.email), slot.roomNumbers,
+                        slot.checkInDate, slot.checkOutDate);
+            case CANCEL_BY_ID:
+                return reservationService.cancelReservation(slot.reservationId);
+            case CANCEL_BY_KEY:
+                return reservationService.cancelReservation(slot.reservationKey);
+            case ADD_ROOM:
+                reservationService.addRoom(slot.room);
+                return null;
+            case ADD_CUSTOMER:
+                customerService.addCustomer(slot.email, slot.firstName, slot.lastName);
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private void awaitPublished(final Slot slot, final long sequence) {
+        int spins = 0;
+
+        while (slot.publishedSequence != sequence) {
+            if (spins++ < SPINS_BEFORE_PARKING) {
+                continue;
+            }
+
+            // producers unpark the writer after publishing while this flag is set
+            writerParked = true;
+            if (slot.publishedSequence != sequence) {
+                LockSupport.park(this);
+            }
+            writerParked = false;
+        }
+    }
+
+    private enum CommandType {
+        RESERVE, RESERVE_GROUP, CANCEL_BY_ID, CANCEL_BY_KEY, ADD_ROOM, ADD_CUSTOMER, FLUSH
+    }
+
+    /**
+     * One pre-allocated entry of the ring buffer. Fields are written by the
+     * producer before the volatile publishedSequence and read by the writer
+     * after it.
+     */
+    private static final class Slot {
+
+        volatile long publishedSequence = -1;
+        CommandType type;
+        String email;
+        String firstName;
+        String lastName;
+        IRoom room;
+        List<String> roomNumbers;
+        Date checkInDate;
+        Date checkOutDate;
+        long reservationId;
+        ReservationKey reservationKey;
+        CompletableFuture<?> result;
+
+        void clear() {
+            type = null;
+            email = null;
+            firstName = null;
+            lastName = null;
+            room = null;
+            roomNumbers = null;
+            checkInDate = null;
+            checkOutDate = null;
+            reservationKey = null;
+            result = null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reservations of one customer, kept sorted by check-in date, newest first.
+ *
+ * Insertions use a binary search for their position, so reading the history
+ * is a plain iteration over the backing array, without copying or sorting it.
+ *
+ * Changes copy the array and publish the copy, so readers never lock and the
+ * views they hold are never changed under them.
+ *
+ * @author joseneto
+ *
+ */
+class CustomerReservations {
+
+    static final Comparator<Reservation> NEWEST_FIRST = Comparator
+            .comparingInt(Reservation::getCheckInDay).reversed()
+            .thenComparing(reservation -> reservation.getRoom().getRoomNumber())
+            // a cancelled booking and its replacement may be listed together for a moment
+            .thenComparingLong(Reservation::getId);
+
+    private volatile Reservation[] reservations = new Reservation[0];
+
+    synchronized void add(final Reservation reservation) {
+        final Reservation[] current = reservations;
+        final int found = Arrays.binarySearch(current, reservation, NEWEST_FIRST);
+        final int index = found < 0 ? -found - 1 : found;
+        final Reservation[] updated = new Reservation[current.length + 1];
+
+        System.arraycopy(current, 0, updated, 0, index);
+        updated[index] = reservation;
+        System.arraycopy(current, index, updated, index + 1, current.length - index);
+        reservations = updated;
+    }
+
+    synchronized boolean remove(final Reservation reservation) {
+        final Reservation[] current = reservations;
+        final int index = Arrays.binarySearch(current, reservation, NEWEST_FIRST);
+
+        if (index >= 0 && current[index] == reservation) {
+            final Reservation[] updated = new Reservation[current.length - 1];
+
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            reservations = updated;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return a read-only view of the reservations, newest first
+     */
+    List<Reservation> newestFirst() {
+        return Collections.unmodifiableList(Arrays.asList(reservations));
+    }
+
+    /**
+     * @return a read-only view of at most limit reservations, skipping the
+     * offset newest ones
+     */
+    List<Reservation> newestFirst(final int offset, final int limit) {
+        final Reservation[] current = reservations;
+        final int from = Math.min(Math.max(offset, 0), current.length);
+        final int to = Math.min(from + Math.max(limit, 0), current.length);
+
+        return Collections.unmodifiableList(Arrays.asList(current).subList(from, to));
+    }
+}
@@ -0,0 +1,137 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Booking engine without locks.
+ *
+ * Every room holds its immutable {@link RoomBookings} in an
+ * {@link AtomicReference}. A booking reads the current bookings, checks them
+ * for a conflict, builds a copy with the new interval inserted and publishes
+ * it with compare-and-set; if another booking or cancellation of the room
+ * was published in between, it starts over on the newer bookings. Readers
+ * just read the reference and always see a consistent snapshot.
+ *
+ * @author joseneto
+ *
+ */
+class LockFreeBookingEngine implements BookingEngine {
+
+    private final Map<String, AtomicReference<RoomBookings>> roomBookings = new ConcurrentHashMap<>();
+
+    @Override
+    public Reservation book(final String roomNumber, final int checkInDay, final int checkOutDay,
+            final Supplier<Reservation> reservation) {
+        final AtomicReference<RoomBookings> bookings = roomBookings
+                .computeIfAbsent(roomNumber, number -> new AtomicReference<>(RoomBookings.NONE));
+        Reservation booked = null;
+
+        while (true) {
+            final RoomBookings current = bookings.get();
+
+            if (current.hasConflict(checkInDay, checkOutDay)) {
+                throw new IllegalStateException("Room is already booked for the selected period");
+            }
+
+            if (booked == null) {
+                booked = reservation.get();
+            }
+
+            if (bookings.compareAndSet(current, current.with(booked))) {
+                return booked;
+            }
+        }
+    }
+
+    /**
+     * Books the rooms one by one in room number order and, when one of them
+     * is taken, cancels the ones booked so far. Until then a concurrent
+     * booking may see those rooms as taken.
+     */
+    @Override
+    public List<Reservation> bookAll(final List<String> roomNumbers, final int checkInDay, final int checkOutDay,
+            final IntFunction<Reservation> reservations) {
+        final Integer[] order = new Integer[roomNumbers.size()];
+        for (int index = 0; index < order.length; index++) {
+            order[index] = index;
+        }
+        Arrays.sort(order, Comparator.comparing(roomNumbers::get));
+
+        final Reservation[] booked = new Reservation[order.length];
+
+        for (int index : order) {
+            try {
+                booked[index] = book(roomNumbers.get(index), checkInDay, checkOutDay, () -> reservations.apply(index));
+            } catch (IllegalStateException e) {
+                for (Reservation reservation : booked) {
+                    if (reservation != null) {
+                        cancel(reservation);
+                    }
+                }
+                throw new IllegalStateException("Room " + roomNumbers.get(index)
+                        + " is already booked for the selected period");
+            }
+        }
+
+        return new ArrayList<>(Arrays.asList(booked));
+    }
+
+    @Override
+    public boolean cancel(final Reservation reservation) {
+        final AtomicReference<RoomBookings> bookings = roomBookings.get(reservation.getRoom().getRoomNumber());
+
+        if (bookings == null) {
+            return false;
+        }
+
+        while (true) {
+            final RoomBookings current = bookings.get();
+            final RoomBookings updated = current.without(reservation);
+
+            if (updated == null) {
+                return false;
+            }
+
+            if (bookings.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean isBooked(final String roomNumber, final int day) {
+        return snapshot(roomNumber).isBooked(day);
+    }
+
+    @Override
+    public int earliestFreeDay(final String roomNumber, final int fromDay, final int nights) {
+        return snapshot(roomNumber).earliestFreeDay(fromDay, nights);
+    }
+
+    @Override
+    public Collection<Reservation> reservations(final String roomNumber) {
+        return snapshot(roomNumber).reservations();
+    }
+
+    @Override
+    public void clear() {
+        roomBookings.clear();
+    }
+
+    private RoomBookings snapshot(final String roomNumber) {
+        final AtomicReference<RoomBookings> bookings = roomBookings.get(roomNumber);
+
+        return bookings == null ? RoomBookings.NONE : bookings.get();
+    }
+}
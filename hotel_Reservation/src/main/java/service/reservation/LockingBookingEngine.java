@@ -0,0 +1,128 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Booking engine that holds the room's lock stripe while it checks the
+ * room's bookings for conflicts and publishes a copy with the booking
+ * inserted. Searches read the published {@link RoomBookings} without
+ * locking.
+ *
+ * @author joseneto
+ *
+ */
+class LockingBookingEngine implements BookingEngine {
+
+    private final Map<String, RoomBookings> roomBookings = new ConcurrentHashMap<>();
+    private final RoomLocks roomLocks = new RoomLocks();
+
+    @Override
+    public Reservation book(final String roomNumber, final int checkInDay, final int checkOutDay,
+            final Supplier<Reservation> reservation) {
+        final Lock lock = roomLocks.lockFor(roomNumber);
+        lock.lock();
+        try {
+            final RoomBookings current = snapshot(roomNumber);
+
+            if (current.hasConflict(checkInDay, checkOutDay)) {
+                throw new IllegalStateException("Room is already booked for the selected period");
+            }
+
+            final Reservation booked = reservation.get();
+            roomBookings.put(roomNumber, current.with(booked));
+            return booked;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Holds the stripes of all the rooms, taken in stripe order, while the
+     * bookings of every room are checked and then updated.
+     */
+    @Override
+    public List<Reservation> bookAll(final List<String> roomNumbers, final int checkInDay, final int checkOutDay,
+            final IntFunction<Reservation> reservations) {
+        final BitSet stripes = roomLocks.lockAll(roomNumbers);
+        try {
+            for (String roomNumber : roomNumbers) {
+                if (snapshot(roomNumber).hasConflict(checkInDay, checkOutDay)) {
+                    throw new IllegalStateException("Room " + roomNumber + " is already booked for the selected period");
+                }
+            }
+
+            final List<Reservation> booked = new ArrayList<>(roomNumbers.size());
+            for (int index = 0; index < roomNumbers.size(); index++) {
+                final Reservation reservation = reservations.apply(index);
+                roomBookings.put(roomNumbers.get(index), snapshot(roomNumbers.get(index)).with(reservation));
+                booked.add(reservation);
+            }
+            return booked;
+        } finally {
+            roomLocks.unlockAll(stripes);
+        }
+    }
+
+    @Override
+    public boolean cancel(final Reservation reservation) {
+        final String roomNumber = reservation.getRoom().getRoomNumber();
+        final Lock lock = roomLocks.lockFor(roomNumber);
+        lock.lock();
+        try {
+            final RoomBookings updated = snapshot(roomNumber).without(reservation);
+
+            if (updated == null) {
+                return false;
+            }
+            if (updated.isEmpty()) {
+                roomBookings.remove(roomNumber);
+            } else {
+                roomBookings.put(roomNumber, updated);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isBooked(final String roomNumber, final int day) {
+        return snapshot(roomNumber).isBooked(day);
+    }
+
+    @Override
+    public int earliestFreeDay(final String roomNumber, final int fromDay, final int nights) {
+        return snapshot(roomNumber).earliestFreeDay(fromDay, nights);
+    }
+
+    @Override
+    public Collection<Reservation> reservations(final String roomNumber) {
+        return snapshot(roomNumber).reservations();
+    }
+
+    @Override
+    public void clear() {
+        roomLocks.lockAll();
+        try {
+            roomBookings.clear();
+        } finally {
+            roomLocks.unlockAll();
+        }
+    }
+
+    private RoomBookings snapshot(final String roomNumber) {
+        final RoomBookings bookings = roomBookings.get(roomNumber);
+
+        return bookings == null ? RoomBookings.NONE : bookings;
+    }
+}
@@ -0,0 +1,145 @@
+package service.reservation;
+
+/**
+ * Open-addressing hash map from primitive long keys to objects.
+ *
+ * Keys are stored in a long[] and probed linearly, so lookups neither box the
+ * key nor chase entry objects. Removal shifts the following entries of the
+ * probe run back instead of leaving tombstones.
+ *
+ * Not thread-safe: callers synchronize on the map.
+ *
+ * @author joseneto
+ *
+ */
+class LongObjectMap<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    LongObjectMap() {
+        clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(final long key) {
+        int slot = slotOf(key, keys.length);
+
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(final long key, final V value) {
+        if (value == null) {
+            throw new NullPointerException("value cannot be null");
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+
+        int slot = slotOf(key, keys.length);
+
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                final V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(final long key) {
+        final int mask = keys.length - 1;
+        int slot = slotOf(key, keys.length);
+
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                final V previous = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        keys = new long[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    // moves later entries of the probe run into the freed slot so lookups never stop early
+    private void shiftBack(int freeSlot) {
+        final int mask = keys.length - 1;
+        int slot = freeSlot;
+
+        while (true) {
+            slot = (slot + 1) & mask;
+
+            if (values[slot] == null) {
+                break;
+            }
+
+            final int home = slotOf(keys[slot], keys.length);
+            final boolean movable = freeSlot <= slot
+                    ? home <= freeSlot || home > slot
+                    : home <= freeSlot && home > slot;
+
+            if (movable) {
+                keys[freeSlot] = keys[slot];
+                values[freeSlot] = values[slot];
+                freeSlot = slot;
+            }
+        }
+
+        values[freeSlot] = null;
+    }
+
+    private void resize(final int capacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new Object[capacity];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i], capacity);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slotOf(final long key, final int capacity) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+    }
+}
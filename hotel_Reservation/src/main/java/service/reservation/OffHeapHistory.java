@@ -0,0 +1,382 @@
+package service.reservation;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.reservation.ReservationKey;
+import model.room.IRoom;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Past stays kept outside the Java heap.
+ *
+ * Every stay takes a fixed-width slot in a direct ByteBuffer segment: its
+ * id, room and customer numbers, check-in and check-out days, and the next
+ * slot of the same room and of the same customer. Rooms keep their slots
+ * chained newest stay first, so the stays that can overlap a recent period
+ * come first; customers keep theirs in the order they were added. A
+ * cancelled slot is chained into a free list through its next-room field
+ * and reused by the next stay. Reservations are found by id through an
+ * open-addressing table of slot numbers, also held in a direct buffer.
+ *
+ * The heap only holds one entry per room and per customer, so it does not
+ * grow with the history, and the garbage collector never scans the slots.
+ * A reservation object is built on every lookup and not kept.
+ *
+ * @author joseneto
+ *
+ */
+final class OffHeapHistory implements ReservationArchive {
+
+    private static final int SLOT_BYTES = 32;
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_SLOTS = 1 << SEGMENT_SHIFT;
+    private static final int MIN_TABLE_CAPACITY = 1 << 10;
+    private static final int NONE = -1;
+
+    private static final int ID = 0;
+    private static final int ROOM = 8;
+    private static final int CUSTOMER = 12;
+    private static final int CHECK_IN = 16;
+    private static final int CHECK_OUT = 20;
+    private static final int NEXT_IN_ROOM = 24;
+    private static final int NEXT_OF_CUSTOMER = 28;
+
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private int slotCount;
+    private int freeSlot = NONE;
+    private int size;
+
+    private final Map<String, Integer> roomNumbers = new HashMap<>();
+    private final List<IRoom> rooms = new ArrayList<>();
+    private int[] roomHeads = new int[0];
+    private int[] roomCounts = new int[0];
+    private final Map<String, Integer> customerEmails = new HashMap<>();
+    private final List<Customer> customers = new ArrayList<>();
+    private int[] customerHeads = new int[0];
+
+    // slot number + 1 per entry, 0 when empty
+    private ByteBuffer idTable = ByteBuffer.allocateDirect(MIN_TABLE_CAPACITY * 4);
+    private int idMask = MIN_TABLE_CAPACITY - 1;
+
+    private volatile int horizonDay = Integer.MIN_VALUE;
+
+    @Override
+    public int getHorizonDay() {
+        return horizonDay;
+    }
+
+    /**
+     * Moves the horizon forward; stays ending by it may be added from then on.
+     */
+    synchronized void extendHorizon(final int day) {
+        horizonDay = Math.max(horizonDay, day);
+    }
+
+    /**
+     * Copies the stay into a slot. Its stay must end by the horizon and must
+     * not overlap another stay of the room.
+     */
+    synchronized void add(final Reservation reservation) {
+        final int room = roomNumber(reservation.getRoom());
+        final int customer = customerNumber(reservation.getCustomer());
+        final int slot = allocate();
+        final int checkInDay = reservation.getCheckInDay();
+
+        segment(slot).putLong(offset(slot) + ID, reservation.getId());
+        setInt(slot, ROOM, room);
+        setInt(slot, CUSTOMER, customer);
+        setInt(slot, CHECK_IN, checkInDay);
+        setInt(slot, CHECK_OUT, reservation.getCheckOutDay());
+
+        // usually the newest stay of the room, so the walk stops at the head
+        int previous = NONE;
+        int next = roomHeads[room];
+        while (next != NONE && getInt(next, CHECK_IN) > checkInDay) {
+            previous = next;
+            next = getInt(next, NEXT_IN_ROOM);
+        }
+        setInt(slot, NEXT_IN_ROOM, next);
+        if (previous == NONE) {
+            roomHeads[room] = slot;
+        } else {
+            setInt(previous, NEXT_IN_ROOM, slot);
+        }
+
+        setInt(slot, NEXT_OF_CUSTOMER, customerHeads[customer]);
+        customerHeads[customer] = slot;
+
+        insertId(reservation.getId(), slot);
+        roomCounts[room]++;
+        size++;
+    }
+
+    /**
+     * @return the number of stays held
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the bytes taken outside the heap by slots and the id table
+     */
+    synchronized long offHeapBytes() {
+        return (long) segments.size() * SEGMENT_SLOTS * SLOT_BYTES + idTable.capacity();
+    }
+
+    @Override
+    public synchronized Reservation find(final long reservationId) {
+        final int slot = findSlot(reservationId);
+
+        return slot == NONE ? null : reservation(slot);
+    }
+
+    @Override
+    public synchronized Reservation find(final ReservationKey key) {
+        final Integer room = roomNumbers.get(key.getRoomNumber());
+        if (room == null) {
+            return null;
+        }
+
+        for (int slot = roomHeads[room]; slot != NONE; slot = getInt(slot, NEXT_IN_ROOM)) {
+            final int checkInDay = getInt(slot, CHECK_IN);
+
+            if (checkInDay < key.getCheckInDay()) {
+                break;
+            }
+            if (checkInDay == key.getCheckInDay()
+                    && customers.get(getInt(slot, CUSTOMER)).getEmail().equals(key.getCustomerEmail())) {
+                return reservation(slot);
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public synchronized List<Reservation> findByCustomer(final String customerEmail) {
+        final List<Reservation> stays = new ArrayList<>();
+        final Integer customer = customerEmails.get(customerEmail);
+
+        if (customer != null) {
+            for (int slot = customerHeads[customer]; slot != NONE; slot = getInt(slot, NEXT_OF_CUSTOMER)) {
+                stays.add(reservation(slot));
+            }
+            stays.sort(CustomerReservations.NEWEST_FIRST);
+        }
+
+        return stays;
+    }
+
+    @Override
+    public synchronized boolean isBooked(final String roomNumber, final int checkInDay, final int checkOutDay) {
+        final Integer room = roomNumbers.get(roomNumber);
+        if (room == null) {
+            return false;
+        }
+
+        for (int slot = roomHeads[room]; slot != NONE; slot = getInt(slot, NEXT_IN_ROOM)) {
+            if (getInt(slot, CHECK_IN) < checkOutDay) {
+                // older stays of the room end no later than this one
+                return getInt(slot, CHECK_OUT) > checkInDay;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public synchronized boolean cancel(final long reservationId) {
+        final int slot = findSlot(reservationId);
+        if (slot == NONE) {
+            return false;
+        }
+
+        final int room = getInt(slot, ROOM);
+        final int customer = getInt(slot, CUSTOMER);
+        roomHeads[room] = unlink(roomHeads[room], slot, NEXT_IN_ROOM);
+        customerHeads[customer] = unlink(customerHeads[customer], slot, NEXT_OF_CUSTOMER);
+        removeId(slot);
+
+        setInt(slot, NEXT_IN_ROOM, freeSlot);
+        freeSlot = slot;
+        roomCounts[room]--;
+        size--;
+        return true;
+    }
+
+    @Override
+    public synchronized void forEachRoomCount(final ObjIntConsumer<String> action) {
+        for (int room = 0; room < rooms.size(); room++) {
+            if (roomCounts[room] > 0) {
+                action.accept(rooms.get(room).getRoomNumber(), roomCounts[room]);
+            }
+        }
+    }
+
+    private Reservation reservation(final int slot) {
+        return new Reservation(segment(slot).getLong(offset(slot) + ID), customers.get(getInt(slot, CUSTOMER)),
+                rooms.get(getInt(slot, ROOM)), getInt(slot, CHECK_IN), getInt(slot, CHECK_OUT));
+    }
+
+    private int roomNumber(final IRoom room) {
+        final Integer known = roomNumbers.get(room.getRoomNumber());
+        if (known != null) {
+            return known;
+        }
+
+        final int number = rooms.size();
+        roomNumbers.put(room.getRoomNumber(), number);
+        rooms.add(room);
+        roomHeads = grow(roomHeads, number);
+        roomCounts = Arrays.copyOf(roomCounts, roomHeads.length);
+        return number;
+    }
+
+    private int customerNumber(final Customer customer) {
+        final Integer known = customerEmails.get(customer.getEmail());
+        if (known != null) {
+            return known;
+        }
+
+        final int number = customers.size();
+        customerEmails.put(customer.getEmail(), number);
+        customers.add(customer);
+        customerHeads = grow(customerHeads, number);
+        return number;
+    }
+
+    // makes room for index, new entries empty
+    private static int[] grow(final int[] heads, final int index) {
+        if (index < heads.length) {
+            return heads;
+        }
+
+        final int[] grown = Arrays.copyOf(heads, Math.max(16, heads.length * 2));
+        Arrays.fill(grown, heads.length, grown.length, NONE);
+        return grown;
+    }
+
+    private int allocate() {
+        if (freeSlot != NONE) {
+            final int slot = freeSlot;
+            freeSlot = getInt(slot, NEXT_IN_ROOM);
+            return slot;
+        }
+
+        if (slotCount == segments.size() * SEGMENT_SLOTS) {
+            segments.add(ByteBuffer.allocateDirect(SEGMENT_SLOTS * SLOT_BYTES));
+        }
+        return slotCount++;
+    }
+
+    // removes slot from the chain starting at head, linked through field; returns the new head
+    private int unlink(final int head, final int slot, final int field) {
+        if (head == slot) {
+            return getInt(slot, field);
+        }
+
+        int previous = head;
+        while (getInt(previous, field) != slot) {
+            previous = getInt(previous, field);
+        }
+        setInt(previous, field, getInt(slot, field));
+        return head;
+    }
+
+    private int findSlot(final long reservationId) {
+        for (int index = hash(reservationId) & idMask; ; index = (index + 1) & idMask) {
+            final int entry = idTable.getInt(index * 4);
+
+            if (entry == 0) {
+                return NONE;
+            }
+            if (segment(entry - 1).getLong(offset(entry - 1) + ID) == reservationId) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private void insertId(final long reservationId, final int slot) {
+        // at most half full, so probes stay short
+        if ((size + 1) * 2 > idMask + 1) {
+            resizeIdTable((idMask + 1) * 2);
+        }
+
+        int index = hash(reservationId) & idMask;
+        while (idTable.getInt(index * 4) != 0) {
+            index = (index + 1) & idMask;
+        }
+        idTable.putInt(index * 4, slot + 1);
+    }
+
+    // deletes by shifting the entries of the probe run back, so lookups need no tombstones
+    private void removeId(final int slot) {
+        int hole = hash(segment(slot).getLong(offset(slot) + ID)) & idMask;
+        while (idTable.getInt(hole * 4) != slot + 1) {
+            hole = (hole + 1) & idMask;
+        }
+
+        for (int index = (hole + 1) & idMask; ; index = (index + 1) & idMask) {
+            final int entry = idTable.getInt(index * 4);
+            if (entry == 0) {
+                break;
+            }
+
+            final int home = hash(segment(entry - 1).getLong(offset(entry - 1) + ID)) & idMask;
+            final boolean movable = hole <= index ? home <= hole || home > index : home <= hole && home > index;
+            if (movable) {
+                idTable.putInt(hole * 4, entry);
+                hole = index;
+            }
+        }
+        idTable.putInt(hole * 4, 0);
+    }
+
+    private void resizeIdTable(final int capacity) {
+        final ByteBuffer previous = idTable;
+        final int previousCapacity = idMask + 1;
+
+        idTable = ByteBuffer.allocateDirect(capacity * 4);
+        idMask = capacity - 1;
+        for (int index = 0; index < previousCapacity; index++) {
+            final int entry = previous.getInt(index * 4);
+
+            if (entry != 0) {
+                int target = hash(segment(entry - 1).getLong(offset(entry - 1) + ID)) & idMask;
+                while (idTable.getInt(target * 4) != 0) {
+                    target = (target + 1) & idMask;
+                }
+                idTable.putInt(target * 4, entry);
+            }
+        }
+    }
+
+    private static int hash(final long reservationId) {
+        final long mixed = reservationId * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private ByteBuffer segment(final int slot) {
+        return segments.get(slot >>> SEGMENT_SHIFT);
+    }
+
+    private static int offset(final int slot) {
+        return (slot & (SEGMENT_SLOTS - 1)) * SLOT_BYTES;
+    }
+
+    private int getInt(final int slot, final int field) {
+        return segment(slot).getInt(offset(slot) + field);
+    }
+
+    private void setInt(final int slot, final int field, final int value) {
+        segment(slot).putInt(offset(slot) + field, value);
+    }
+}
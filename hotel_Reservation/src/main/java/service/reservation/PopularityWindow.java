@@ -0,0 +1,126 @@
+package service.reservation;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Booking events of the last {@value #MAX_WINDOW_DAYS} days, per room.
+ *
+ * Every room counts its events in a ring of one slot per day; a slot is
+ * reset when the ring wraps around to a new day, so memory stays bounded at
+ * MAX_WINDOW_DAYS counters per room however long the service runs. A top-K
+ * query over a window sums the slots of the days it covers.
+ *
+ * Each slot is one long of an {@link AtomicLongArray} holding the day in
+ * its high half and the count in its low half, so a booking bumps the count
+ * and rolls a stale slot over to today in the same compare-and-set, and
+ * bookings take no lock.
+ *
+ * @author joseneto
+ *
+ */
+class PopularityWindow {
+
+    static final int MAX_WINDOW_DAYS = 90;
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+    // what a room cleared since the query listed it reads as
+    private static final AtomicLongArray EMPTY = new AtomicLongArray(MAX_WINDOW_DAYS);
+
+    private final Clock clock;
+    private final ConcurrentHashMap<String, AtomicLongArray> slotsByRoom = new ConcurrentHashMap<>();
+
+    PopularityWindow(final Clock clock) {
+        this.clock = clock;
+    }
+
+    void recordBooking(final String roomNumber) {
+        final long today = today();
+        final int slot = (int) Math.floorMod(today, (long) MAX_WINDOW_DAYS);
+        AtomicLongArray slots = slotsByRoom.get(roomNumber);
+
+        if (slots == null) {
+            slots = slotsByRoom.computeIfAbsent(roomNumber, key -> new AtomicLongArray(MAX_WINDOW_DAYS));
+        }
+
+        while (true) {
+            final long current = slots.get(slot);
+            final long updated = dayOf(current) == today ? current + 1 : today << 32 | 1;
+
+            if (slots.compareAndSet(slot, current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param windowDays the number of days to look back, today included
+     * @return up to k room numbers booked in the window, most booked first and
+     * by room number on ties
+     */
+    List<String> findMostBooked(final int windowDays, final int k) {
+        if (windowDays <= 0 || windowDays > MAX_WINDOW_DAYS) {
+            throw new IllegalArgumentException("Window must be between 1 and " + MAX_WINDOW_DAYS + " days");
+        }
+
+        final long today = today();
+        final List<String> roomNumbers = new ArrayList<>(slotsByRoom.keySet());
+        final long[] totals = new long[roomNumbers.size()];
+
+        for (int roomId = 0; roomId < totals.length; roomId++) {
+            final AtomicLongArray slots = slotsByRoom.getOrDefault(roomNumbers.get(roomId), EMPTY);
+
+            for (int slot = 0; slot < MAX_WINDOW_DAYS; slot++) {
+                final long value = slots.get(slot);
+                final long day = dayOf(value);
+                if (day > today - windowDays && day <= today) {
+                    totals[roomId] += value & COUNT_MASK;
+                }
+            }
+        }
+
+        final Comparator<Integer> mostBookedFirst = Comparator
+                .<Integer>comparingLong(roomId -> totals[roomId]).reversed()
+                .thenComparing(roomNumbers::get);
+        // min-heap of the k best rooms so far, the least booked one on top
+        final PriorityQueue<Integer> best = new PriorityQueue<>(Math.max(k, 0) + 1, mostBookedFirst.reversed());
+
+        for (int roomId = 0; roomId < totals.length && k > 0; roomId++) {
+            if (totals[roomId] > 0) {
+                best.add(roomId);
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+        }
+
+        final List<Integer> ranked = new ArrayList<>(best);
+        ranked.sort(mostBookedFirst);
+
+        final List<String> result = new ArrayList<>(ranked.size());
+        for (Integer roomId : ranked) {
+            result.add(roomNumbers.get(roomId));
+        }
+
+        return result;
+    }
+
+    void clear() {
+        slotsByRoom.clear();
+    }
+
+    // the day a slot was last counted for; an unused slot reads as day 0 with no bookings
+    private static long dayOf(final long slotValue) {
+        return slotValue >> 32;
+    }
+
+    private long today() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+}
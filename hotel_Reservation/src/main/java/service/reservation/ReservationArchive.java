@@ -0,0 +1,60 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+import model.reservation.ReservationKey;
+
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Past stays kept outside the booking engine, e.g. in a memory-mapped
+ * snapshot, and only turned into {@link Reservation} objects when they are
+ * looked up. Every archived stay ends on or before the horizon day, so the
+ * archive only matters to bookings and searches that start before it.
+ *
+ * @author joseneto
+ *
+ */
+public interface ReservationArchive {
+
+    /**
+     * @return the epoch day on or before which every archived stay ends
+     */
+    int getHorizonDay();
+
+    /**
+     * @return the archived reservation with the given id, or null if there is
+     * none or it was cancelled
+     */
+    Reservation find(long reservationId);
+
+    /**
+     * @return the archived reservation with the given key, or null if there
+     * is none or it was cancelled
+     */
+    Reservation find(ReservationKey key);
+
+    /**
+     * @return the archived reservations of the customer, newest first, in the
+     * order of {@link CustomerReservations}
+     */
+    List<Reservation> findByCustomer(String customerEmail);
+
+    /**
+     * @return true if an archived reservation of the room overlaps
+     * [checkInDay, checkOutDay)
+     */
+    boolean isBooked(String roomNumber, int checkInDay, int checkOutDay);
+
+    /**
+     * Drops an archived reservation.
+     *
+     * @return true if it was archived and not cancelled yet
+     */
+    boolean cancel(long reservationId);
+
+    /**
+     * Reports the number of archived reservations of every room that has any.
+     */
+    void forEachRoomCount(ObjIntConsumer<String> action);
+}
@@ -1,14 +1,30 @@
 package service.reservation;
 
 import model.customer.Customer;
+import model.reservation.AlternativeDates;
+import model.reservation.AvailableStay;
+import model.reservation.EpochDay;
 import model.reservation.Reservation;
+import model.reservation.ReservationHold;
+import model.reservation.ReservationKey;
+import model.reservation.WaitlistEntry;
 import model.room.IRoom;
 import model.room.enums.RoomType;
+import service.persistence.MutationLog;
 
+import java.time.Clock;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Safe for concurrent use. Whether a room is free for a stay is decided by
+ * the selected {@link BookingEngineType}: with LOCKING, bookings of the same
+ * room are serialized by a lock stripe while bookings of other rooms run in
+ * parallel; with LOCK_FREE, they race to publish the room's new bookings by
+ * compare-and-set. Searches and lookups never take those locks; availability
+ * searches read optimistically and are only retried when a booking or
+ * cancellation overlapped them.
+ *
  * @author joseneto
  *
  */
@@ -16,9 +32,29 @@ public class ReservationService {
 
     private static final ReservationService SINGLETON = new ReservationService();
     private static final int RECOMMENDED_ROOMS_DEFAULT_PLUS_DAYS = 7;
+    private static final int ALTERNATIVE_DATES_MAX_OFFSET_DAYS = 14;
+    private static final long DEFAULT_HOLD_TTL_MILLIS = 15 * 60 * 1000L;
+    private static final long HOLD_EXPIRY_TICK_MILLIS = 100;
+    private static final int HOLD_EXPIRY_WHEEL_SIZE = 512;
+    private static final ReservationArchive[] NO_ARCHIVES = new ReservationArchive[0];
 
-    private final Map<String, IRoom> rooms = new HashMap<>();
-    private final Map<String, Collection<Reservation>> reservations = new HashMap<>();
+    private final Map<String, IRoom> rooms = new ConcurrentHashMap<>();
+    private final Map<String, CustomerReservations> reservations = new ConcurrentHashMap<>();
+    private final Map<ReservationKey, Reservation> reservationsByKey = new ConcurrentHashMap<>();
+    private final LongObjectMap<Reservation> reservationsById = new LongObjectMap<>();
+    private volatile BookingEngineType engineType = BookingEngineType.LOCKING;
+    private volatile BookingEngine engine = new LockingBookingEngine();
+    private final RoomInventory inventory = new RoomInventory();
+    private final RoomBookingCounters bookingCounters = new RoomBookingCounters();
+    private final PopularityWindow popularityWindow = new PopularityWindow(Clock.systemDefaultZone());
+    private final Map<Long, PendingHold> holds = new ConcurrentHashMap<>();
+    private final TimingWheel holdExpiries = new TimingWheel(Clock.systemUTC(), HOLD_EXPIRY_TICK_MILLIS,
+            HOLD_EXPIRY_WHEEL_SIZE);
+    private Thread holdExpiryThread;
+    private final RoomWaitlist waitlist = new RoomWaitlist();
+    private volatile MutationLog mutationLog = MutationLog.NONE;
+    private volatile ReservationArchive[] archives = NO_ARCHIVES;
+    private OffHeapHistory offHeapHistory;
 
     private ReservationService() {
     }
@@ -27,8 +63,145 @@ public class ReservationService {
         return SINGLETON;
     }
 
+    /**
+     * Reports every later change to the given log, see
+     * {@link service.persistence.WriteAheadLog}. Holds and waitlist entries
+     * are not reported until they turn into reservations.
+     */
+    public void setMutationLog(final MutationLog mutationLog) {
+        if (mutationLog == null) {
+            throw new NullPointerException("mutation log cannot be null");
+        }
+        this.mutationLog = mutationLog;
+    }
+
+    /**
+     * أرشيف الحجوزات السابقة Serves past stays from an archive instead of
+     * the booking engine, e.g. the memory-mapped snapshot loaded by
+     * {@link service.persistence.WriteAheadLog}. Archived stays are found by
+     * id, key and customer, count towards room popularity, can be cancelled,
+     * and keep their nights taken for bookings and searches that start
+     * before the archive's horizon. Archives attached before are kept.
+     *
+     * @param archive الأرشيف - Stays that all end by its horizon day
+     */
+    public void attachArchive(final ReservationArchive archive) {
+        if (archive == null) {
+            throw new NullPointerException("archive cannot be null");
+        }
+
+        addArchive(archive);
+        archive.forEachRoomCount(bookingCounters::add);
+    }
+
+    private synchronized void addArchive(final ReservationArchive archive) {
+        final ReservationArchive[] attached = Arrays.copyOf(archives, archives.length + 1);
+        attached[archives.length] = archive;
+        archives = attached;
+    }
+
+    /**
+     * نقل الحجوزات المنتهية خارج الذاكرة Moves the reservations whose stay
+     * ended on or before the given date out of the Java heap, into
+     * fixed-width slots of direct buffers. They are still found by id, key
+     * and customer, count towards room popularity, can be cancelled, and keep
+     * their nights taken, but the heap no longer grows with them. Nothing is
+     * logged: the stays are still reservations, only stored differently.
+     *
+     * @param date التاريخ - Stays ending on or before it are moved
+     * @return عدد الحجوزات المنقولة - The number of reservations moved
+     */
+    public synchronized int moveEndedStaysOffHeap(final Date date) {
+        if (date == null) {
+            throw new NullPointerException("date cannot be null");
+        }
+
+        if (offHeapHistory == null) {
+            offHeapHistory = new OffHeapHistory();
+            addArchive(offHeapHistory);
+        }
+        // raised before any stay leaves the engine, so bookings racing with the move check the history too
+        final int horizonDay = EpochDay.of(date);
+        offHeapHistory.extendHorizon(horizonDay);
+
+        int moved = 0;
+        for (Reservation reservation : getAllReservations()) {
+            if (reservation.getCheckOutDay() <= horizonDay && moveOffHeap(reservation)) {
+                moved++;
+            }
+        }
+
+        return moved;
+    }
+
+    private boolean moveOffHeap(final Reservation reservation) {
+        final String roomNumber = reservation.getRoom().getRoomNumber();
+        final BookingEngine bookingEngine = engine;
+
+        synchronized (reservation) {
+            // copied first, so its nights never look free to a booking in between
+            offHeapHistory.add(reservation);
+            if (!bookingEngine.cancel(reservation)) {
+                offHeapHistory.cancel(reservation.getId());
+                return false;
+            }
+
+            reservationsByKey.remove(ReservationKey.of(reservation), reservation);
+            synchronized (reservationsById) {
+                reservationsById.remove(reservation.getId());
+            }
+            reservations.get(reservation.getCustomer().getEmail()).remove(reservation);
+            inventory.release(roomNumber, reservation.getCheckInDay(), reservation.getCheckOutDay(),
+                    day -> bookingEngine.isBooked(roomNumber, day));
+        }
+
+        return true;
+    }
+
     public void addRoom(final IRoom room) {
-        rooms.put(room.getRoomNumber(), room);
+        // logged under the entry's lock, so the log keeps the order of changes to the same room number;
+        // the map and the inventory only change once the record is written
+        rooms.compute(room.getRoomNumber(), (roomNumber, previous) -> {
+            mutationLog.roomAdded(room);
+            return room;
+        });
+        inventory.addRoom(room, () -> engine.reservations(room.getRoomNumber()));
+    }
+
+    public BookingEngineType getBookingEngine() {
+        return engineType;
+    }
+
+    /**
+     * Selects how bookings of a room are serialized. Existing bookings and
+     * holds are copied to the new engine, so the switch must not overlap
+     * bookings, holds or cancellations.
+     *
+     * @param engineType the engine to use from now on
+     */
+    public synchronized void setBookingEngine(final BookingEngineType engineType) {
+        if (engineType == null) {
+            throw new NullPointerException("engine type cannot be null");
+        }
+        if (engineType == this.engineType) {
+            return;
+        }
+
+        final BookingEngine selected = engineType == BookingEngineType.LOCK_FREE
+                ? new LockFreeBookingEngine() : new LockingBookingEngine();
+
+        final Collection<Reservation> bookings = getAllReservations();
+        for (PendingHold pending : holds.values()) {
+            bookings.add(pending.hold.getReservation());
+        }
+
+        for (Reservation reservation : bookings) {
+            selected.book(reservation.getRoom().getRoomNumber(), reservation.getCheckInDay(),
+                    reservation.getCheckOutDay(), () -> reservation);
+        }
+
+        this.engine = selected;
+        this.engineType = engineType;
     }
 
     public IRoom getARoom(final String roomNumber) {
@@ -52,88 +225,589 @@ public class ReservationService {
             throw new NullPointerException("dates cannot be null");
         }
 
-        // Check if this room is already reserved in the same date range
-        for (Reservation existing : getAllReservations()) {
-            if (existing.getRoom().getRoomNumber().equals(room.getRoomNumber())
-                    && reservationOverlaps(existing, checkInDate, checkOutDate)) {
-                // prevent double booking by throwing an exception
-                throw new IllegalStateException("Room is already booked for the selected period");
+        final int checkInDay = EpochDay.of(checkInDate);
+        final int checkOutDay = EpochDay.of(checkOutDate);
+
+        if (checkOutDay <= checkInDay) {
+            throw new IllegalArgumentException("Check-out date must be after check-in date");
+        }
+
+        return book(customer, room, checkInDay, checkOutDay);
+    }
+
+    /**
+     * إعادة إنشاء حجز محفوظ Books a stay again under the id it had before,
+     * when the service is rebuilt from a {@link service.persistence.WriteAheadLog}.
+     *
+     * @param reservationId رقم الحجز - Reservation id
+     * @param customer العميل - The customer
+     * @param room الغرفة - The room
+     * @param checkInDay يوم تسجيل الدخول - Check-in epoch day
+     * @param checkOutDay يوم المغادرة - Check-out epoch day
+     * @return الحجز - The reservation
+     * @throws IllegalStateException if the room is already booked for the stay
+     */
+    public Reservation restoreReservation(final long reservationId, final Customer customer, final IRoom room,
+            final int checkInDay, final int checkOutDay) {
+        final Reservation reservation = engine.book(room.getRoomNumber(), checkInDay, checkOutDay,
+                () -> new Reservation(reservationId, customer, room, checkInDay, checkOutDay));
+        // not a new booking: neither counted as demand today nor logged again
+        synchronized (reservation) {
+            inventory.book(room, checkInDay, checkOutDay);
+            addToLookups(reservation);
+        }
+
+        return reservation;
+    }
+
+    private Reservation book(final Customer customer, final IRoom room, final int checkInDay,
+            final int checkOutDay) {
+        checkArchives(room.getRoomNumber(), checkInDay, checkOutDay);
+        // Check if this room is already reserved in the same date range and claim it atomically;
+        // the engine prevents double booking by throwing an IllegalStateException
+        final Reservation reservation = engine.book(room.getRoomNumber(), checkInDay, checkOutDay,
+                () -> new Reservation(customer, room, checkInDay, checkOutDay));
+        recheckArchives(Collections.singletonList(reservation));
+        logReserved(Collections.singletonList(reservation));
+        indexReservation(reservation);
+
+        return reservation;
+    }
+
+    /**
+     * حجز مجموعة غرف لنفس الفترة Books the same stay in several rooms for one
+     * customer, all or nothing. The rooms are first checked against the
+     * availability index in one pass, then booked together with the rooms
+     * locked in a fixed order, so overlapping group bookings cannot deadlock.
+     *
+     * @param customer العميل - The customer
+     * @param roomNumbers أرقام الغرف - Distinct room numbers
+     * @param checkInDate تاريخ تسجيل الدخول - Check-in date
+     * @param checkOutDate تاريخ المغادرة - Check-out date
+     * @return الحجوزات بنفس ترتيب الغرف - The reservations, in the order of the rooms
+     * @throws IllegalArgumentException if a room does not exist or is listed twice
+     * @throws IllegalStateException if any room is already booked; nothing is booked then
+     */
+    public List<Reservation> reserveRooms(final Customer customer, final List<String> roomNumbers,
+            final Date checkInDate, final Date checkOutDate) {
+        if (customer == null) {
+            throw new NullPointerException("Customer cannot be null");
+        }
+        if (roomNumbers == null || roomNumbers.isEmpty()) {
+            throw new IllegalArgumentException("At least one room is required");
+        }
+        if (checkInDate == null || checkOutDate == null) {
+            throw new NullPointerException("dates cannot be null");
+        }
+
+        final int checkInDay = EpochDay.of(checkInDate);
+        final int checkOutDay = EpochDay.of(checkOutDate);
+
+        if (checkOutDay <= checkInDay) {
+            throw new IllegalArgumentException("Check-out date must be after check-in date");
+        }
+
+        final List<IRoom> groupRooms = new ArrayList<>(roomNumbers.size());
+        final Set<String> seen = new HashSet<>();
+        for (String roomNumber : roomNumbers) {
+            final IRoom room = roomNumber == null ? null : rooms.get(roomNumber);
+
+            if (room == null) {
+                throw new IllegalArgumentException("Room not found: " + roomNumber);
+            }
+            if (!seen.add(roomNumber)) {
+                throw new IllegalArgumentException("Room listed twice: " + roomNumber);
             }
+            groupRooms.add(room);
+        }
+
+        // fail fast, without taking any lock, when the index already shows a room as taken
+        final String unavailable = inventory.findFirstUnavailable(roomNumbers, checkInDay, checkOutDay);
+        if (unavailable != null) {
+            throw new IllegalStateException("Room " + unavailable + " is already booked for the selected period");
+        }
+        for (String roomNumber : roomNumbers) {
+            checkArchives(roomNumber, checkInDay, checkOutDay);
         }
 
-        // Create a new reservation object after passing all validations
-        final Reservation reservation = new Reservation(customer, room, checkInDate, checkOutDate);
+        final List<Reservation> group = engine.bookAll(roomNumbers, checkInDay, checkOutDay,
+                index -> new Reservation(customer, groupRooms.get(index), checkInDay, checkOutDay));
+        recheckArchives(group);
+        logReserved(group);
+        for (Reservation reservation : group) {
+            indexReservation(reservation);
+        }
 
-        Collection<Reservation> customerReservations = getCustomersReservation(customer);
+        return group;
+    }
 
-        if (customerReservations == null) {
-            customerReservations = new LinkedList<>();
+    private void checkArchives(final String roomNumber, final int checkInDay, final int checkOutDay) {
+        if (isArchived(roomNumber, checkInDay, checkOutDay)) {
+            throw new IllegalStateException("Room " + roomNumber + " is already booked for the selected period");
         }
+    }
 
-        customerReservations.add(reservation);
-        reservations.put(customer.getEmail(), customerReservations);
+    /**
+     * Checks the stays just claimed in the engine against the archives once
+     * more: a conflicting stay may have been moved out of the engine into the
+     * off-heap history after the first check. It is added to the history
+     * before it leaves the engine, so one of the two checks sees it.
+     */
+    private void recheckArchives(final List<Reservation> booked) {
+        for (Reservation reservation : booked) {
+            final String roomNumber = reservation.getRoom().getRoomNumber();
+
+            if (isArchived(roomNumber, reservation.getCheckInDay(), reservation.getCheckOutDay())) {
+                final BookingEngine bookingEngine = engine;
+                for (Reservation claimed : booked) {
+                    bookingEngine.cancel(claimed);
+                }
+                throw new IllegalStateException("Room " + roomNumber + " is already booked for the selected period");
+            }
+        }
+    }
+
+    // the archives only hold stays ending by their horizon, so later periods never reach them
+    private boolean isArchived(final String roomNumber, final int checkInDay, final int checkOutDay) {
+        for (ReservationArchive archive : archives) {
+            if (checkInDay < archive.getHorizonDay() && archive.isBooked(roomNumber, checkInDay, checkOutDay)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Logs the stays just claimed in the engine, before anything else sees
+     * them. If a record cannot be written the claims are undone, and the
+     * records already written are followed by their cancellations.
+     */
+    private void logReserved(final List<Reservation> booked) {
+        int logged = 0;
+        try {
+            for (Reservation reservation : booked) {
+                mutationLog.reserved(reservation);
+                logged++;
+            }
+        } catch (RuntimeException e) {
+            for (int index = 0; index < logged; index++) {
+                try {
+                    mutationLog.cancelled(booked.get(index).getId());
+                } catch (RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+
+            final BookingEngine bookingEngine = engine;
+            for (Reservation claimed : booked) {
+                bookingEngine.cancel(claimed);
+            }
+            throw e;
+        }
+    }
+
+    private void indexReservation(final Reservation reservation) {
+        // a cancel of this reservation waits until it is fully indexed
+        synchronized (reservation) {
+            inventory.book(reservation.getRoom(), reservation.getCheckInDay(), reservation.getCheckOutDay());
+            indexBooking(reservation);
+        }
+    }
+
+    // adds a new, logged booking whose nights are already taken in the engine and the inventory to the lookups
+    private void indexBooking(final Reservation reservation) {
+        addToLookups(reservation);
+        popularityWindow.recordBooking(reservation.getRoom().getRoomNumber());
+    }
+
+    private void addToLookups(final Reservation reservation) {
+        bookingCounters.increment(reservation.getRoom().getRoomNumber());
+        reservations.computeIfAbsent(reservation.getCustomer().getEmail(), key -> new CustomerReservations())
+                .add(reservation);
+        reservationsByKey.put(ReservationKey.of(reservation), reservation);
+        synchronized (reservationsById) {
+            reservationsById.put(reservation.getId(), reservation);
+        }
+    }
+
+    /**
+     * حجز مؤقت لغرفة Holds a room for a stay for 15 minutes, see
+     * {@link #holdARoom(Customer, IRoom, Date, Date, long)}.
+     */
+    public ReservationHold holdARoom(final Customer customer, final IRoom room,
+            final Date checkInDate, final Date checkOutDate) {
+        return holdARoom(customer, room, checkInDate, checkOutDate, DEFAULT_HOLD_TTL_MILLIS);
+    }
+
+    /**
+     * حجز مؤقت لغرفة Holds a room for a stay until the hold is confirmed,
+     * released or expires. A held room is taken for bookings, other holds and
+     * searches, but the hold is not a reservation of the customer yet. Expiry
+     * is driven by a timing wheel, so live holds cost no thread or scan.
+     *
+     * @param customer العميل - The customer
+     * @param room الغرفة - The room
+     * @param checkInDate تاريخ تسجيل الدخول - Check-in date
+     * @param checkOutDate تاريخ المغادرة - Check-out date
+     * @param ttlMillis مدة الحجز المؤقت - How long the room is held, in milliseconds
+     * @return الحجز المؤقت - The hold
+     * @throws IllegalStateException if the room is already booked or held for the stay
+     */
+    public ReservationHold holdARoom(final Customer customer, final IRoom room,
+            final Date checkInDate, final Date checkOutDate, final long ttlMillis) {
+        if (customer == null) {
+            throw new NullPointerException("Customer cannot be null");
+        }
+        if (room == null) {
+            throw new NullPointerException("room cannot be null");
+        }
+        if (checkInDate == null || checkOutDate == null) {
+            throw new NullPointerException("dates cannot be null");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Hold time must be positive");
+        }
+
+        final int checkInDay = EpochDay.of(checkInDate);
+        final int checkOutDay = EpochDay.of(checkOutDate);
+
+        if (checkOutDay <= checkInDay) {
+            throw new IllegalArgumentException("Check-out date must be after check-in date");
+        }
+
+        checkArchives(room.getRoomNumber(), checkInDay, checkOutDay);
+        final Reservation reservation = engine.book(room.getRoomNumber(), checkInDay, checkOutDay,
+                () -> new Reservation(customer, room, checkInDay, checkOutDay));
+        recheckArchives(Collections.singletonList(reservation));
+        final PendingHold pending = new PendingHold(
+                new ReservationHold(reservation, System.currentTimeMillis() + ttlMillis));
+
+        // a release or confirm of this hold waits until it is fully indexed
+        synchronized (reservation) {
+            inventory.book(room, checkInDay, checkOutDay);
+            holds.put(reservation.getId(), pending);
+        }
+
+        startHoldExpiry();
+        pending.timeout = holdExpiries.schedule(pending.hold.getExpiresAtMillis(),
+                () -> expireHold(pending));
+        if (pending.timeout == null) {
+            expireHold(pending);
+        }
+
+        return pending.hold;
+    }
+
+    /**
+     * تأكيد الحجز المؤقت Turns a live hold into a reservation of the customer.
+     * If the reservation cannot be logged, the hold is released and the
+     * error rethrown.
+     *
+     * @param holdId رقم الحجز المؤقت - Hold id
+     * @return الحجز أو null إذا انتهى الحجز المؤقت أو تم إلغاؤه
+     */
+    public Reservation confirmHold(final long holdId) {
+        final PendingHold pending = holds.remove(holdId);
+
+        if (pending == null) {
+            return null;
+        }
+
+        cancelExpiry(pending);
+        final Reservation reservation = pending.hold.getReservation();
+        try {
+            mutationLog.reserved(reservation);
+        } catch (RuntimeException e) {
+            // the hold is already gone from the map; free its room rather than leave it taken
+            freeHold(pending.hold);
+            throw e;
+        }
+        synchronized (reservation) {
+            indexBooking(reservation);
+        }
 
         return reservation;
     }
 
+    /**
+     * إلغاء الحجز المؤقت Releases a live hold, freeing the room for the stay.
+     *
+     * @param holdId رقم الحجز المؤقت - Hold id
+     * @return true إذا تم الإلغاء، false إذا انتهى الحجز المؤقت أو تم تأكيده
+     */
+    public boolean releaseHold(final long holdId) {
+        final PendingHold pending = holds.remove(holdId);
+
+        if (pending == null) {
+            return false;
+        }
+
+        cancelExpiry(pending);
+        freeHold(pending.hold);
+        return true;
+    }
+
+    /**
+     * الحصول على حجز مؤقت Gets a live hold.
+     *
+     * @param holdId رقم الحجز المؤقت - Hold id
+     * @return الحجز المؤقت أو null إذا لم يعد قائماً
+     */
+    public ReservationHold getHold(final long holdId) {
+        final PendingHold pending = holds.get(holdId);
+
+        return pending == null ? null : pending.hold;
+    }
+
+    private void expireHold(final PendingHold pending) {
+        // a confirm or release that removed the hold first wins
+        if (holds.remove(pending.hold.getId(), pending)) {
+            freeHold(pending.hold);
+        }
+    }
+
+    private void cancelExpiry(final PendingHold pending) {
+        final TimingWheel.Timeout timeout = pending.timeout;
+
+        // not yet scheduled: the expiry will find the hold gone
+        if (timeout != null) {
+            holdExpiries.cancel(timeout);
+        }
+    }
+
+    private void freeHold(final ReservationHold hold) {
+        final Reservation reservation = hold.getReservation();
+        final String roomNumber = reservation.getRoom().getRoomNumber();
+        final BookingEngine bookingEngine = engine;
+
+        synchronized (reservation) {
+            bookingEngine.cancel(reservation);
+            inventory.release(roomNumber, reservation.getCheckInDay(), reservation.getCheckOutDay(),
+                    day -> bookingEngine.isBooked(roomNumber, day));
+        }
+        assignWaitlist(roomNumber, reservation.getCheckInDay(), reservation.getCheckOutDay());
+    }
+
+    private synchronized void startHoldExpiry() {
+        if (holdExpiryThread == null) {
+            holdExpiryThread = new Thread(this::expireHolds, "hold-expiry");
+            holdExpiryThread.setDaemon(true);
+            holdExpiryThread.start();
+        }
+    }
+
+    // sleeps while no hold is live, otherwise advances the wheel once per tick
+    private void expireHolds() {
+        while (true) {
+            try {
+                holdExpiries.awaitPending();
+                Thread.sleep(holdExpiries.tickMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            for (Runnable expiry : holdExpiries.advance()) {
+                // one failed expiry must not stop the thread that expires every other hold
+                try {
+                    expiry.run();
+                } catch (Throwable e) {
+                    System.err.println("Hold expiry failed: " + e);
+                }
+            }
+        }
+    }
+
     public Collection<IRoom> findRooms(final Date checkInDate, final Date checkOutDate) {
-        return findAvailableRooms(checkInDate, checkOutDate);
+        final int checkInDay = EpochDay.of(checkInDate);
+        final int checkOutDay = EpochDay.of(checkOutDate);
+
+        return withoutArchived(inventory.findAvailableRooms(checkInDay, checkOutDay), checkInDay, checkOutDay);
     }
 
     public Collection<IRoom> findAlternativeRooms(final Date checkInDate, final Date checkOutDate) {
-        return findAvailableRooms(addDefaultPlusDays(checkInDate), addDefaultPlusDays(checkOutDate));
+        final int checkInDay = EpochDay.of(checkInDate) + RECOMMENDED_ROOMS_DEFAULT_PLUS_DAYS;
+        final int checkOutDay = EpochDay.of(checkOutDate) + RECOMMENDED_ROOMS_DEFAULT_PLUS_DAYS;
+
+        return withoutArchived(inventory.findAvailableRooms(checkInDay, checkOutDay), checkInDay, checkOutDay);
     }
 
-    private Collection<IRoom> findAvailableRooms(final Date checkInDate, final Date checkOutDate) {
-        final Collection<Reservation> allReservations = getAllReservations();
-        final Collection<IRoom> notAvailableRooms = new LinkedList<>();
+    // the index does not hold archived stays, so periods before an archive's horizon are checked against both
+    private Collection<IRoom> withoutArchived(final Collection<IRoom> available, final int checkInDay,
+            final int checkOutDay) {
+        if (!startsBeforeHorizon(checkInDay)) {
+            return available;
+        }
 
-        for (Reservation reservation : allReservations) {
-            if (reservationOverlaps(reservation, checkInDate, checkOutDate)) {
-                notAvailableRooms.add(reservation.getRoom());
+        final List<IRoom> free = new ArrayList<>(available.size());
+        for (IRoom room : available) {
+            if (!isArchived(room.getRoomNumber(), checkInDay, checkOutDay)) {
+                free.add(room);
             }
         }
 
-        return rooms.values().stream().filter(room -> notAvailableRooms.stream()
-                .noneMatch(notAvailableRoom -> notAvailableRoom.equals(room)))
-                .collect(Collectors.toList());
+        return free;
     }
 
-    public Date addDefaultPlusDays(final Date date) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.add(Calendar.DATE, RECOMMENDED_ROOMS_DEFAULT_PLUS_DAYS);
+    private boolean startsBeforeHorizon(final int checkInDay) {
+        for (ReservationArchive archive : archives) {
+            if (checkInDay < archive.getHorizonDay()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public List<AlternativeDates> findAlternativeDates(final Date checkInDate, final Date checkOutDate) {
+        return findAlternativeDates(checkInDate, checkOutDate, ALTERNATIVE_DATES_MAX_OFFSET_DAYS);
+    }
+
+    /**
+     * Finds the rooms available when the stay is moved by 1 to maxOffsetDays
+     * days earlier or later. All offsets are evaluated in a single sweep over
+     * the availability index; offsets without free rooms are left out.
+     *
+     * @return the alternatives, closest to the requested dates first and later
+     * dates before earlier ones at the same distance
+     */
+    public List<AlternativeDates> findAlternativeDates(final Date checkInDate, final Date checkOutDate,
+            final int maxOffsetDays) {
+        if (checkInDate == null || checkOutDate == null || maxOffsetDays <= 0) {
+            return new LinkedList<>();
+        }
+
+        final int checkInDay = EpochDay.of(checkInDate);
+        final int checkOutDay = EpochDay.of(checkOutDate);
+
+        if (checkOutDay <= checkInDay) {
+            return new LinkedList<>();
+        }
+
+        final Map<Integer, List<IRoom>> roomsByOffset = inventory
+                .findAvailableRoomsByOffset(checkInDay, checkOutDay, maxOffsetDays);
+        final List<AlternativeDates> alternatives = new ArrayList<>(roomsByOffset.size());
+
+        for (Map.Entry<Integer, List<IRoom>> entry : roomsByOffset.entrySet()) {
+            final int offset = entry.getKey();
+            final Collection<IRoom> free = withoutArchived(entry.getValue(), checkInDay + offset,
+                    checkOutDay + offset);
+
+            if (!free.isEmpty()) {
+                alternatives.add(new AlternativeDates(offset, EpochDay.toDate(checkInDay + offset),
+                        EpochDay.toDate(checkOutDay + offset), new ArrayList<>(free)));
+            }
+        }
+
+        alternatives.sort(Comparator.<AlternativeDates>comparingInt(alternative -> Math.abs(alternative.getOffsetDays()))
+                .thenComparing(alternative -> alternative.getOffsetDays() < 0));
+
+        return alternatives;
+    }
+
+    /**
+     * Finds, for every room (optionally only rooms of one type), the first
+     * date on or after fromDate from which it is free for the given number of
+     * nights, using the gaps between the room's sorted bookings.
+     *
+     * @param roomType the type to search, or null for every room
+     * @param limit the maximum number of results
+     * @return the earliest free windows, earliest check-in first
+     */
+    public List<AvailableStay> findEarliestAvailability(final Date fromDate, final int nights,
+            final RoomType roomType, final int limit) {
+        if (fromDate == null || nights <= 0 || limit <= 0) {
+            return new LinkedList<>();
+        }
+
+        final int fromDay = EpochDay.of(fromDate);
+        final Comparator<Map.Entry<IRoom, Integer>> earliestFirst = Comparator
+                .<Map.Entry<IRoom, Integer>>comparingInt(Map.Entry::getValue)
+                .thenComparing(entry -> entry.getKey().getRoomNumber());
+        // max-heap of the best results so far, the worst one on top
+        final PriorityQueue<Map.Entry<IRoom, Integer>> best = new PriorityQueue<>(limit + 1,
+                earliestFirst.reversed());
+
+        for (IRoom room : rooms.values()) {
+            if (roomType != null && roomType != room.getRoomType()) {
+                continue;
+            }
+
+            int freeDay = engine.earliestFreeDay(room.getRoomNumber(), fromDay, nights);
+            while (isArchived(room.getRoomNumber(), freeDay, freeDay + nights)) {
+                freeDay = engine.earliestFreeDay(room.getRoomNumber(), freeDay + 1, nights);
+            }
+
+            if (best.size() < limit || freeDay < best.peek().getValue()) {
+                best.add(new AbstractMap.SimpleImmutableEntry<>(room, freeDay));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        final List<Map.Entry<IRoom, Integer>> ranked = new ArrayList<>(best);
+        ranked.sort(earliestFirst);
 
-        return calendar.getTime();
+        final List<AvailableStay> result = new ArrayList<>(ranked.size());
+        for (Map.Entry<IRoom, Integer> entry : ranked) {
+            result.add(new AvailableStay(entry.getKey(), EpochDay.toDate(entry.getValue()),
+                    EpochDay.toDate(entry.getValue() + nights)));
+        }
+
+        return result;
     }
 
-    private boolean reservationOverlaps(final Reservation reservation, final Date checkInDate,
-            final Date checkOutDate) {
-        return checkInDate.before(reservation.getCheckOutDate())
-                && checkOutDate.after(reservation.getCheckInDate());
+    public Date addDefaultPlusDays(final Date date) {
+        return EpochDay.plusDays(date, RECOMMENDED_ROOMS_DEFAULT_PLUS_DAYS);
     }
 
     public Collection<Reservation> getCustomersReservation(final Customer customer) {
-        return reservations.get(customer.getEmail());
+        return newestFirst(customer.getEmail());
+    }
+
+    // the customer's reservations and archived stays, newest first, or null if there are none
+    private List<Reservation> newestFirst(final String email) {
+        final CustomerReservations customerReservations = reservations.get(email);
+        final List<Reservation> archived = new ArrayList<>();
+        for (ReservationArchive archive : archives) {
+            archived.addAll(archive.findByCustomer(email));
+        }
+
+        if (archived.isEmpty()) {
+            return customerReservations == null ? null : customerReservations.newestFirst();
+        }
+
+        final List<Reservation> merged = archived;
+        if (customerReservations != null) {
+            merged.addAll(customerReservations.newestFirst());
+        }
+        merged.sort(CustomerReservations.NEWEST_FIRST);
+
+        return Collections.unmodifiableList(merged);
     }
 
     public void printAllReservation() {
-        final Collection<Reservation> reservations = getAllReservations();
+        boolean found = false;
 
-        if (reservations.isEmpty()) {
-            System.out.println("No reservations found.");
-        } else {
-            for (Reservation reservation : reservations) {
+        // prints from each customer's array as it is, without gathering every reservation first
+        for (CustomerReservations customerReservations : reservations.values()) {
+            for (Reservation reservation : customerReservations.newestFirst()) {
                 System.out.println(reservation + "\n");
+                found = true;
             }
         }
+
+        if (!found) {
+            System.out.println("No reservations found.");
+        }
     }
 
     private Collection<Reservation> getAllReservations() {
         final Collection<Reservation> allReservations = new LinkedList<>();
 
-        for (Collection<Reservation> reservations : reservations.values()) {
-            allReservations.addAll(reservations);
+        for (CustomerReservations customerReservations : reservations.values()) {
+            allReservations.addAll(customerReservations.newestFirst());
         }
 
         return allReservations;
@@ -153,64 +827,276 @@ public class ReservationService {
             return false;
         }
 
-        Collection<Reservation> customerReservations = getCustomersReservation(customer);
+        return cancelReservation(ReservationKey.of(customer.getEmail(), roomNumber, checkInDate));
+    }
 
-        if (customerReservations == null || customerReservations.isEmpty()) {
+    /**
+     * إلغاء حجز باستخدام مفتاحه Cancels the reservation identified by the key,
+     * removing it from the customer's reservations and every room index
+     *
+     * @param key مفتاح الحجز - Customer email, room number and check-in day
+     * @return true إذا تم الإلغاء بنجاح، false إذا لم يتم العثور على الحجز
+     */
+    public boolean cancelReservation(final ReservationKey key) {
+        if (key == null) {
             return false;
         }
 
-        // البحث عن الحجز المطلوب إلغاؤه
-        Reservation reservationToRemove = null;
-        for (Reservation reservation : customerReservations) {
-            if (reservation.getRoom().getRoomNumber().equals(roomNumber)
-                    && reservation.getCheckInDate().compareTo(checkInDate) == 0) {
-                reservationToRemove = reservation;
-                break;
+        // إيجاد الحجز مباشرة من الفهرس بدلاً من البحث في قائمة العميل
+        final Reservation reservation = reservationsByKey.get(key);
+        if (reservation != null) {
+            return removeReservation(reservation);
+        }
+
+        for (ReservationArchive archive : archives) {
+            if (removeArchivedReservation(archive, archive.find(key))) {
+                return true;
             }
         }
 
-        // إزالة الحجز إذا تم العثور عليه
-        if (reservationToRemove != null) {
-            customerReservations.remove(reservationToRemove);
-            return true;
+        return false;
+    }
+
+    /**
+     * إلغاء حجز باستخدام رقمه Cancels the reservation with the given id
+     *
+     * @param reservationId رقم الحجز - Reservation id
+     * @return true إذا تم الإلغاء بنجاح، false إذا لم يتم العثور على الحجز
+     */
+    public boolean cancelReservation(final long reservationId) {
+        final Reservation reservation;
+        synchronized (reservationsById) {
+            reservation = reservationsById.get(reservationId);
+        }
+        if (reservation != null) {
+            return removeReservation(reservation);
+        }
+
+        for (ReservationArchive archive : archives) {
+            if (removeArchivedReservation(archive, archive.find(reservationId))) {
+                return true;
+            }
         }
 
         return false;
     }
 
     /**
-     * إيجاد الغرفة الأكثر حجزاً Finds which room number has been booked the
-     * most times
+     * الحصول على حجز باستخدام رقمه Gets the reservation with the given id
      *
-     * @return رقم الغرفة الأكثر شعبية أو null إذا لم يكن هناك حجوزات
+     * @param reservationId رقم الحجز - Reservation id
+     * @return الحجز أو null إذا لم يتم العثور عليه
      */
-    public String findMostPopularRoom() {
-        final Collection<Reservation> allReservations = getAllReservations();
+    public Reservation getReservation(final long reservationId) {
+        final Reservation reservation;
+        synchronized (reservationsById) {
+            reservation = reservationsById.get(reservationId);
+        }
 
-        if (allReservations.isEmpty()) {
-            return null;
+        if (reservation != null) {
+            return reservation;
+        }
+
+        for (ReservationArchive archive : archives) {
+            final Reservation archived = archive.find(reservationId);
+            if (archived != null) {
+                return archived;
+            }
         }
 
-        Map<String, Integer> roomCounts = new HashMap<>();
+        return null;
+    }
 
-        // عد الحجوزات لكل غرفة
-        for (Reservation reservation : allReservations) {
-            String roomNumber = reservation.getRoom().getRoomNumber();
-            roomCounts.put(roomNumber, roomCounts.getOrDefault(roomNumber, 0) + 1);
+    private boolean removeReservation(final Reservation reservation) {
+        if (reservation == null) {
+            return false;
         }
 
-        // إيجاد الغرفة الأكثر حجزاً
-        String mostPopularRoom = null;
-        int maxCount = 0;
+        final String roomNumber = reservation.getRoom().getRoomNumber();
+        final BookingEngine bookingEngine = engine;
+
+        synchronized (reservation) {
+            // a concurrent cancel of the same reservation may have won the race
+            synchronized (reservationsById) {
+                if (reservationsById.get(reservation.getId()) != reservation) {
+                    return false;
+                }
+            }
 
-        for (Map.Entry<String, Integer> entry : roomCounts.entrySet()) {
-            if (entry.getValue() > maxCount) {
-                maxCount = entry.getValue();
-                mostPopularRoom = entry.getKey();
+            // logged before the engine frees the nights, so a booking that takes them is logged after it
+            mutationLog.cancelled(reservation.getId());
+            bookingEngine.cancel(reservation);
+            reservationsByKey.remove(ReservationKey.of(reservation), reservation);
+            synchronized (reservationsById) {
+                reservationsById.remove(reservation.getId());
             }
+            reservations.get(reservation.getCustomer().getEmail()).remove(reservation);
+            inventory.release(roomNumber, reservation.getCheckInDay(), reservation.getCheckOutDay(),
+                    day -> bookingEngine.isBooked(roomNumber, day));
+            bookingCounters.decrement(roomNumber);
         }
 
-        return mostPopularRoom;
+        assignWaitlist(roomNumber, reservation.getCheckInDay(), reservation.getCheckOutDay());
+        return true;
+    }
+
+    private boolean removeArchivedReservation(final ReservationArchive archive, final Reservation reservation) {
+        if (reservation == null) {
+            return false;
+        }
+
+        // cancels of archived stays take turns, so only one logs the stay, and logs it before it is dropped
+        synchronized (archive) {
+            if (archive.find(reservation.getId()) == null) {
+                return false;
+            }
+            mutationLog.cancelled(reservation.getId());
+            archive.cancel(reservation.getId());
+        }
+
+        final String roomNumber = reservation.getRoom().getRoomNumber();
+        bookingCounters.decrement(roomNumber);
+
+        assignWaitlist(roomNumber, reservation.getCheckInDay(), reservation.getCheckOutDay());
+        return true;
+    }
+
+    /**
+     * الانضمام إلى قائمة الانتظار Puts the customer on the waitlist of a room
+     * for a stay. As soon as a cancellation, released hold or expired hold
+     * frees the room for the whole stay, the room is booked for the customer
+     * and the entry leaves the waitlist; waiters are served in the order they
+     * joined. If the room is already free, it is booked right away.
+     *
+     * @param customer العميل - The customer
+     * @param room الغرفة - The room
+     * @param checkInDate تاريخ تسجيل الدخول - Check-in date
+     * @param checkOutDate تاريخ المغادرة - Check-out date
+     * @return طلب الانتظار - The entry, with its reservation once the room is booked
+     */
+    public WaitlistEntry joinWaitlist(final Customer customer, final IRoom room,
+            final Date checkInDate, final Date checkOutDate) {
+        if (customer == null) {
+            throw new NullPointerException("Customer cannot be null");
+        }
+        if (room == null) {
+            throw new NullPointerException("room cannot be null");
+        }
+        if (checkInDate == null || checkOutDate == null) {
+            throw new NullPointerException("dates cannot be null");
+        }
+
+        final int checkInDay = EpochDay.of(checkInDate);
+        final int checkOutDay = EpochDay.of(checkOutDate);
+
+        if (checkOutDay <= checkInDay) {
+            throw new IllegalArgumentException("Check-out date must be after check-in date");
+        }
+
+        final WaitlistEntry entry = new WaitlistEntry(customer, room, checkInDay, checkOutDay);
+        waitlist.add(entry);
+        // the stay may be free already, or have been freed while the entry was being added
+        assignWaitlist(room.getRoomNumber(), checkInDay, checkOutDay);
+
+        return entry;
+    }
+
+    /**
+     * مغادرة قائمة الانتظار Removes an entry from the waitlist
+     *
+     * @param entryId رقم طلب الانتظار - Waitlist entry id
+     * @return true إذا تمت الإزالة، false إذا لم يكن الطلب في قائمة الانتظار
+     */
+    public boolean leaveWaitlist(final long entryId) {
+        final WaitlistEntry entry = waitlist.get(entryId);
+
+        return entry != null && waitlist.remove(entry);
+    }
+
+    /**
+     * قائمة انتظار العميل Gets the entries the customer is still waiting on
+     *
+     * @param customer العميل - The customer
+     * @return طلبات الانتظار بترتيب الانضمام - Entries in the order they joined
+     */
+    public List<WaitlistEntry> getWaitlist(final Customer customer) {
+        if (customer == null) {
+            return new LinkedList<>();
+        }
+
+        return waitlist.entriesOf(customer.getEmail());
+    }
+
+    /**
+     * قائمة الانتظار الكاملة Gets every entry still waiting
+     *
+     * @return طلبات الانتظار حسب رقم الغرفة ثم ترتيب الانضمام
+     */
+    public List<WaitlistEntry> getWaitlist() {
+        return waitlist.entries();
+    }
+
+    /**
+     * Books the room for the waiters whose stay overlaps a freed range, in
+     * the order they joined, as long as their whole stay is free. A waiter is
+     * taken off the waitlist before its booking is tried, so a concurrent
+     * leave or assignment of the same entry cannot book it twice. A booking
+     * that fails for any reason puts the waiter back, and the failure never
+     * reaches the cancel or release that freed the room.
+     */
+    private void assignWaitlist(final String roomNumber, final int checkInDay, final int checkOutDay) {
+        for (WaitlistEntry entry : waitlist.findOverlapping(roomNumber, checkInDay, checkOutDay)) {
+            if (!waitlist.remove(entry)) {
+                continue;
+            }
+
+            try {
+                entry.setReservation(book(entry.getCustomer(), entry.getRoom(), entry.getCheckInDay(),
+                        entry.getCheckOutDay()));
+            } catch (IllegalStateException stillTaken) {
+                waitlist.add(entry);
+            } catch (RuntimeException e) {
+                // e.g. the booking could not be logged; the freeing change already happened, so it keeps waiting
+                waitlist.add(entry);
+                System.err.println("Could not book waitlist entry " + entry.getId() + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * إيجاد الغرفة الأكثر حجزاً Finds which room number has been booked the
+     * most times
+     *
+     * @return رقم الغرفة الأكثر شعبية أو null إذا لم يكن هناك حجوزات
+     */
+    public String findMostPopularRoom() {
+        // قراءة عداد واحد لكل غرفة بدلاً من إعادة عدّ كل الحجوزات
+        return bookingCounters.findMostBooked();
+    }
+
+    /**
+     * إيجاد أكثر K غرف حجزاً Finds the k room numbers with the most current
+     * reservations, most booked first
+     *
+     * @param k عدد الغرف - Number of rooms to return
+     * @return أرقام الغرف مرتبة حسب عدد الحجوزات
+     */
+    public List<String> findMostPopularRooms(final int k) {
+        return bookingCounters.findMostBooked(k);
+    }
+
+    /**
+     * إيجاد أكثر K غرف حجزاً خلال آخر أيام محددة Finds the k room numbers
+     * booked most often during the last windowDays days, today included.
+     * Bookings are counted when they are made, so cancelled bookings still
+     * count as demand.
+     *
+     * @param windowDays عدد الأيام - Days to look back, at most 90
+     * @param k عدد الغرف - Number of rooms to return
+     * @return أرقام الغرف مرتبة حسب عدد الحجوزات في الفترة
+     */
+    public List<String> findMostPopularRooms(final int windowDays, final int k) {
+        return popularityWindow.findMostBooked(windowDays, k);
     }
 
     /**
@@ -227,13 +1113,12 @@ public class ReservationService {
             return new LinkedList<>();
         }
 
-        // الحصول على كل الغرف المتاحة
-        Collection<IRoom> availableRooms = findAvailableRooms(checkInDate, checkOutDate);
+        // البحث في غرف هذا النوع فقط - only the partition of the requested type is searched
+        final int checkInDay = EpochDay.of(checkInDate);
+        final int checkOutDay = EpochDay.of(checkOutDate);
 
-        // تصفية حسب النوع
-        return availableRooms.stream()
-                .filter(room -> room.getRoomType().equals(roomType))
-                .collect(Collectors.toList());
+        return withoutArchived(inventory.findAvailableRooms(checkInDay, checkOutDay, roomType), checkInDay,
+                checkOutDay);
     }
 
     /**
@@ -248,31 +1133,78 @@ public class ReservationService {
             return new LinkedList<>();
         }
 
-        Collection<Reservation> customerReservations = getCustomersReservation(customer);
+        // الحجوزات مخزنة مرتبة مسبقاً، فلا حاجة للنسخ أو الترتيب - already stored newest first
+        final List<Reservation> history = newestFirst(customer.getEmail());
+
+        return history == null ? new LinkedList<>() : history;
+    }
 
-        if (customerReservations == null || customerReservations.isEmpty()) {
+    /**
+     * الحصول على صفحة من تاريخ حجوزات العميل Gets one page of the customer
+     * reservation history, newest first
+     *
+     * @param customer العميل - The customer
+     * @param offset عدد الحجوزات الأحدث التي يتم تخطيها - Newest entries to skip
+     * @param limit الحد الأقصى لعدد الحجوزات - Maximum entries to return
+     * @return صفحة من حجوزات العميل للقراءة فقط
+     */
+    public List<Reservation> getCustomerReservationHistory(final Customer customer, final int offset,
+            final int limit) {
+        if (customer == null) {
             return new LinkedList<>();
         }
 
-        // تحويل Collection إلى List للترتيب
-        List<Reservation> sortedReservations = new LinkedList<>(customerReservations);
+        if (archives.length == 0) {
+            final CustomerReservations customerReservations = reservations.get(customer.getEmail());
+
+            return customerReservations == null ? new LinkedList<>()
+                    : customerReservations.newestFirst(offset, limit);
+        }
 
-        // ترتيب من الأحدث للأقدم (حسب تاريخ تسجيل الدخول)
-        sortedReservations.sort((r1, r2) -> r2.getCheckInDate().compareTo(r1.getCheckInDate()));
+        final List<Reservation> history = newestFirst(customer.getEmail());
+        if (history == null) {
+            return new LinkedList<>();
+        }
 
-        return sortedReservations;
+        final int from = Math.min(Math.max(offset, 0), history.size());
+        return history.subList(from, Math.min(from + Math.max(limit, 0), history.size()));
     }
 
 // Add these methods to clear data
     public void clearAllRooms() {
-        if (rooms != null) {
-            rooms.clear();
-        }
+        rooms.clear();
+        inventory.clearRooms();
     }
 
     public void clearAllReservations() {
-        if (reservations != null) {
-            reservations.clear();
+        synchronized (this) {
+            archives = NO_ARCHIVES;
+            offHeapHistory = null;
+        }
+        waitlist.clear();
+        holdExpiries.clear();
+        holds.clear();
+        reservations.clear();
+        reservationsByKey.clear();
+        synchronized (reservationsById) {
+            reservationsById.clear();
+        }
+        engine.clear();
+        inventory.clearBookings();
+        bookingCounters.clear();
+        popularityWindow.clear();
+    }
+
+    /**
+     * A live hold and the timeout that expires it.
+     */
+    private static final class PendingHold {
+
+        private final ReservationHold hold;
+        private volatile TimingWheel.Timeout timeout;
+
+        private PendingHold(final ReservationHold hold) {
+            this.hold = hold;
         }
     }
 }
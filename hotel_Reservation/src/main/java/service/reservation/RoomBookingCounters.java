@@ -0,0 +1,100 @@
+package service.reservation;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of current reservations per room number.
+ *
+ * The counters are kept up to date by every booking and cancellation, so
+ * popularity queries read one primitive counter per room instead of
+ * re-counting all reservations. LongAdder keeps concurrent increments of the
+ * same room cheap.
+ *
+ * @author joseneto
+ *
+ */
+class RoomBookingCounters {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    void increment(final String roomNumber) {
+        counters.computeIfAbsent(roomNumber, key -> new LongAdder()).increment();
+    }
+
+    void add(final String roomNumber, final long count) {
+        counters.computeIfAbsent(roomNumber, key -> new LongAdder()).add(count);
+    }
+
+    void decrement(final String roomNumber) {
+        final LongAdder counter = counters.get(roomNumber);
+
+        if (counter != null) {
+            counter.decrement();
+        }
+    }
+
+    String findMostBooked() {
+        String mostBooked = null;
+        long maxCount = 0;
+
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            final long count = entry.getValue().sum();
+
+            if (count > maxCount) {
+                maxCount = count;
+                mostBooked = entry.getKey();
+            }
+        }
+
+        return mostBooked;
+    }
+
+    /**
+     * @return up to k room numbers with at least one reservation, most booked
+     * first and by room number on ties
+     */
+    List<String> findMostBooked(final int k) {
+        final List<String> result = new ArrayList<>();
+
+        if (k <= 0) {
+            return result;
+        }
+
+        final Comparator<Map.Entry<String, Long>> mostBookedFirst = Comparator
+                .<Map.Entry<String, Long>>comparingLong(Map.Entry::getValue).reversed()
+                .thenComparing(Map.Entry::getKey);
+        // min-heap of the k best rooms so far, the least booked one on top
+        final PriorityQueue<Map.Entry<String, Long>> best = new PriorityQueue<>(k + 1, mostBookedFirst.reversed());
+
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            final long count = entry.getValue().sum();
+
+            if (count > 0) {
+                best.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), count));
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+        }
+
+        final List<Map.Entry<String, Long>> ranked = new ArrayList<>(best);
+        ranked.sort(mostBookedFirst);
+
+        for (Map.Entry<String, Long> entry : ranked) {
+            result.add(entry.getKey());
+        }
+
+        return result;
+    }
+
+    void clear() {
+        counters.clear();
+    }
+}
@@ -0,0 +1,155 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The bookings of one room, sorted by check-in day, stored as parallel
+ * columns: the check-in and check-out days in primitive int arrays and the
+ * reservations beside them.
+ *
+ * The intervals of a room never overlap, so the only reservation that can
+ * conflict with a new stay is the one with the latest check-in before the new
+ * check-out. Conflict checks, isBooked and the walk over the gaps between
+ * bookings only read the day columns, a binary search and a linear pass over
+ * contiguous ints, without loading a reservation object; the reservation
+ * column is only read to return or remove a booking.
+ *
+ * Instances are immutable: a booking or cancellation builds a copy, which
+ * the engine publishes, so readers never lock.
+ *
+ * @author joseneto
+ *
+ */
+final class RoomBookings {
+
+    static final RoomBookings NONE = new RoomBookings(new int[0], new int[0], new Reservation[0]);
+
+    private final int[] checkInDays;
+    private final int[] checkOutDays;
+    private final Reservation[] reservations;
+
+    private RoomBookings(final int[] checkInDays, final int[] checkOutDays, final Reservation[] reservations) {
+        this.checkInDays = checkInDays;
+        this.checkOutDays = checkOutDays;
+        this.reservations = reservations;
+    }
+
+    int size() {
+        return reservations.length;
+    }
+
+    boolean isEmpty() {
+        return reservations.length == 0;
+    }
+
+    /**
+     * @return true if a booking overlaps [checkInDay, checkOutDay)
+     */
+    boolean hasConflict(final int checkInDay, final int checkOutDay) {
+        final int next = firstCheckInFrom(checkOutDay);
+
+        return next > 0 && checkOutDays[next - 1] > checkInDay;
+    }
+
+    boolean isBooked(final int day) {
+        return hasConflict(day, day + 1);
+    }
+
+    /**
+     * Walks the gaps between the bookings, starting at the given day, and
+     * returns the first day from which the room is free for the given number
+     * of nights.
+     */
+    int earliestFreeDay(final int fromDay, final int nights) {
+        int freeFromDay = fromDay;
+
+        for (int index = Math.max(firstCheckInFrom(fromDay) - 1, 0); index < checkInDays.length; index++) {
+            if (checkInDays[index] >= freeFromDay + nights) {
+                break;
+            }
+            freeFromDay = Math.max(freeFromDay, checkOutDays[index]);
+        }
+
+        return freeFromDay;
+    }
+
+    /**
+     * @return a copy with the reservation added; it must not overlap a booking
+     */
+    RoomBookings with(final Reservation reservation) {
+        final int index = firstCheckInFrom(reservation.getCheckInDay());
+        final int length = reservations.length;
+        final int[] updatedCheckIns = new int[length + 1];
+        final int[] updatedCheckOuts = new int[length + 1];
+        final Reservation[] updatedReservations = new Reservation[length + 1];
+
+        System.arraycopy(checkInDays, 0, updatedCheckIns, 0, index);
+        System.arraycopy(checkOutDays, 0, updatedCheckOuts, 0, index);
+        System.arraycopy(reservations, 0, updatedReservations, 0, index);
+        updatedCheckIns[index] = reservation.getCheckInDay();
+        updatedCheckOuts[index] = reservation.getCheckOutDay();
+        updatedReservations[index] = reservation;
+        System.arraycopy(checkInDays, index, updatedCheckIns, index + 1, length - index);
+        System.arraycopy(checkOutDays, index, updatedCheckOuts, index + 1, length - index);
+        System.arraycopy(reservations, index, updatedReservations, index + 1, length - index);
+
+        return new RoomBookings(updatedCheckIns, updatedCheckOuts, updatedReservations);
+    }
+
+    /**
+     * @return a copy without the reservation, or null if it is not booked here
+     */
+    RoomBookings without(final Reservation reservation) {
+        final int index = firstCheckInFrom(reservation.getCheckInDay());
+        final int length = reservations.length;
+
+        if (index == length || reservations[index] != reservation) {
+            return null;
+        }
+
+        final int[] updatedCheckIns = new int[length - 1];
+        final int[] updatedCheckOuts = new int[length - 1];
+        final Reservation[] updatedReservations = new Reservation[length - 1];
+
+        System.arraycopy(checkInDays, 0, updatedCheckIns, 0, index);
+        System.arraycopy(checkOutDays, 0, updatedCheckOuts, 0, index);
+        System.arraycopy(reservations, 0, updatedReservations, 0, index);
+        System.arraycopy(checkInDays, index + 1, updatedCheckIns, index, length - index - 1);
+        System.arraycopy(checkOutDays, index + 1, updatedCheckOuts, index, length - index - 1);
+        System.arraycopy(reservations, index + 1, updatedReservations, index, length - index - 1);
+
+        return new RoomBookings(updatedCheckIns, updatedCheckOuts, updatedReservations);
+    }
+
+    /**
+     * @return a read-only view of the reservations, by check-in day
+     */
+    List<Reservation> reservations() {
+        return Collections.unmodifiableList(Arrays.asList(reservations));
+    }
+
+    /**
+     * @return the index of the first booking checking in on or after the day,
+     * or the number of bookings if there is none
+     */
+    private int firstCheckInFrom(final int day) {
+        int low = 0;
+        int high = checkInDays.length;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (checkInDays[middle] < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+}
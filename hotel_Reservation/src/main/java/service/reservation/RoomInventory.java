@@ -0,0 +1,251 @@
+package service.reservation;
+
+import model.reservation.Reservation;
+import model.room.IRoom;
+import model.room.enums.RoomType;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Room inventory partitioned by {@link RoomType}.
+ *
+ * Each room type owns its own {@link AvailabilityIndex}, so a search for one
+ * type never touches the rooms or booked-day bitsets of another. Partitions
+ * are created for every constant of the enum, which means new room types are
+ * picked up without changes here. Rooms without a type live in a separate
+ * partition that is only visible to untyped searches.
+ *
+ * Changes to the indexes take the write lock of a {@link StampedLock}.
+ * Searches take no lock: they run under an optimistic stamp and only count
+ * if no change happened in between, so a search never returns a stay that is
+ * half booked. After a few failed attempts they fall back to the read lock.
+ *
+ * @author joseneto
+ *
+ */
+class RoomInventory {
+
+    private final Map<RoomType, AvailabilityIndex> partitions = new EnumMap<>(RoomType.class);
+    private final AvailabilityIndex untypedPartition = new AvailabilityIndex();
+    private static final int OPTIMISTIC_READ_ATTEMPTS = 3;
+
+    private final Map<String, AvailabilityIndex> partitionByRoom = new ConcurrentHashMap<>();
+    private final StampedLock lock = new StampedLock();
+
+    RoomInventory() {
+        for (RoomType roomType : RoomType.values()) {
+            partitions.put(roomType, new AvailabilityIndex());
+        }
+    }
+
+    /**
+     * Adds a room to the partition of its type. When a room number is added
+     * again with another type, its existing bookings move along with it.
+     * They are read under the write lock, so a booking of the room that is
+     * being indexed concurrently is either moved or indexed into the new
+     * partition.
+     */
+    void addRoom(final IRoom room, final Supplier<Collection<Reservation>> bookings) {
+        final long stamp = lock.writeLock();
+        try {
+            final AvailabilityIndex partition = partitionOf(room.getRoomType());
+            final AvailabilityIndex previous = partitionByRoom.put(room.getRoomNumber(), partition);
+
+            if (previous != null && previous != partition) {
+                previous.removeRoom(room.getRoomNumber());
+
+                for (Reservation reservation : bookings.get()) {
+                    previous.release(room.getRoomNumber(), reservation.getCheckInDay(), reservation.getCheckOutDay());
+                    partition.book(room.getRoomNumber(), reservation.getCheckInDay(), reservation.getCheckOutDay());
+                }
+            }
+
+            partition.addRoom(room);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void book(final IRoom room, final int checkInDay, final int checkOutDay) {
+        final long stamp = lock.writeLock();
+        try {
+            partitionByRoom.computeIfAbsent(room.getRoomNumber(), roomNumber -> partitionOf(room.getRoomType()))
+                    .book(room.getRoomNumber(), checkInDay, checkOutDay);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Marks the nights of a cancelled stay as free again, except the nights
+     * for which stillBooked says another booking of the room already took
+     * them. Bookings are not indexed under the room's lock, so a new booking
+     * of the same nights may have been indexed before this release.
+     */
+    void release(final String roomNumber, final int checkInDay, final int checkOutDay,
+            final IntPredicate stillBooked) {
+        final long stamp = lock.writeLock();
+        try {
+            final AvailabilityIndex partition = partitionByRoom.get(roomNumber);
+
+            if (partition != null) {
+                for (int day = checkInDay; day < checkOutDay; day++) {
+                    if (!stillBooked.test(day)) {
+                        partition.release(roomNumber, day, day + 1);
+                    }
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    Collection<IRoom> findAvailableRooms(final int checkInDay, final int checkOutDay) {
+        return read(() -> collectAvailableRooms(checkInDay, checkOutDay));
+    }
+
+    Collection<IRoom> findAvailableRooms(final int checkInDay, final int checkOutDay,
+            final RoomType roomType) {
+        return read(() -> collectAvailableRooms(checkInDay, checkOutDay, partitions.get(roomType)));
+    }
+
+    Map<Integer, List<IRoom>> findAvailableRoomsByOffset(final int checkInDay, final int checkOutDay,
+            final int maxOffsetDays) {
+        return read(() -> collectAvailableRoomsByOffset(checkInDay, checkOutDay, maxOffsetDays));
+    }
+
+    /**
+     * Checks a set of rooms against the index in one pass: the free rooms of
+     * each partition involved are computed once and every room is looked up
+     * in them.
+     *
+     * @return the first room that is not free for the whole stay, or null if
+     * all of them are
+     */
+    String findFirstUnavailable(final List<String> roomNumbers, final int checkInDay, final int checkOutDay) {
+        return read(() -> {
+            final Map<AvailabilityIndex, BitSet> availableByPartition = new HashMap<>();
+
+            for (String roomNumber : roomNumbers) {
+                final AvailabilityIndex partition = partitionByRoom.get(roomNumber);
+
+                if (partition == null || !partition.contains(roomNumber, availableByPartition
+                        .computeIfAbsent(partition, index -> index.findAvailableRoomIds(checkInDay, checkOutDay)))) {
+                    return roomNumber;
+                }
+            }
+
+            return null;
+        });
+    }
+
+    private Collection<IRoom> collectAvailableRooms(final int checkInDay, final int checkOutDay) {
+        final BitSet[] availableRoomIds = new BitSet[partitions.size() + 1];
+        int roomCount = 0;
+        int index = 0;
+
+        for (AvailabilityIndex partition : partitions.values()) {
+            availableRoomIds[index] = partition.findAvailableRoomIds(checkInDay, checkOutDay);
+            roomCount += availableRoomIds[index++].cardinality();
+        }
+        availableRoomIds[index] = untypedPartition.findAvailableRoomIds(checkInDay, checkOutDay);
+        roomCount += availableRoomIds[index].cardinality();
+
+        // sized up front so the result list never has to grow
+        final List<IRoom> result = new ArrayList<>(roomCount);
+        index = 0;
+
+        for (AvailabilityIndex partition : partitions.values()) {
+            partition.collectRooms(availableRoomIds[index++], result);
+        }
+        untypedPartition.collectRooms(availableRoomIds[index], result);
+
+        return result;
+    }
+
+    private static Collection<IRoom> collectAvailableRooms(final int checkInDay, final int checkOutDay,
+            final AvailabilityIndex partition) {
+        final BitSet availableRoomIds = partition.findAvailableRoomIds(checkInDay, checkOutDay);
+        final List<IRoom> result = new ArrayList<>(availableRoomIds.cardinality());
+        partition.collectRooms(availableRoomIds, result);
+
+        return result;
+    }
+
+    private Map<Integer, List<IRoom>> collectAvailableRoomsByOffset(final int checkInDay, final int checkOutDay,
+            final int maxOffsetDays) {
+        final Map<Integer, List<IRoom>> result = new HashMap<>();
+
+        for (AvailabilityIndex partition : partitions.values()) {
+            partition.collectAvailableRoomsByOffset(checkInDay, checkOutDay, maxOffsetDays, result);
+        }
+        untypedPartition.collectAvailableRoomsByOffset(checkInDay, checkOutDay, maxOffsetDays, result);
+
+        return result;
+    }
+
+    /**
+     * Runs a search without locking and returns its result if no change was
+     * made to the indexes meanwhile, retrying a few times before falling back
+     * to the read lock. Searches only read copy-on-write data, so a run that
+     * overlaps a change is discarded but can never fail.
+     */
+    private <T> T read(final Supplier<T> search) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READ_ATTEMPTS; attempt++) {
+            final long stamp = lock.tryOptimisticRead();
+
+            if (stamp != 0) {
+                final T result = search.get();
+
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            }
+        }
+
+        final long stamp = lock.readLock();
+        try {
+            return search.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    void clearRooms() {
+        final long stamp = lock.writeLock();
+        try {
+            for (AvailabilityIndex partition : partitions.values()) {
+                partition.clearRooms();
+            }
+            untypedPartition.clearRooms();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void clearBookings() {
+        final long stamp = lock.writeLock();
+        try {
+            for (AvailabilityIndex partition : partitions.values()) {
+                partition.clearBookings();
+            }
+            untypedPartition.clearBookings();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private AvailabilityIndex partitionOf(final RoomType roomType) {
+        return roomType == null ? untypedPartition : partitions.get(roomType);
+    }
+}
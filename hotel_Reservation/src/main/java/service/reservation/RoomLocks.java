@@ -0,0 +1,79 @@
+package service.reservation;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks keyed by room number.
+ *
+ * Every room number maps to one of a fixed number of locks, so changes to
+ * the same room are serialized while changes to rooms on other stripes run
+ * in parallel, without keeping a lock object per room.
+ *
+ * @author joseneto
+ *
+ */
+class RoomLocks {
+
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    RoomLocks() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            locks[stripe] = new ReentrantLock();
+        }
+    }
+
+    ReentrantLock lockFor(final String roomNumber) {
+        return locks[stripeOf(roomNumber)];
+    }
+
+    /**
+     * Acquires the stripes of the given rooms, each once and in stripe order,
+     * so two threads locking overlapping sets of rooms cannot deadlock.
+     *
+     * @return the acquired stripes, to be passed to {@link #unlockAll(BitSet)}
+     */
+    BitSet lockAll(final Collection<String> roomNumbers) {
+        final BitSet stripes = new BitSet(STRIPES);
+
+        for (String roomNumber : roomNumbers) {
+            stripes.set(stripeOf(roomNumber));
+        }
+        for (int stripe = stripes.nextSetBit(0); stripe >= 0; stripe = stripes.nextSetBit(stripe + 1)) {
+            locks[stripe].lock();
+        }
+
+        return stripes;
+    }
+
+    void unlockAll(final BitSet stripes) {
+        for (int stripe = stripes.previousSetBit(STRIPES - 1); stripe >= 0; stripe = stripes.previousSetBit(stripe - 1)) {
+            locks[stripe].unlock();
+        }
+    }
+
+    /**
+     * Acquires every stripe, always in the same order, for changes that touch
+     * all rooms at once.
+     */
+    void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    void unlockAll() {
+        for (int stripe = STRIPES - 1; stripe >= 0; stripe--) {
+            locks[stripe].unlock();
+        }
+    }
+
+    private static int stripeOf(final String roomNumber) {
+        final int hash = roomNumber.hashCode();
+
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
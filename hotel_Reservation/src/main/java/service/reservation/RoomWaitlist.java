@@ -0,0 +1,144 @@
+package service.reservation;
+
+import model.reservation.WaitlistEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Waitlist entries indexed by room and check-in day.
+ *
+ * Each room keeps its entries sorted by check-in day along with the longest
+ * stay among them, so the entries overlapping a freed range are found with
+ * one range lookup: an entry can only overlap [checkIn, checkOut) if it
+ * starts after checkIn minus the longest stay and before checkOut. Entries
+ * of other rooms and dates are never looked at.
+ *
+ * All methods are synchronized; waitlist changes are rare next to searches
+ * and bookings, which never touch this class.
+ *
+ * @author joseneto
+ *
+ */
+class RoomWaitlist {
+
+    private static final Comparator<WaitlistEntry> JOIN_ORDER = Comparator.comparingLong(WaitlistEntry::getId);
+
+    private final Map<String, RoomEntries> entriesByRoom = new HashMap<>();
+    private final Map<Long, WaitlistEntry> entriesById = new HashMap<>();
+
+    synchronized void add(final WaitlistEntry entry) {
+        entriesById.put(entry.getId(), entry);
+        entriesByRoom.computeIfAbsent(entry.getRoom().getRoomNumber(), roomNumber -> new RoomEntries()).add(entry);
+    }
+
+    /**
+     * @return false if the entry was not on the waitlist (anymore)
+     */
+    synchronized boolean remove(final WaitlistEntry entry) {
+        if (!entriesById.remove(entry.getId(), entry)) {
+            return false;
+        }
+
+        final String roomNumber = entry.getRoom().getRoomNumber();
+        final RoomEntries roomEntries = entriesByRoom.get(roomNumber);
+        roomEntries.remove(entry);
+        if (roomEntries.size == 0) {
+            entriesByRoom.remove(roomNumber);
+        }
+
+        return true;
+    }
+
+    synchronized WaitlistEntry get(final long entryId) {
+        return entriesById.get(entryId);
+    }
+
+    /**
+     * @return the entries of the room whose stay overlaps [checkInDay,
+     * checkOutDay), in the order they joined
+     */
+    synchronized List<WaitlistEntry> findOverlapping(final String roomNumber, final int checkInDay,
+            final int checkOutDay) {
+        final RoomEntries roomEntries = entriesByRoom.get(roomNumber);
+        final List<WaitlistEntry> overlapping = new ArrayList<>();
+
+        if (roomEntries == null) {
+            return overlapping;
+        }
+
+        for (List<WaitlistEntry> sameCheckIn : roomEntries.byCheckInDay
+                .subMap(checkInDay - roomEntries.longestStay, false, checkOutDay, false).values()) {
+            for (WaitlistEntry entry : sameCheckIn) {
+                if (entry.getCheckOutDay() > checkInDay) {
+                    overlapping.add(entry);
+                }
+            }
+        }
+        overlapping.sort(JOIN_ORDER);
+
+        return overlapping;
+    }
+
+    /**
+     * @return the entries of the customer, in the order they joined
+     */
+    synchronized List<WaitlistEntry> entriesOf(final String email) {
+        final List<WaitlistEntry> result = new ArrayList<>();
+
+        for (WaitlistEntry entry : entriesById.values()) {
+            if (entry.getCustomer().getEmail().equals(email)) {
+                result.add(entry);
+            }
+        }
+        result.sort(JOIN_ORDER);
+
+        return result;
+    }
+
+    /**
+     * @return every entry, by room number and then in the order they joined
+     */
+    synchronized List<WaitlistEntry> entries() {
+        final List<WaitlistEntry> result = new ArrayList<>(entriesById.values());
+        result.sort(Comparator.<WaitlistEntry, String>comparing(entry -> entry.getRoom().getRoomNumber())
+                .thenComparing(JOIN_ORDER));
+
+        return result;
+    }
+
+    synchronized void clear() {
+        entriesByRoom.clear();
+        entriesById.clear();
+    }
+
+    /**
+     * The entries of one room.
+     */
+    private static final class RoomEntries {
+
+        private final TreeMap<Integer, List<WaitlistEntry>> byCheckInDay = new TreeMap<>();
+        // only grows while the room has entries, which keeps lookups correct
+        private int longestStay;
+        private int size;
+
+        private void add(final WaitlistEntry entry) {
+            byCheckInDay.computeIfAbsent(entry.getCheckInDay(), day -> new ArrayList<>(1)).add(entry);
+            longestStay = Math.max(longestStay, entry.getCheckOutDay() - entry.getCheckInDay());
+            size++;
+        }
+
+        private void remove(final WaitlistEntry entry) {
+            final List<WaitlistEntry> sameCheckIn = byCheckInDay.get(entry.getCheckInDay());
+            sameCheckIn.remove(entry);
+            if (sameCheckIn.isEmpty()) {
+                byCheckInDay.remove(entry.getCheckInDay());
+            }
+            size--;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package service.reservation;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel for tasks that run at a point in time.
+ *
+ * The first wheel has one bucket per tick; every further wheel has buckets
+ * as wide as the whole wheel below it. A task goes into the lowest wheel
+ * whose span covers its deadline, so scheduling and cancelling are O(1)
+ * whatever the number of pending tasks. Advancing the clock empties one
+ * bucket per tick, and when a wheel wraps around, the next bucket of the
+ * wheel above is spread over the wheels below it.
+ *
+ * Tasks never run before their deadline and at most one tick after it, on
+ * the thread that calls {@link #advance()}. While nothing is scheduled the
+ * wheel skips straight to the current time instead of ticking through the
+ * idle period.
+ *
+ * @author joseneto
+ *
+ */
+class TimingWheel {
+
+    private final Clock clock;
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<Wheel> wheels = new ArrayList<>();
+    private long now;
+    private int pending;
+
+    TimingWheel(final Clock clock, final long tickMillis, final int wheelSize) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("Tick must be positive and wheels need at least two buckets");
+        }
+
+        this.clock = clock;
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.now = clock.millis();
+        wheels.add(new Wheel(tickMillis, wheelSize, Math.floorDiv(now, tickMillis)));
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @return the timeout to cancel the task with, or null if the deadline
+     * has already passed and the caller should run the task itself
+     */
+    synchronized Timeout schedule(final long deadlineMillis, final Runnable task) {
+        if (pending == 0) {
+            skipTo(clock.millis());
+        }
+        if (deadlineMillis <= now) {
+            return null;
+        }
+
+        final Timeout timeout = new Timeout(deadlineMillis, task);
+        add(timeout);
+        pending++;
+        if (pending == 1) {
+            notifyAll();
+        }
+
+        return timeout;
+    }
+
+    /**
+     * Cancels a scheduled task in O(1).
+     *
+     * @return true if the task was pending and will now not run
+     */
+    synchronized boolean cancel(final Timeout timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+
+        timeout.unlink();
+        pending--;
+        return true;
+    }
+
+    /**
+     * Moves the wheel to the current time of the clock and returns the tasks
+     * that became due, to be run by the caller outside of this wheel's lock.
+     */
+    synchronized List<Runnable> advance() {
+        final long nowMillis = clock.millis();
+        final List<Runnable> due = new ArrayList<>();
+
+        if (nowMillis <= now) {
+            return due;
+        }
+        if (pending == 0) {
+            skipTo(nowMillis);
+            return due;
+        }
+
+        final long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        final Wheel first = wheels.get(0);
+
+        while (first.currentSlot < targetTick) {
+            first.bucketOf(first.currentSlot).drainTo(due);
+            first.currentSlot++;
+            cascade(first.currentSlot);
+        }
+
+        now = nowMillis;
+        pending -= due.size();
+
+        return due;
+    }
+
+    synchronized int size() {
+        return pending;
+    }
+
+    /**
+     * Waits until at least one task is scheduled.
+     */
+    synchronized void awaitPending() throws InterruptedException {
+        while (pending == 0) {
+            wait();
+        }
+    }
+
+    synchronized void clear() {
+        for (Wheel wheel : wheels) {
+            for (Bucket bucket : wheel.buckets) {
+                bucket.drainTo(new ArrayList<Runnable>());
+            }
+        }
+        pending = 0;
+    }
+
+    long tickMillis() {
+        return tickMillis;
+    }
+
+    // only valid while no task is pending, as no bucket is emptied on the way
+    private void skipTo(final long nowMillis) {
+        if (nowMillis > now) {
+            for (Wheel wheel : wheels) {
+                wheel.currentSlot = Math.floorDiv(nowMillis, wheel.tickMillis);
+            }
+            now = nowMillis;
+        }
+    }
+
+    /**
+     * Updates the current slot of the upper wheels after the first one moved
+     * to firstSlot, then moves the tasks of their new current buckets down,
+     * highest wheel first.
+     */
+    private void cascade(final long firstSlot) {
+        int wrapped = 0;
+        long slot = firstSlot;
+
+        while (wrapped + 1 < wheels.size() && slot % wheelSize == 0) {
+            slot /= wheelSize;
+            wrapped++;
+            wheels.get(wrapped).currentSlot = slot;
+        }
+
+        for (int level = wrapped; level > 0; level--) {
+            final Wheel wheel = wheels.get(level);
+            final Bucket bucket = wheel.bucketOf(wheel.currentSlot);
+
+            for (Timeout timeout = bucket.first(); timeout != null; timeout = bucket.first()) {
+                timeout.unlink();
+                add(timeout);
+            }
+        }
+    }
+
+    private void add(final Timeout timeout) {
+        for (int level = 0; ; level++) {
+            if (level == wheels.size()) {
+                final Wheel below = wheels.get(level - 1);
+                final long tick = below.tickMillis * wheelSize;
+                wheels.add(new Wheel(tick, wheelSize, Math.floorDiv(below.currentSlot, wheelSize)));
+            }
+
+            final Wheel wheel = wheels.get(level);
+            final long slot = Math.floorDiv(timeout.deadlineMillis, wheel.tickMillis);
+
+            if (slot - wheel.currentSlot < wheelSize) {
+                wheel.bucketOf(slot).append(timeout);
+                return;
+            }
+        }
+    }
+
+    /**
+     * A scheduled task, linked into the bucket of its deadline.
+     */
+    static final class Timeout {
+
+        private final long deadlineMillis;
+        private final Runnable task;
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(final long deadlineMillis, final Runnable task) {
+            this.deadlineMillis = deadlineMillis;
+            this.task = task;
+        }
+
+        long deadlineMillis() {
+            return deadlineMillis;
+        }
+
+        private void unlink() {
+            if (previous == null) {
+                bucket.head = next;
+            } else {
+                previous.next = next;
+            }
+            if (next == null) {
+                bucket.tail = previous;
+            } else {
+                next.previous = previous;
+            }
+            bucket = null;
+            previous = null;
+            next = null;
+        }
+    }
+
+    private static final class Wheel {
+
+        private final long tickMillis;
+        private final Bucket[] buckets;
+        private long currentSlot;
+
+        private Wheel(final long tickMillis, final int wheelSize, final long currentSlot) {
+            this.tickMillis = tickMillis;
+            this.buckets = new Bucket[wheelSize];
+            this.currentSlot = currentSlot;
+
+            for (int index = 0; index < wheelSize; index++) {
+                buckets[index] = new Bucket();
+            }
+        }
+
+        private Bucket bucketOf(final long slot) {
+            return buckets[(int) Math.floorMod(slot, (long) buckets.length)];
+        }
+    }
+
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        private Timeout first() {
+            return head;
+        }
+
+        private void append(final Timeout timeout) {
+            timeout.bucket = this;
+            timeout.previous = tail;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void drainTo(final List<Runnable> due) {
+            for (Timeout timeout = head; timeout != null; timeout = head) {
+                timeout.unlink();
+                due.add(timeout.task);
+            }
+        }
+    }
+}
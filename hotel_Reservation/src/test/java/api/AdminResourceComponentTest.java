@@ -16,6 +16,7 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.*;
 
@@ -649,4 +650,25 @@ public class AdminResourceComponentTest {
         cal.set(Calendar.MILLISECOND, 0);
         return cal.getTime();
     }
-}
\ No newline at end of file
+
+    // ==================== TEST: async variants ====================
+    @Test
+    public void testAsync_AddRoomsThenQueryInParallel() {
+        List<IRoom> rooms = new ArrayList<>();
+        rooms.add(new Room(TEST_ROOM_NUMBER, TEST_ROOM_PRICE, RoomType.SINGLE));
+        rooms.add(new Room(TEST_ROOM_NUMBER_2, TEST_ROOM_PRICE_2, RoomType.DOUBLE));
+        customerService.addCustomer(TEST_EMAIL, TEST_FIRST_NAME, TEST_LAST_NAME);
+
+        adminResource.addRoomAsync(rooms).join();
+
+        CompletableFuture<Collection<IRoom>> allRooms = adminResource.getAllRoomsAsync();
+        CompletableFuture<Collection<Customer>> allCustomers = adminResource.getAllCustomersAsync();
+        CompletableFuture<Customer> customer = adminResource.getCustomerAsync(TEST_EMAIL);
+
+        assertEquals("Should have 2 rooms", 2, allRooms.join().size());
+        assertEquals("Should have 1 customer", 1, allCustomers.join().size());
+        assertEquals(TEST_EMAIL, customer.join().getEmail());
+        assertNull("No bookings yet", adminResource.findMostPopularRoomAsync().join());
+        assertTrue(adminResource.findMostPopularRoomsAsync(7, 3).join().isEmpty());
+    }
+}
@@ -881,4 +881,84 @@ public class HotelResourceComponentTest {
         cal.set(Calendar.MILLISECOND, 0);
         return cal.getTime();
     }
+
+    // ==================== TEST: async variants ====================
+    @Test
+    public void testAsync_FanOutExactAndAlternativeSearches() {
+        java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(2);
+        hotelResource.setAsyncExecutor(executor);
+        try {
+            IRoom room1 = new Room(TEST_ROOM_NUMBER, TEST_ROOM_PRICE, RoomType.SINGLE);
+            reservationService.addRoom(room1);
+            hotelResource.createACustomer(TEST_EMAIL, TEST_FIRST_NAME, TEST_LAST_NAME);
+
+            Date checkIn = createDate(2028, Calendar.APRIL, 1);
+            Date checkOut = createDate(2028, Calendar.APRIL, 3);
+            Reservation reservation = hotelResource.bookARoomAsync(TEST_EMAIL, room1, checkIn, checkOut).join();
+            assertNotNull("Async booking should complete with the reservation", reservation);
+
+            java.util.concurrent.CompletableFuture<Collection<IRoom>> exact = hotelResource.findARoomAsync(checkIn, checkOut);
+            java.util.concurrent.CompletableFuture<Collection<IRoom>> alternative = hotelResource.findAlternativeRoomsAsync(checkIn, checkOut);
+
+            assertTrue("Booked room should not be found for the exact dates", exact.join().isEmpty());
+            assertTrue("Booked room should be free a week later", alternative.join().contains(room1));
+            assertEquals(1, hotelResource.getCustomersReservationsAsync(TEST_EMAIL).join().size());
+            assertTrue(hotelResource.cancelReservationAsync(reservation.getId()).join());
+        } finally {
+            hotelResource.setAsyncExecutor(AsyncExecutors.defaultExecutor());
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsync_FailedBookingCompletesExceptionally() {
+        hotelResource.createACustomer(TEST_EMAIL, TEST_FIRST_NAME, TEST_LAST_NAME);
+        IRoom room1 = new Room(TEST_ROOM_NUMBER, TEST_ROOM_PRICE, RoomType.SINGLE);
+        reservationService.addRoom(room1);
+        Date checkIn = createDate(2028, Calendar.MAY, 1);
+        Date checkOut = createDate(2028, Calendar.MAY, 3);
+        hotelResource.bookARoom(TEST_EMAIL, room1, checkIn, checkOut);
+
+        try {
+            hotelResource.bookARoomAsync(TEST_EMAIL, room1, checkIn, checkOut).join();
+            fail("Double booking should fail the future");
+        } catch (java.util.concurrent.CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testAsync_VirtualThreadExecutorWhenAvailable() {
+        java.util.concurrent.ExecutorService virtualThreads = AsyncExecutors.newVirtualThreadPerTaskExecutor();
+        int feature = Integer.parseInt(System.getProperty("java.specification.version").replaceFirst("^1\\.", "").split("\\.")[0]);
+
+        assertEquals("Virtual threads exist from Java 21 on", feature >= 21, virtualThreads != null);
+        assertNotNull(AsyncExecutors.virtualThreadsOrDefault());
+        assertSame("The executor is created once", AsyncExecutors.virtualThreadsOrDefault(),
+                AsyncExecutors.virtualThreadsOrDefault());
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsync_BlockingExecutorUsesOwnDaemonThreads() {
+        java.util.concurrent.ExecutorService blocking = AsyncExecutors.newBlockingExecutor(2);
+        try {
+            hotelResource.setAsyncExecutor(blocking);
+            Thread thread = java.util.concurrent.CompletableFuture.supplyAsync(Thread::currentThread, blocking).join();
+
+            assertTrue(thread.getName().startsWith("hotel-async-"));
+            assertTrue("Pool threads must not keep the application alive", thread.isDaemon());
+            assertNull(hotelResource.getCustomerAsync("nobody@test.com").join());
+        } finally {
+            hotelResource.setAsyncExecutor(AsyncExecutors.defaultExecutor());
+            blocking.shutdown();
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testAsync_NullExecutorRejected() {
+        hotelResource.setAsyncExecutor(null);
+    }
 }
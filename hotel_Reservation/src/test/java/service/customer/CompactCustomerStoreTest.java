@@ -0,0 +1,106 @@
+package service.customer;
+
+import model.customer.Customer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author joseneto
+ */
+
+// UNIT TEST for the customers stored as rows of dictionary codes
+
+public class CompactCustomerStoreTest {
+
+    private static final Runnable NOTHING = () -> { };
+
+    // Case 1: one view per customer reads back every field, names are stored once, and non-ASCII text survives
+    @Test
+    public void testPut_ViewsReadRowsAndShareNames() {
+        final CompactCustomerStore store = new CompactCustomerStore();
+        store.put("ana@store.com", "Ana", "Silva", NOTHING);
+        store.put("ben@store.com", "Ben", "Silva", NOTHING);
+        store.put("zoe@store.com", "Zoë", null, NOTHING);
+        store.put("ana2@store.com", "Ana", "Ben", NOTHING);
+
+        final Customer ana = store.get("ana@store.com");
+        assertEquals("ana@store.com", ana.getEmail());
+        assertEquals("Ana", ana.getFirstName());
+        assertEquals("Silva", ana.getLastName());
+        assertSame(ana, store.get("ana@store.com"));
+        assertSame(ana, store.getAll().get(0));
+        assertEquals("First Name: Zoë Last Name: null Email: zoe@store.com", store.get("zoe@store.com").toString());
+        assertNull(store.get("nobody@store.com"));
+        // Ana, Silva, Ben, Zoë
+        assertEquals(4, store.nameCount());
+    }
+
+    // Case 2: replacing or removing a customer leaves views handed out before unchanged
+    @Test
+    public void testPutAndRemove_KeepEarlierViews() {
+        final CompactCustomerStore store = new CompactCustomerStore();
+        final List<String> actions = new ArrayList<>();
+        store.put("ana@store.com", "Ana", "Silva", () -> actions.add("added"));
+        final Customer before = store.get("ana@store.com");
+
+        store.put("ana@store.com", "Anna", "Souza", () -> actions.add("replaced"));
+        assertEquals("Ana", before.getFirstName());
+        assertEquals("Anna", store.get("ana@store.com").getFirstName());
+        assertEquals(1, store.getAll().size());
+
+        assertTrue(store.remove("ana@store.com", () -> actions.add("removed")));
+        assertFalse(store.remove("ana@store.com", () -> actions.add("removed twice")));
+        assertNull(store.get("ana@store.com"));
+        assertTrue(store.getAll().isEmpty());
+        assertEquals("Silva", before.getLastName());
+        assertEquals(Arrays.asList("added", "replaced", "removed"), actions);
+    }
+
+    // Case 3: many customers stay reachable as the arrays and tables grow
+    @Test
+    public void testGetAll_AfterGrowth() {
+        final CompactCustomerStore store = new CompactCustomerStore();
+        final int customers = 10_000;
+        for (int customer = 0; customer < customers; customer++) {
+            store.put("guest" + customer + "@store.com", "First" + customer % 50, "Last" + customer % 70, NOTHING);
+        }
+
+        for (int customer = 0; customer < customers; customer++) {
+            final Customer found = store.get("guest" + customer + "@store.com");
+            assertEquals("First" + customer % 50, found.getFirstName());
+            assertEquals("Last" + customer % 70, found.getLastName());
+        }
+        assertEquals(120, store.nameCount());
+
+        final List<Customer> all = store.getAll();
+        assertEquals(customers, all.size());
+        assertEquals("guest0@store.com", all.get(0).getEmail());
+        assertEquals("guest9999@store.com", all.get(customers - 1).getEmail());
+    }
+
+    // Case 4: re-registering or re-adding a removed email reuses its row
+    @Test
+    public void testPut_ReusesRowOfSameEmail() {
+        final CompactCustomerStore store = new CompactCustomerStore();
+        store.put("ana@store.com", "Ana", "Silva", NOTHING);
+        store.put("ben@store.com", "Ben", "Souza", NOTHING);
+
+        for (int round = 0; round < 100; round++) {
+            store.put("ana@store.com", "Ana" + round, "Silva", NOTHING);
+        }
+        assertTrue(store.remove("ana@store.com", NOTHING));
+        store.put("ana@store.com", "Anna", null, NOTHING);
+
+        assertEquals(2, store.rowCount());
+        assertEquals("Anna", store.get("ana@store.com").getFirstName());
+        assertNull(store.get("ana@store.com").getLastName());
+        assertEquals("Ben", store.get("ben@store.com").getFirstName());
+        assertEquals(2, store.getAll().size());
+    }
+}
@@ -0,0 +1,76 @@
+package service.customer;
+
+import model.customer.Customer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports the heap taken per customer: in a map of {@link Customer} objects
+ * with three Strings each, as CustomerService kept them before, against the
+ * rows of {@link CompactCustomerStore}, and against those rows once every
+ * customer was looked up and has its view. Names are drawn from a few
+ * hundred first names and a thousand last names, as in a real guest list.
+ *
+ * Not a unit test: run it with
+ * {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=service.customer.CustomerFootprintBenchmark}
+ * or straight from the IDE.
+ *
+ * @author joseneto
+ */
+public class CustomerFootprintBenchmark {
+
+    private static final int[] CUSTOMERS = { 100_000, 1_000_000 };
+    private static final int FIRST_NAMES = 300;
+    private static final int LAST_NAMES = 1_000;
+
+    public static void main(String[] args) {
+        for (int customers : CUSTOMERS) {
+            long baseline = usedHeap();
+            final Map<String, Customer> objects = new ConcurrentHashMap<>();
+            for (int customer = 0; customer < customers; customer++) {
+                final String email = email(customer);
+                objects.put(email, new Customer(firstName(customer), lastName(customer), email));
+            }
+            final long objectBytes = usedHeap() - baseline;
+            objects.clear();
+
+            baseline = usedHeap();
+            final CompactCustomerStore store = new CompactCustomerStore();
+            for (int customer = 0; customer < customers; customer++) {
+                store.put(email(customer), firstName(customer), lastName(customer), () -> { });
+            }
+            final long rowBytes = usedHeap() - baseline;
+            for (int customer = 0; customer < customers; customer++) {
+                store.get(email(customer));
+            }
+            final long viewBytes = usedHeap() - baseline;
+
+            System.out.printf("%9d customers, %d names   objects %4d B   rows %4d B   rows and views %4d B"
+                    + " per customer%n", customers, store.nameCount(), objectBytes / customers,
+                    rowBytes / customers, viewBytes / customers);
+        }
+    }
+
+    // a new String for every call, as when parsed from input
+    private static String email(final int customer) {
+        return "guest" + customer + "@example.com";
+    }
+
+    private static String firstName(final int customer) {
+        return "First" + (customer * 7919L % FIRST_NAMES);
+    }
+
+    private static String lastName(final int customer) {
+        return "Lastname" + (customer * 104729L % LAST_NAMES);
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int round = 0; round < 3; round++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,113 @@
+package service.persistence;
+
+import model.room.Room;
+import model.room.enums.RoomType;
+import service.customer.CustomerService;
+import service.reservation.ReservationService;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures startup from a snapshot as the history grows: with past stays
+ * left in the mapped snapshot, against loading every stay into the
+ * services. Rooms, customers and upcoming stays stay the same.
+ *
+ * Not a unit test: run it with
+ * {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=service.persistence.SnapshotStartupBenchmark}
+ * or straight from the IDE.
+ *
+ * @author joseneto
+ */
+public class SnapshotStartupBenchmark {
+
+    private static final int ROOMS = 2_000;
+    private static final int CUSTOMERS = 1_000;
+    private static final int HORIZON_DAY = 30_000;
+    private static final int[] PAST_STAYS_PER_ROOM = { 5, 50, 500 };
+
+    public static void main(String[] args) throws IOException {
+        final CustomerService customerService = CustomerService.getSingleton();
+        final ReservationService reservationService = ReservationService.getSingleton();
+
+        for (int pastStays : PAST_STAYS_PER_ROOM) {
+            final Path directory = Files.createTempDirectory("snapshot-benchmark");
+
+            try {
+                writeSnapshot(directory, pastStays);
+
+                // the first round warms up
+                for (int round = 0; round < 2; round++) {
+                    final long archived = startup(directory, customerService, reservationService, HORIZON_DAY);
+                    final long loaded = startup(directory, customerService, reservationService, Integer.MIN_VALUE);
+
+                    if (round == 1) {
+                        System.out.printf("%9d stays %8d KB   archived %6d ms   loaded %6d ms%n",
+                                ROOMS * (pastStays + 1), Files.size(snapshot(directory)) / 1024, archived, loaded);
+                    }
+                }
+            } finally {
+                delete(directory);
+            }
+        }
+    }
+
+    // one upcoming stay per room after the horizon, the rest before it
+    private static void writeSnapshot(final Path directory, final int pastStays) throws IOException {
+        final Snapshot state = new Snapshot();
+        long id = 0;
+
+        for (int customer = 0; customer < CUSTOMERS; customer++) {
+            state.customerAdded("guest" + customer + "@example.com", "Guest", "Number" + customer);
+        }
+        for (int room = 0; room < ROOMS; room++) {
+            final String roomNumber = "S" + room;
+            state.roomAdded(new Room(roomNumber, 100.0, RoomType.SINGLE));
+
+            for (int stay = 0; stay <= pastStays; stay++) {
+                final int checkInDay = HORIZON_DAY - 3 * (pastStays - stay) + (stay == pastStays ? 1 : 0);
+                id++;
+                state.reserved(id, "guest" + id % CUSTOMERS + "@example.com", roomNumber, checkInDay,
+                        checkInDay + 2);
+            }
+        }
+
+        state.writeTo(snapshot(directory));
+    }
+
+    private static long startup(final Path directory, final CustomerService customerService,
+            final ReservationService reservationService, final int horizonDay) throws IOException {
+        customerService.clearAllCustomers();
+        reservationService.clearAllRooms();
+        reservationService.clearAllReservations();
+        System.gc();
+
+        final long start = System.nanoTime();
+        try (WriteAheadLog log = WriteAheadLog.open(directory, FsyncPolicy.OS_MANAGED, 0)) {
+            log.replay(customerService, reservationService, horizonDay);
+        }
+        final long millis = (System.nanoTime() - start) / 1_000_000;
+
+        customerService.clearAllCustomers();
+        reservationService.clearAllRooms();
+        reservationService.clearAllReservations();
+
+        return millis;
+    }
+
+    private static Path snapshot(final Path directory) {
+        return directory.resolve(String.format("snapshot-%016d.snap", 1));
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
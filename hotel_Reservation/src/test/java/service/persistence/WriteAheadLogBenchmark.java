@@ -0,0 +1,111 @@
+package service.persistence;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+import service.customer.CustomerService;
+import service.reservation.ReservationService;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+/**
+ * Measures booking and cancelling throughput with the write-ahead log
+ * attached, for each {@link FsyncPolicy}, against no log at all.
+ *
+ * Not a unit test: run it with
+ * {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=service.persistence.WriteAheadLogBenchmark}
+ * or straight from the IDE.
+ *
+ * @author joseneto
+ */
+public class WriteAheadLogBenchmark {
+
+    private static final int ROOMS = 100;
+    private static final long WARMUP_MILLIS = 1_000;
+    private static final long MEASURED_MILLIS = 2_000;
+    private static final long GROUP_COMMIT_MILLIS = 10;
+    private static final Date CHECK_IN = new Date(0);
+    private static final Date CHECK_OUT = new Date(3 * 24 * 60 * 60 * 1000L);
+
+    public static void main(String[] args) throws IOException {
+        final CustomerService customerService = CustomerService.getSingleton();
+        final ReservationService reservationService = ReservationService.getSingleton();
+        final Path directory = Files.createTempDirectory("wal-benchmark");
+
+        reservationService.clearAllRooms();
+        reservationService.clearAllReservations();
+        final IRoom[] rooms = new IRoom[ROOMS];
+        for (int i = 0; i < ROOMS; i++) {
+            rooms[i] = new Room("L" + i, 100.0, RoomType.SINGLE);
+            reservationService.addRoom(rooms[i]);
+        }
+        final Customer customer = new Customer("Bench", "Mark", "bench@example.com");
+
+        System.out.printf("%-12s %10.0f changes/s%n", "no log",
+                measure(reservationService, customer, rooms) * 1000.0 / MEASURED_MILLIS);
+
+        for (FsyncPolicy fsyncPolicy : FsyncPolicy.values()) {
+            final Path path = directory.resolve(fsyncPolicy.name());
+
+            try (WriteAheadLog log = WriteAheadLog.open(path, fsyncPolicy, GROUP_COMMIT_MILLIS)) {
+                reservationService.setMutationLog(log);
+                final long changes = measure(reservationService, customer, rooms);
+
+                System.out.printf("%-12s %10.0f changes/s %8d KB logged%n", fsyncPolicy,
+                        changes * 1000.0 / MEASURED_MILLIS, size(path) / 1024);
+            } finally {
+                reservationService.setMutationLog(MutationLog.NONE);
+                delete(path);
+            }
+        }
+        Files.delete(directory);
+        customerService.clearAllCustomers();
+    }
+
+    // books and cancels a stay in turn, warming up first; returns the measured number of changes
+    private static long measure(final ReservationService service, final Customer customer, final IRoom[] rooms) {
+        run(service, customer, rooms, WARMUP_MILLIS);
+        return run(service, customer, rooms, MEASURED_MILLIS);
+    }
+
+    private static long run(final ReservationService service, final Customer customer, final IRoom[] rooms,
+            final long millis) {
+        final long end = System.currentTimeMillis() + millis;
+        long changes = 0;
+
+        while (System.currentTimeMillis() < end) {
+            final Reservation reservation = service.reserveARoom(customer, rooms[(int) (changes % ROOMS)],
+                    CHECK_IN, CHECK_OUT);
+            service.cancelReservation(reservation.getId());
+            changes += 2;
+        }
+
+        return changes;
+    }
+
+    private static long size(final Path directory) throws IOException {
+        long size = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                size += Files.size(file);
+            }
+        }
+        return size;
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
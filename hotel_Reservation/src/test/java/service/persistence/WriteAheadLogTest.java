@@ -0,0 +1,672 @@
+package service.persistence;
+
+import model.customer.Customer;
+import model.reservation.EpochDay;
+import model.reservation.Reservation;
+import model.reservation.ReservationHold;
+import model.room.FreeRoom;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import service.customer.CustomerService;
+import service.reservation.ReservationService;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author joseneto
+ */
+
+// COMPONENT TEST for the write-ahead log, its checkpoints and its replay into the services
+
+public class WriteAheadLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CustomerService customerService;
+    private ReservationService reservationService;
+    private Path logDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        customerService = CustomerService.getSingleton();
+        reservationService = ReservationService.getSingleton();
+        clearServices();
+        logDirectory = folder.getRoot().toPath().resolve("wal");
+    }
+
+    @After
+    public void tearDown() {
+        clearServices();
+    }
+
+    // Case 1: customers, rooms, bookings and cancellations survive a restart, with their ids
+    @Test
+    public void testReplay_RebuildsServicesInOrder() throws IOException {
+        final Date checkIn = createDate(2030, Calendar.JANUARY, 10);
+        final Date checkOut = createDate(2030, Calendar.JANUARY, 12);
+        final long keptId;
+        final long cancelledId;
+
+        final WriteAheadLog attachedLog = openAttached(FsyncPolicy.EVERY_WRITE);
+        try {
+            customerService.addCustomer("wal@test.com", "Wal", "Test");
+            customerService.addCustomer("gone@test.com", "Gone", "Test");
+            customerService.removeCustomer("gone@test.com");
+            reservationService.addRoom(new Room("W1", 120.0, RoomType.DOUBLE));
+            reservationService.addRoom(new FreeRoom("W2", RoomType.SINGLE));
+
+            final Customer customer = customerService.getCustomer("wal@test.com");
+            keptId = reservationService.reserveARoom(customer, reservationService.getARoom("W1"),
+                    checkIn, checkOut).getId();
+            cancelledId = reservationService.reserveARoom(customer, reservationService.getARoom("W2"),
+                    checkIn, checkOut).getId();
+            assertTrue(reservationService.cancelReservation(cancelledId));
+        } finally {
+            attachedLog.close();
+        }
+
+        clearServices();
+        try (WriteAheadLog log = WriteAheadLog.open(logDirectory, FsyncPolicy.EVERY_WRITE, 0)) {
+            assertEquals(8, log.replay(customerService, reservationService));
+        }
+
+        assertNull(customerService.getCustomer("gone@test.com"));
+        assertEquals("Wal", customerService.getCustomer("wal@test.com").getFirstName());
+        assertTrue(reservationService.getARoom("W2") instanceof FreeRoom);
+        assertEquals(120.0, reservationService.getARoom("W1").getRoomPrice(), 0.0);
+
+        final Reservation kept = reservationService.getReservation(keptId);
+        assertNotNull(kept);
+        assertEquals("W1", kept.getRoom().getRoomNumber());
+        assertNull(reservationService.getReservation(cancelledId));
+        assertEquals(1, reservationService.findRooms(checkIn, checkOut).size());
+
+        // new reservations never reuse a replayed id
+        assertTrue(reservationService.reserveARoom(customerService.getCustomer("wal@test.com"),
+                reservationService.getARoom("W2"), checkIn, checkOut).getId() > keptId);
+    }
+
+    // Case 2: a torn record at the end is cut off and appending continues after the last whole record
+    @Test
+    public void testOpen_TruncatesTornTail() throws IOException {
+        final WriteAheadLog tornLog = openAttached(FsyncPolicy.OS_MANAGED);
+        try {
+            customerService.addCustomer("first@test.com", "First", "Test");
+            customerService.addCustomer("second@test.com", "Second", "Test");
+        } finally {
+            tornLog.close();
+        }
+        final Path segment = files("log-*.wal").get(0);
+        final long size = Files.size(segment);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(size - 3);
+        }
+
+        clearServices();
+        final WriteAheadLog reopenedLog = openAttached(FsyncPolicy.OS_MANAGED);
+        try {
+            customerService.addCustomer("third@test.com", "Third", "Test");
+        } finally {
+            reopenedLog.close();
+        }
+
+        clearServices();
+        try (WriteAheadLog log = WriteAheadLog.open(logDirectory, FsyncPolicy.OS_MANAGED, 0)) {
+            assertEquals(2, log.replay(customerService, reservationService));
+        }
+        assertNotNull(customerService.getCustomer("first@test.com"));
+        assertNull(customerService.getCustomer("second@test.com"));
+        assertNotNull(customerService.getCustomer("third@test.com"));
+    }
+
+    // Case 3: with group commit every record is still in the log once it is closed
+    @Test
+    public void testGroupCommit_RecordsAllWrites() throws IOException {
+        final WriteAheadLog attachedLog = openAttached(FsyncPolicy.GROUP_COMMIT);
+        try {
+            for (int i = 0; i < 500; i++) {
+                customerService.addCustomer("group" + i + "@test.com", "Group", "Test");
+            }
+        } finally {
+            attachedLog.close();
+        }
+
+        clearServices();
+        try (WriteAheadLog log = WriteAheadLog.open(logDirectory, FsyncPolicy.GROUP_COMMIT, 5)) {
+            assertEquals(500, log.replay(customerService, reservationService));
+        }
+        assertEquals(500, customerService.getAllCustomers().size());
+    }
+
+    // Case 4: a file that is not a log is rejected
+    @Test(expected = IOException.class)
+    public void testOpen_RejectsForeignFile() throws IOException {
+        Files.createDirectories(logDirectory);
+        Files.write(logDirectory.resolve("log-0000000000000000.wal"), "not a log".getBytes("UTF-8"));
+
+        WriteAheadLog.open(logDirectory, FsyncPolicy.OS_MANAGED, 0);
+    }
+
+    // Case 5: a checkpoint folds the churn into one snapshot, and changes after it are replayed on top
+    @Test
+    public void testCheckpoint_CompactsLogIntoSnapshot() throws IOException {
+        final Date checkIn = createDate(2030, Calendar.MARCH, 1);
+        final Date checkOut = createDate(2030, Calendar.MARCH, 3);
+        final long keptId;
+        final long laterId;
+
+        try (WriteAheadLog log = openAttached(FsyncPolicy.OS_MANAGED)) {
+            customerService.addCustomer("churn@test.com", "Churn", "Test");
+            customerService.addCustomer("left@test.com", "Left", "Test");
+            reservationService.addRoom(new Room("C1", 90.0, RoomType.SINGLE));
+            reservationService.addRoom(new Room("C2", 90.0, RoomType.DOUBLE));
+            final Customer customer = customerService.getCustomer("churn@test.com");
+            final IRoom room = reservationService.getARoom("C1");
+
+            for (int i = 0; i < 1_000; i++) {
+                reservationService.cancelReservation(
+                        reservationService.reserveARoom(customer, room, checkIn, checkOut).getId());
+            }
+            keptId = reservationService.reserveARoom(customerService.getCustomer("left@test.com"), room,
+                    checkIn, checkOut).getId();
+            // the customer is gone but their reservation stays
+            customerService.removeCustomer("left@test.com");
+
+            assertEquals(1, log.checkpoint());
+            assertEquals(-1, log.checkpoint());
+            assertEquals(1, files("snapshot-*.snap").size());
+            assertEquals(1, files("log-*.wal").size());
+
+            laterId = reservationService.reserveARoom(customer, reservationService.getARoom("C2"),
+                    checkIn, checkOut).getId();
+        }
+
+        clearServices();
+        try (WriteAheadLog log = WriteAheadLog.open(logDirectory, FsyncPolicy.OS_MANAGED, 0)) {
+            // snapshot: 2 customers, 2 rooms, 1 reservation, 1 removal; log tail: 1 reservation
+            assertEquals(7, log.replay(customerService, reservationService));
+        }
+
+        assertNull(customerService.getCustomer("left@test.com"));
+        assertEquals("left@test.com", reservationService.getReservation(keptId).getCustomer().getEmail());
+        assertEquals("C2", reservationService.getReservation(laterId).getRoom().getRoomNumber());
+        assertTrue(reservationService.findRooms(checkIn, checkOut).isEmpty());
+    }
+
+    // Case 6: background checkpoints run while bookings go on, and no change is lost
+    @Test
+    public void testStartCheckpoints_KeepsEveryChange() throws Exception {
+        final Date checkIn = createDate(2030, Calendar.APRIL, 1);
+        final Date checkOut = createDate(2030, Calendar.APRIL, 2);
+        final int rooms = 200;
+
+        try (WriteAheadLog log = openAttached(FsyncPolicy.GROUP_COMMIT)) {
+            customerService.addCustomer("bg@test.com", "Background", "Test");
+            final Customer customer = customerService.getCustomer("bg@test.com");
+            log.startCheckpoints(1, 0);
+
+            for (int i = 0; i < rooms; i++) {
+                final IRoom room = new Room("B" + i, 80.0, RoomType.SINGLE);
+                reservationService.addRoom(room);
+                final Reservation cancelled = reservationService.reserveARoom(customer, room, checkIn, checkOut);
+                reservationService.reserveARoom(customer, room, createDate(2030, Calendar.APRIL, 5),
+                        createDate(2030, Calendar.APRIL, 6));
+                reservationService.cancelReservation(cancelled.getId());
+                if (i % 50 == 0) {
+                    Thread.sleep(5);
+                }
+            }
+        }
+
+        clearServices();
+        try (WriteAheadLog log = WriteAheadLog.open(logDirectory, FsyncPolicy.OS_MANAGED, 0)) {
+            log.replay(customerService, reservationService);
+        }
+
+        assertEquals(rooms, reservationService.getAllRooms().size());
+        assertEquals(rooms, reservationService.getCustomersReservation(customerService.getCustomer("bg@test.com"))
+                .size());
+        assertEquals(rooms, reservationService.findRooms(checkIn, checkOut).size());
+    }
+
+    // Case 7: stays that ended by the horizon stay in the mapped snapshot and are read when looked up
+    @Test
+    public void testReplay_ArchivesPastStays() throws IOException {
+        final int horizonDay = EpochDay.of(createDate(2030, Calendar.JUNE, 1));
+        final Date pastIn = createDate(2030, Calendar.JANUARY, 10);
+        final Date pastOut = createDate(2030, Calendar.JANUARY, 12);
+        final long olderId;
+        final long pastId;
+        final long laterId;
+
+        try (WriteAheadLog log = openAttached(FsyncPolicy.OS_MANAGED)) {
+            customerService.addCustomer("archive@test.com", "Archive", "Test");
+            reservationService.addRoom(new Room("A1", 100.0, RoomType.SINGLE));
+            reservationService.addRoom(new FreeRoom("A2", RoomType.DOUBLE));
+            final Customer customer = customerService.getCustomer("archive@test.com");
+            final IRoom room = reservationService.getARoom("A1");
+
+            olderId = reservationService.reserveARoom(customer, room, createDate(2030, Calendar.JANUARY, 1),
+                    createDate(2030, Calendar.JANUARY, 3)).getId();
+            pastId = reservationService.reserveARoom(customer, room, pastIn, pastOut).getId();
+            laterId = reservationService.reserveARoom(customer, room, createDate(2030, Calendar.AUGUST, 1),
+                    createDate(2030, Calendar.AUGUST, 5)).getId();
+            assertEquals(3, log.checkpoint());
+        }
+
+        clearServices();
+        try (WriteAheadLog log = WriteAheadLog.open(logDirectory, FsyncPolicy.OS_MANAGED, 0)) {
+            // 1 customer, 2 rooms and the one stay after the horizon
+            assertEquals(4, log.replay(customerService, reservationService, horizonDay));
+            customerService.setMutationLog(log);
+            reservationService.setMutationLog(log);
+            final Customer customer = customerService.getCustomer("archive@test.com");
+            final IRoom room = reservationService.getARoom("A1");
+
+            final Reservation past = reservationService.getReservation(pastId);
+            assertEquals(EpochDay.of(pastIn), past.getCheckInDay());
+            assertSame(customer, past.getCustomer());
+            assertSame(past, reservationService.getReservation(pastId));
+
+            final List<Reservation> history = reservationService.getCustomerReservationHistory(customer);
+            assertEquals(3, history.size());
+            assertEquals(laterId, history.get(0).getId());
+            assertSame(past, history.get(1));
+            assertEquals(olderId, history.get(2).getId());
+            assertEquals(olderId, reservationService.getCustomerReservationHistory(customer, 2, 5).get(0).getId());
+            assertEquals("A1", reservationService.findMostPopularRoom());
+
+            // archived nights are still taken
+            try {
+                reservationService.reserveARoom(customer, room, createDate(2030, Calendar.JANUARY, 11),
+                        createDate(2030, Calendar.JANUARY, 13));
+                fail("Archived stay was double booked");
+            } catch (IllegalStateException expected) {
+            }
+            assertEquals(1, reservationService.findRooms(pastIn, pastOut).size());
+
+            assertTrue(reservationService.cancelReservation(pastId));
+            assertFalse(reservationService.cancelReservation(pastId));
+            assertNull(reservationService.getReservation(pastId));
+            reservationService.reserveARoom(customer, room, createDate(2030, Calendar.JANUARY, 11),
+                    createDate(2030, Calendar.JANUARY, 13));
+        }
+
+        clearServices();
+        try (WriteAheadLog log = WriteAheadLog.open(logDirectory, FsyncPolicy.OS_MANAGED, 0)) {
+            log.replay(customerService, reservationService, horizonDay);
+        }
+
+        // the cancellation was logged after the snapshot and is applied to the archive
+        assertNull(reservationService.getReservation(pastId));
+        assertNotNull(reservationService.getReservation(olderId));
+        assertEquals(3, reservationService.getCustomersReservation(customerService.getCustomer("archive@test.com"))
+                .size());
+    }
+
+    // Case 8: a cancel racing with a booking of the same nights is logged first, so the log replays
+    @Test
+    public void testReplay_CancelRacingRebook() throws Exception {
+        final Date checkIn = createDate(2030, Calendar.SEPTEMBER, 1);
+        final Date checkOut = createDate(2030, Calendar.SEPTEMBER, 3);
+        final int rounds = 200;
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        Reservation current;
+
+        final WriteAheadLog log = openAttached(FsyncPolicy.OS_MANAGED);
+        try {
+            customerService.addCustomer("first@race.com", "First", "Race");
+            customerService.addCustomer("second@race.com", "Second", "Race");
+            reservationService.addRoom(new Room("R1", 90.0, RoomType.SINGLE));
+            final IRoom room = reservationService.getARoom("R1");
+            current = reservationService.reserveARoom(customerService.getCustomer("first@race.com"), room,
+                    checkIn, checkOut);
+
+            for (int round = 0; round < rounds; round++) {
+                final Reservation booked = current;
+                final Customer next = customerService.getCustomer(round % 2 == 0 ? "second@race.com"
+                        : "first@race.com");
+                final CyclicBarrier start = new CyclicBarrier(2);
+
+                final Future<Boolean> cancel = pool.submit(() -> {
+                    start.await();
+                    return reservationService.cancelReservation(booked.getId());
+                });
+                final Future<Reservation> rebook = pool.submit(() -> {
+                    start.await();
+                    while (true) {
+                        try {
+                            return reservationService.reserveARoom(next, room, checkIn, checkOut);
+                        } catch (IllegalStateException stillTaken) {
+                            Thread.yield();
+                        }
+                    }
+                });
+
+                assertTrue(cancel.get());
+                current = rebook.get();
+            }
+        } finally {
+            pool.shutdown();
+            log.close();
+        }
+
+        clearServices();
+        try (WriteAheadLog replayed = WriteAheadLog.open(logDirectory, FsyncPolicy.OS_MANAGED, 0)) {
+            // 2 customers, 1 room, the first booking and a cancel and a booking per round
+            assertEquals(4 + 2 * rounds, replayed.replay(customerService, reservationService));
+        }
+        assertEquals(current.getId(), reservationService.getReservation(current.getId()).getId());
+        assertTrue(reservationService.findRooms(checkIn, checkOut).isEmpty());
+    }
+
+    // Case 9: replayed stays keep the booking counts but are not counted again as demand of today
+    @Test
+    public void testReplay_KeepsPopularityCounts() throws IOException {
+        final Date today = new Date();
+
+        final WriteAheadLog attachedLog = openAttached(FsyncPolicy.OS_MANAGED);
+        try {
+            customerService.addCustomer("popular@test.com", "Popular", "Test");
+            reservationService.addRoom(new Room("P1", 100.0, RoomType.SINGLE));
+            reservationService.addRoom(new Room("P2", 100.0, RoomType.SINGLE));
+            final Customer customer = customerService.getCustomer("popular@test.com");
+
+            reservationService.reserveARoom(customer, reservationService.getARoom("P1"),
+                    createDate(2030, Calendar.MAY, 1), createDate(2030, Calendar.MAY, 2));
+            reservationService.reserveARoom(customer, reservationService.getARoom("P1"),
+                    createDate(2030, Calendar.MAY, 3), createDate(2030, Calendar.MAY, 4));
+            reservationService.reserveARoom(customer, reservationService.getARoom("P2"),
+                    createDate(2030, Calendar.MAY, 1), createDate(2030, Calendar.MAY, 2));
+            assertEquals(Arrays.asList("P1", "P2"), reservationService.findMostPopularRooms(7, 2));
+        } finally {
+            attachedLog.close();
+        }
+
+        clearServices();
+        try (WriteAheadLog log = WriteAheadLog.open(logDirectory, FsyncPolicy.OS_MANAGED, 0)) {
+            assertEquals(6, log.replay(customerService, reservationService));
+        }
+
+        assertEquals(Arrays.asList("P1", "P2"), reservationService.findMostPopularRooms(2));
+        assertTrue(reservationService.findMostPopularRooms(7, 2).isEmpty());
+
+        reservationService.reserveARoom(customerService.getCustomer("popular@test.com"),
+                reservationService.getARoom("P2"), today, EpochDay.plusDays(today, 1));
+        assertEquals(Arrays.asList("P2"), reservationService.findMostPopularRooms(7, 2));
+    }
+
+    // Case 10: customers without a first or last name survive the log and a checkpoint
+    @Test
+    public void testReplay_KeepsMissingNames() throws IOException {
+        try (WriteAheadLog log = openAttached(FsyncPolicy.OS_MANAGED)) {
+            customerService.addCustomer("nameless@test.com", null, null);
+            customerService.addCustomer("first@test.com", "First", null);
+            log.checkpoint();
+            customerService.addCustomer("last@test.com", null, "Last");
+        }
+
+        clearServices();
+        try (WriteAheadLog log = WriteAheadLog.open(logDirectory, FsyncPolicy.OS_MANAGED, 0)) {
+            log.replay(customerService, reservationService);
+        }
+
+        assertNull(customerService.getCustomer("nameless@test.com").getFirstName());
+        assertNull(customerService.getCustomer("nameless@test.com").getLastName());
+        assertEquals("First", customerService.getCustomer("first@test.com").getFirstName());
+        assertNull(customerService.getCustomer("first@test.com").getLastName());
+        assertNull(customerService.getCustomer("last@test.com").getFirstName());
+        assertEquals("Last", customerService.getCustomer("last@test.com").getLastName());
+    }
+
+    // Case 11: a change whose record cannot be written is not applied
+    @Test
+    public void testFailedWrite_LeavesServicesUnchanged() {
+        final Date checkIn = createDate(2030, Calendar.JULY, 1);
+        final Date checkOut = createDate(2030, Calendar.JULY, 3);
+        customerService.addCustomer("failed@test.com", "Failed", "Write");
+        reservationService.addRoom(new Room("F1", 100.0, RoomType.SINGLE));
+        reservationService.addRoom(new Room("F2", 100.0, RoomType.DOUBLE));
+        final Customer customer = customerService.getCustomer("failed@test.com");
+        final FailingLog log = new FailingLog();
+        reservationService.setMutationLog(log);
+
+        try {
+            reservationService.addRoom(new Room("F3", 100.0, RoomType.SINGLE));
+            fail("Room added without its record");
+        } catch (UncheckedIOException expected) {
+        }
+        assertNull(reservationService.getARoom("F3"));
+
+        try {
+            reservationService.reserveARoom(customer, reservationService.getARoom("F1"), checkIn, checkOut);
+            fail("Room booked without its record");
+        } catch (UncheckedIOException expected) {
+        }
+
+        // the first room of the group is logged, so its booking is logged as cancelled again
+        log.writesLeft = 1;
+        try {
+            reservationService.reserveRooms(customer, Arrays.asList("F1", "F2"), checkIn, checkOut);
+            fail("Rooms booked without their records");
+        } catch (UncheckedIOException expected) {
+        }
+        assertEquals(1, log.cancelled.size());
+
+        final ReservationHold hold = reservationService.holdARoom(customer, reservationService.getARoom("F1"),
+                checkIn, checkOut);
+        log.writesLeft = 0;
+        try {
+            reservationService.confirmHold(hold.getId());
+            fail("Hold confirmed without its record");
+        } catch (UncheckedIOException expected) {
+        }
+        assertNull(reservationService.getHold(hold.getId()));
+
+        assertNull(reservationService.getCustomersReservation(customer));
+        assertEquals(2, reservationService.findRooms(checkIn, checkOut).size());
+
+        log.writesLeft = Integer.MAX_VALUE;
+        assertEquals(2, reservationService.reserveRooms(customer, Arrays.asList("F1", "F2"), checkIn, checkOut)
+                .size());
+    }
+
+    // Case 12: a waitlist booking that cannot be logged keeps the waiter, and the cancel that freed the room succeeds
+    @Test
+    public void testFailedWrite_KeepsWaiterOnWaitlist() {
+        final Date checkIn = createDate(2030, Calendar.SEPTEMBER, 1);
+        final Date checkOut = createDate(2030, Calendar.SEPTEMBER, 3);
+        customerService.addCustomer("holder@test.com", "Holder", "Test");
+        customerService.addCustomer("waiter@test.com", "Waiter", "Test");
+        reservationService.addRoom(new Room("L1", 100.0, RoomType.SINGLE));
+        final IRoom room = reservationService.getARoom("L1");
+        final Customer waiter = customerService.getCustomer("waiter@test.com");
+        final long bookedId = reservationService.reserveARoom(customerService.getCustomer("holder@test.com"), room,
+                checkIn, checkOut).getId();
+        reservationService.joinWaitlist(waiter, room, checkIn, checkOut);
+
+        final FailingLog log = new FailingLog();
+        reservationService.setMutationLog(log);
+        assertTrue(reservationService.cancelReservation(bookedId));
+        assertEquals(Collections.singletonList(bookedId), log.cancelled);
+        assertEquals(1, reservationService.getWaitlist(waiter).size());
+        assertEquals(1, reservationService.findRooms(checkIn, checkOut).size());
+
+        // the waiter is booked by the next change that frees the stay
+        log.writesLeft = Integer.MAX_VALUE;
+        final ReservationHold hold = reservationService.holdARoom(customerService.getCustomer("holder@test.com"),
+                room, checkIn, checkOut);
+        assertTrue(reservationService.releaseHold(hold.getId()));
+        assertTrue(reservationService.getWaitlist(waiter).isEmpty());
+        assertEquals(1, reservationService.getCustomersReservation(waiter).size());
+    }
+
+    // Case 13: a damaged snapshot stops the log from opening and no file is deleted
+    @Test
+    public void testOpen_RejectsDamagedSnapshot() throws IOException {
+        final WriteAheadLog attachedLog = openAttached(FsyncPolicy.OS_MANAGED);
+        try {
+            customerService.addCustomer("kept@test.com", "Kept", "Test");
+            attachedLog.checkpoint();
+            customerService.addCustomer("later@test.com", "Later", "Test");
+            attachedLog.checkpoint();
+            customerService.addCustomer("last@test.com", "Last", "Test");
+        } finally {
+            attachedLog.close();
+        }
+        final Path snapshot = files("snapshot-*.snap").get(0);
+        try (RandomAccessFile file = new RandomAccessFile(snapshot.toFile(), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        final List<Path> before = files("*");
+
+        try {
+            WriteAheadLog.open(logDirectory, FsyncPolicy.OS_MANAGED, 0);
+            fail("Opened the log over a damaged snapshot");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains(snapshot.getFileName().toString()));
+        }
+        assertEquals(new HashSet<>(before), new HashSet<>(files("*")));
+    }
+
+    // Case 14: a snapshot too large to map stops the log from opening, and is not taken for a damaged one
+    @Test
+    public void testOpen_RejectsSnapshotTooLargeToMap() throws IOException {
+        Files.createDirectories(logDirectory);
+        final Path snapshot = logDirectory.resolve("snapshot-0000000000000001.snap");
+        // sparse, so it takes no disk space
+        try (RandomAccessFile file = new RandomAccessFile(snapshot.toFile(), "rw")) {
+            file.writeInt(0x48534E32);
+            file.setLength(Integer.MAX_VALUE + 1L);
+        }
+
+        try {
+            WriteAheadLog.open(logDirectory, FsyncPolicy.OS_MANAGED, 0);
+            fail("Opened the log over a snapshot it cannot map");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("can map"));
+        }
+        assertTrue(Files.exists(snapshot));
+    }
+
+    // Case 15: background checkpoints wait until the log outgrows the threshold, explicit ones fold at once
+    @Test
+    public void testStartCheckpoints_WaitsForEnoughLog() throws Exception {
+        try (WriteAheadLog log = openAttached(FsyncPolicy.OS_MANAGED)) {
+            customerService.addCustomer("size@test.com", "Size", "Test");
+            log.startCheckpoints(1, 1 << 20);
+            for (int i = 0; i < 20; i++) {
+                reservationService.addRoom(new Room("T" + i, 80.0, RoomType.SINGLE));
+            }
+            Thread.sleep(50);
+
+            assertTrue(files("snapshot-*.snap").isEmpty());
+            assertTrue(log.checkpoint() >= 0);
+            assertEquals(1, files("snapshot-*.snap").size());
+        }
+
+        clearServices();
+        try (WriteAheadLog log = WriteAheadLog.open(logDirectory, FsyncPolicy.OS_MANAGED, 0)) {
+            log.replay(customerService, reservationService);
+        }
+        assertEquals(20, reservationService.getAllRooms().size());
+    }
+
+    private List<Path> files(final String glob) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> matching = Files.newDirectoryStream(logDirectory, glob)) {
+            for (Path file : matching) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private WriteAheadLog openAttached(final FsyncPolicy fsyncPolicy) throws IOException {
+        final WriteAheadLog log = WriteAheadLog.open(logDirectory, fsyncPolicy, 5);
+        log.replay(customerService, reservationService);
+        customerService.setMutationLog(log);
+        reservationService.setMutationLog(log);
+        return log;
+    }
+
+    private void clearServices() {
+        customerService.setMutationLog(MutationLog.NONE);
+        reservationService.setMutationLog(MutationLog.NONE);
+        customerService.clearAllCustomers();
+        reservationService.clearAllRooms();
+        reservationService.clearAllReservations();
+    }
+
+    private static Date createDate(final int year, final int month, final int day) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.set(year, month, day, 0, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+
+    // writes records until writesLeft runs out, then fails like a full disk; cancellations always succeed
+    private static final class FailingLog implements MutationLog {
+
+        private int writesLeft;
+        private final List<Long> cancelled = new ArrayList<>();
+
+        @Override
+        public void customerAdded(final String email, final String firstName, final String lastName) {
+            write();
+        }
+
+        @Override
+        public void customerRemoved(final String email) {
+            write();
+        }
+
+        @Override
+        public void roomAdded(final IRoom room) {
+            write();
+        }
+
+        @Override
+        public void reserved(final Reservation reservation) {
+            write();
+        }
+
+        @Override
+        public void cancelled(final long reservationId) {
+            cancelled.add(reservationId);
+        }
+
+        private void write() {
+            if (writesLeft == 0) {
+                throw new UncheckedIOException(new IOException("Disk full"));
+            }
+            writesLeft--;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package service.reservation;
+
+import model.room.Room;
+import model.room.enums.RoomType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author joseneto
+ */
+
+// UNIT TEST for the day-to-rooms availability index
+
+public class AvailabilityIndexTest {
+
+    private static final int TODAY = 20000;
+
+    private AvailabilityIndex index;
+
+    @Before
+    public void setUp() {
+        index = new AvailabilityIndex();
+        index.addRoom(new Room("101", 100.0, RoomType.SINGLE));
+        index.addRoom(new Room("102", 100.0, RoomType.DOUBLE));
+    }
+
+    private List<String> availableRooms(final int checkInDay, final int checkOutDay) {
+        final List<String> roomNumbers = new ArrayList<>();
+        final BitSet available = index.findAvailableRoomIds(checkInDay, checkOutDay);
+        for (String roomNumber : new String[] {"101", "102"}) {
+            if (index.contains(roomNumber, available)) {
+                roomNumbers.add(roomNumber);
+            }
+        }
+        return roomNumbers;
+    }
+
+    // Case 1: a booked night hides the room for every stay that covers it
+    @Test
+    public void testBook_HidesRoomForOverlappingStays() {
+        index.book("101", TODAY, TODAY + 3);
+
+        assertEquals(1, availableRooms(TODAY + 2, TODAY + 5).size());
+        assertTrue(availableRooms(TODAY + 2, TODAY + 5).contains("102"));
+        assertEquals(2, availableRooms(TODAY + 3, TODAY + 5).size());
+    }
+
+    // Case 2: nights far beyond the array, before and after it, are still found and can be released
+    @Test
+    public void testBook_FarOffNightsOutsideTheArray() {
+        index.book("101", TODAY, TODAY + 1);
+        index.book("102", TODAY + 1_000_000, TODAY + 1_000_002);
+        index.book("101", TODAY - 500_000, TODAY - 499_999);
+
+        assertFalse(availableRooms(TODAY + 1_000_001, TODAY + 1_000_003).contains("102"));
+        assertTrue(availableRooms(TODAY + 1_000_002, TODAY + 1_000_003).contains("102"));
+        assertFalse(availableRooms(TODAY - 500_000, TODAY - 499_999).contains("101"));
+        assertFalse(availableRooms(TODAY, TODAY + 1).contains("101"));
+
+        index.release("102", TODAY + 1_000_000, TODAY + 1_000_002);
+        assertEquals(2, availableRooms(TODAY + 1_000_000, TODAY + 1_000_002).size());
+    }
+
+    // Case 3: a stay longer than the array is booked for every night, in the array and after it
+    @Test
+    public void testBook_StayLongerThanTheArray() {
+        index.book("101", TODAY, TODAY + 10_000);
+
+        assertFalse(availableRooms(TODAY + 4000, TODAY + 4001).contains("101"));
+        assertFalse(availableRooms(TODAY + 9999, TODAY + 10_001).contains("101"));
+        assertTrue(availableRooms(TODAY + 10_000, TODAY + 10_001).contains("101"));
+
+        index.release("101", TODAY, TODAY + 10_000);
+        assertEquals(2, availableRooms(TODAY, TODAY + 10_000).size());
+    }
+}
@@ -0,0 +1,116 @@
+package service.reservation;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures booking throughput when every thread books and cancels stays of
+ * the same two rooms, for each {@link BookingEngineType}.
+ *
+ * Not a unit test: run it with
+ * {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=service.reservation.BookingContentionBenchmark}
+ * or straight from the IDE.
+ *
+ * @author joseneto
+ */
+public class BookingContentionBenchmark {
+
+    private static final int ROOMS = 2;
+    private static final int DAYS = 60;
+    private static final long WARMUP_MILLIS = 1_000;
+    private static final long MEASURED_MILLIS = 2_000;
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+
+    public static void main(String[] args) throws InterruptedException {
+        final ReservationService service = ReservationService.getSingleton();
+        service.clearAllRooms();
+        service.clearAllReservations();
+
+        final IRoom[] rooms = new IRoom[ROOMS];
+        for (int i = 0; i < ROOMS; i++) {
+            rooms[i] = new Room("H" + i, 100.0, RoomType.SINGLE);
+            service.addRoom(rooms[i]);
+        }
+
+        final Customer customer = new Customer("Bench", "Mark", "bench@example.com");
+        final Date start = date(2030, Calendar.JANUARY, 1);
+        final Date[] days = new Date[DAYS + 3];
+        for (int day = 0; day < days.length; day++) {
+            days[day] = plusDays(start, day);
+        }
+
+        for (int threads : THREADS) {
+            for (BookingEngineType engineType : BookingEngineType.values()) {
+                service.clearAllReservations();
+                service.setBookingEngine(engineType);
+                measure(service, customer, rooms, days, threads, WARMUP_MILLIS);
+                final long[] counts = measure(service, customer, rooms, days, threads, MEASURED_MILLIS);
+
+                System.out.printf("%-9s %2d threads %10.0f bookings/s %10.0f conflicts/s%n", engineType,
+                        threads, counts[0] * 1000.0 / MEASURED_MILLIS, counts[1] * 1000.0 / MEASURED_MILLIS);
+            }
+        }
+        service.setBookingEngine(BookingEngineType.LOCKING);
+    }
+
+    private static long[] measure(final ReservationService service, final Customer customer,
+            final IRoom[] rooms, final Date[] days, final int threads, final long millis)
+            throws InterruptedException {
+        final LongAdder bookings = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                while (running.get()) {
+                    final IRoom room = rooms[random.nextInt(rooms.length)];
+                    final int day = random.nextInt(DAYS);
+                    try {
+                        final Reservation reservation = service.reserveARoom(customer, room,
+                                days[day], days[day + 1 + random.nextInt(3)]);
+                        bookings.increment();
+                        // give the stay back so the rooms never fill up
+                        service.cancelReservation(reservation.getId());
+                    } catch (IllegalStateException alreadyBooked) {
+                        conflicts.increment();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+
+        Thread.sleep(millis);
+        running.set(false);
+        done.await();
+
+        return new long[] {bookings.sum(), conflicts.sum()};
+    }
+
+    private static Date date(final int year, final int month, final int day) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day);
+        return calendar.getTime();
+    }
+
+    private static Date plusDays(final Date date, final int days) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.add(Calendar.DATE, days);
+        return calendar.getTime();
+    }
+}
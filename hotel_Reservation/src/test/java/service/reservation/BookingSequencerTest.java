@@ -0,0 +1,219 @@
+package service.reservation;
+
+import api.HotelResource;
+import model.reservation.Reservation;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import service.customer.CustomerService;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author joseneto
+ */
+
+// COMPONENT TEST for the single-writer booking sequencer
+
+public class BookingSequencerTest {
+
+    private ReservationService reservationService;
+    private CustomerService customerService;
+
+    @Before
+    public void setUp() {
+        reservationService = ReservationService.getSingleton();
+        customerService = CustomerService.getSingleton();
+        reservationService.clearAllRooms();
+        reservationService.clearAllReservations();
+        customerService.clearAllCustomers();
+    }
+
+    @After
+    public void tearDown() {
+        BookingSequencer.getSingleton().stop();
+    }
+
+    private Date createDate(int year, int month, int day) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month, day);
+        return cal.getTime();
+    }
+
+    // Case 1: commands are applied in submission order, so a booking can use a customer and room queued before it
+    @Test
+    public void testCommandsAppliedInOrder() {
+        BookingSequencer sequencer = new BookingSequencer(reservationService, customerService, 8);
+        sequencer.start();
+        IRoom room = new Room("SEQ1", 100.0, RoomType.SINGLE);
+        Date checkIn = createDate(2028, Calendar.JANUARY, 1);
+        Date checkOut = createDate(2028, Calendar.JANUARY, 3);
+
+        sequencer.addCustomer("seq@test.com", "Seq", "Uencer");
+        sequencer.addRoom(room);
+        CompletableFuture<Reservation> booked = sequencer.reserveARoom("seq@test.com", room, checkIn, checkOut);
+        CompletableFuture<Reservation> conflict = sequencer.reserveARoom("seq@test.com", room, checkIn, checkOut);
+
+        Reservation reservation = booked.join();
+        assertEquals("seq@test.com", reservation.getCustomer().getEmail());
+        try {
+            conflict.join();
+            fail("Second booking of the same stay must fail");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        assertTrue(sequencer.cancelReservation(reservation.getId()).join());
+        assertFalse(sequencer.cancelReservation(reservation.getId()).join());
+        assertTrue(reservationService.findRooms(checkIn, checkOut).contains(room));
+        sequencer.stop();
+    }
+
+    // Case 2: producers on many threads fill the small ring buffer many times over and every command is applied
+    @Test
+    public void testManyProducersWrapTheRingBuffer() throws Exception {
+        final BookingSequencer sequencer = new BookingSequencer(reservationService, customerService, 8);
+        sequencer.start();
+        customerService.addCustomer("many@test.com", "Many", "Producers");
+        final int rooms = 200;
+        final Date checkIn = createDate(2028, Calendar.FEBRUARY, 1);
+        final Date checkOut = createDate(2028, Calendar.FEBRUARY, 2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Reservation>> futures = new ArrayList<>();
+        for (int i = 0; i < rooms; i++) {
+            final IRoom room = new Room("M" + i, 100.0, RoomType.DOUBLE);
+            futures.add(executor.submit(() -> {
+                sequencer.addRoom(room);
+                return sequencer.reserveARoom("many@test.com", room, checkIn, checkOut).join();
+            }));
+        }
+        for (Future<Reservation> future : futures) {
+            assertNotNull(future.get());
+        }
+        executor.shutdown();
+        sequencer.stop();
+
+        assertEquals(rooms, reservationService.getAllRooms().size());
+        assertTrue(reservationService.findRooms(checkIn, checkOut).isEmpty());
+    }
+
+    // Case 3: HotelResource routes writes through the sequencer while it is enabled
+    @Test
+    public void testHotelResourceUsesSequencerWhenEnabled() {
+        HotelResource hotelResource = HotelResource.getSingleton();
+        IRoom room = new Room("SEQ2", 100.0, RoomType.SINGLE);
+        reservationService.addRoom(room);
+        Date checkIn = createDate(2028, Calendar.MARCH, 1);
+        Date checkOut = createDate(2028, Calendar.MARCH, 2);
+
+        BookingSequencer.getSingleton().start();
+        hotelResource.createACustomer("hotel@test.com", "Hotel", "Resource");
+        CompletableFuture<Reservation> booking = hotelResource.bookARoomAsync("hotel@test.com", room, checkIn, checkOut);
+        Reservation reservation = booking.join();
+
+        try {
+            hotelResource.bookARoom("hotel@test.com", room, checkIn, checkOut);
+            fail("Double booking must be rejected");
+        } catch (IllegalStateException expected) {
+            // unwrapped from the sequencer's future
+        }
+        assertTrue(hotelResource.cancelReservation(reservation.getId()));
+        hotelResource.bookARoomAsync("hotel@test.com", room, checkIn, checkOut).join();
+        assertTrue(hotelResource.cancelReservationAsync("hotel@test.com", "SEQ2", checkIn).join());
+        assertFalse(hotelResource.cancelReservationAsync("nobody@test.com", "SEQ2", checkIn).join());
+
+        BookingSequencer.getSingleton().stop();
+        assertFalse(BookingSequencer.getSingleton().isEnabled());
+        // applied without the sequencer once it is stopped
+        hotelResource.bookARoomAsync("hotel@test.com", room, checkIn, checkOut).join();
+    }
+
+    // Case 4: group bookings are sequenced as one command, all or nothing
+    @Test
+    public void testGroupBookingThroughSequencer() {
+        BookingSequencer sequencer = new BookingSequencer(reservationService, customerService, 8);
+        sequencer.start();
+        Date checkIn = createDate(2028, Calendar.APRIL, 1);
+        Date checkOut = createDate(2028, Calendar.APRIL, 2);
+
+        sequencer.addCustomer("group@test.com", "Group", "Leader");
+        sequencer.addRoom(new Room("GS1", 100.0, RoomType.SINGLE));
+        sequencer.addRoom(new Room("GS2", 100.0, RoomType.DOUBLE));
+        List<Reservation> group = sequencer.reserveRooms("group@test.com", java.util.Arrays.asList("GS1", "GS2"),
+                checkIn, checkOut).join();
+        CompletableFuture<List<Reservation>> again = sequencer.reserveRooms("group@test.com",
+                java.util.Arrays.asList("GS2", "GS1"), checkIn, checkOut);
+
+        assertEquals(2, group.size());
+        try {
+            BookingSequencer.await(again);
+            fail("Second group over the same rooms must fail");
+        } catch (IllegalStateException expected) {
+            // rooms already booked
+        }
+        sequencer.stop();
+    }
+
+    // Case 5: a command that throws an Error fails only its own future, and later commands are still applied
+    @Test
+    public void testErrorInCommandKeepsWriterRunning() {
+        BookingSequencer sequencer = new BookingSequencer(reservationService, customerService, 8);
+        sequencer.start();
+        IRoom broken = new Room("BROKEN", 100.0, RoomType.SINGLE) {
+            @Override
+            public String getRoomNumber() {
+                throw new AssertionError("broken room");
+            }
+        };
+
+        CompletableFuture<Void> failed = sequencer.addRoom(broken);
+        CompletableFuture<Void> added = sequencer.addRoom(new Room("SEQ3", 100.0, RoomType.SINGLE));
+
+        try {
+            failed.join();
+            fail("Command must fail with the Error");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+        added.join();
+        assertNotNull(reservationService.getARoom("SEQ3"));
+        sequencer.stop();
+    }
+
+    // Case 6: commands are rejected until the writer is started, instead of waiting forever
+    @Test
+    public void testCommandsRejectedBeforeStart() {
+        BookingSequencer sequencer = new BookingSequencer(reservationService, customerService, 8);
+
+        for (int i = 0; i < 10; i++) {
+            try {
+                sequencer.addRoom(new Room("SEQ4", 100.0, RoomType.SINGLE));
+                fail("Command must be rejected before start");
+            } catch (IllegalStateException expected) {
+                // no writer to apply it
+            }
+        }
+        sequencer.flush().join();
+
+        sequencer.start();
+        sequencer.addRoom(new Room("SEQ4", 100.0, RoomType.SINGLE)).join();
+        assertNotNull(reservationService.getARoom("SEQ4"));
+        sequencer.stop();
+    }
+}
@@ -0,0 +1,114 @@
+package service.reservation;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author joseneto
+ */
+
+// UNIT TEST for the compare-and-set booking engine
+
+public class LockFreeBookingEngineTest {
+
+    private final Customer customer = new Customer("Lock", "Free", "lockfree@test.com");
+    private final IRoom room = new Room("LF1", 100.0, RoomType.SINGLE);
+
+    private Reservation book(final BookingEngine engine, final int checkInDay, final int checkOutDay) {
+        return engine.book(room.getRoomNumber(), checkInDay, checkOutDay,
+                () -> new Reservation(customer, room, checkInDay, checkOutDay));
+    }
+
+    // Case 1: bookings stay sorted, overlaps are rejected and back-to-back stays are allowed
+    @Test
+    public void testBookKeepsSortedIntervalsAndRejectsOverlaps() {
+        BookingEngine engine = new LockFreeBookingEngine();
+
+        Reservation late = book(engine, 20, 23);
+        Reservation early = book(engine, 10, 12);
+        Reservation adjacent = book(engine, 12, 13);
+
+        try {
+            book(engine, 22, 25);
+            fail("Overlapping booking must be rejected");
+        } catch (IllegalStateException expected) {
+            // the room is taken on day 22
+        }
+
+        assertEquals(Arrays.asList(early, adjacent, late), new ArrayList<>(engine.reservations("LF1")));
+        assertTrue(engine.isBooked("LF1", 12));
+        assertFalse(engine.isBooked("LF1", 13));
+        assertTrue(engine.isBooked("LF1", 22));
+        assertFalse(engine.isBooked("LF1", 23));
+        assertEquals(13, engine.earliestFreeDay("LF1", 10, 7));
+        assertEquals(23, engine.earliestFreeDay("LF1", 14, 7));
+    }
+
+    // Case 2: cancel removes only the given booking, once
+    @Test
+    public void testCancelRemovesBookingOnce() {
+        BookingEngine engine = new LockFreeBookingEngine();
+        Reservation first = book(engine, 1, 3);
+        Reservation second = book(engine, 5, 6);
+
+        assertTrue(engine.cancel(first));
+        assertFalse(engine.cancel(first));
+        assertFalse(engine.isBooked("LF1", 1));
+        assertEquals(Arrays.asList(second), new ArrayList<>(engine.reservations("LF1")));
+        assertNotNull(book(engine, 1, 3));
+    }
+
+    // Case 3: under heavy same-room contention no two accepted bookings overlap
+    @Test
+    public void testConcurrentBookingsNeverOverlap() throws Exception {
+        final BookingEngine engine = new LockFreeBookingEngine();
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger accepted = new AtomicInteger();
+        final List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int day = 0; day < 200; day++) {
+                    try {
+                        book(engine, day, day + 2);
+                        accepted.incrementAndGet();
+                    } catch (IllegalStateException expected) {
+                        // another thread took an overlapping stay
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<Reservation> booked = new ArrayList<>(engine.reservations("LF1"));
+        assertEquals(accepted.get(), booked.size());
+        for (int i = 1; i < booked.size(); i++) {
+            assertTrue("Bookings must not overlap",
+                    booked.get(i - 1).getCheckOutDay() <= booked.get(i).getCheckInDay());
+        }
+    }
+}
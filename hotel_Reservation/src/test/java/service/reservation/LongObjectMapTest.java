@@ -0,0 +1,59 @@
+package service.reservation;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author joseneto
+ */
+
+// UNIT TEST for the primitive long-keyed map behind reservation ids
+
+public class LongObjectMapTest {
+
+    // Case 1: basic put/get/remove
+    @Test
+    public void testPutGetRemove() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+
+        assertNull(map.put(7L, "seven"));
+        assertEquals("seven", map.put(7L, "SEVEN"));
+        assertEquals("SEVEN", map.get(7L));
+        assertNull(map.get(8L));
+        assertEquals(1, map.size());
+
+        assertEquals("SEVEN", map.remove(7L));
+        assertNull(map.get(7L));
+        assertNull(map.remove(7L));
+        assertEquals(0, map.size());
+    }
+
+    // Case 2: random operations, including resizes and removals inside probe runs, agree with HashMap
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2_000);
+
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+}
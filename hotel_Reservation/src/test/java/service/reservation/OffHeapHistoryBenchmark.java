@@ -0,0 +1,114 @@
+package service.reservation;
+
+import model.customer.Customer;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Measures the heap left in use as the history grows: with every past stay
+ * kept as a reservation in the service, against moving the ended stays off
+ * the heap after every batch of bookings, as the periodic mover of
+ * {@code HotelApplication} does. The direct memory taken by the moved stays
+ * is shown beside it.
+ *
+ * Not a unit test: run it with
+ * {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=service.reservation.OffHeapHistoryBenchmark}
+ * or straight from the IDE.
+ *
+ * @author joseneto
+ */
+public class OffHeapHistoryBenchmark {
+
+    private static final int ROOMS = 1_000;
+    private static final int CUSTOMERS = 1_000;
+    private static final int BATCH_STAYS_PER_ROOM = 10;
+    private static final int[] PAST_STAYS_PER_ROOM = { 10, 100, 1_000 };
+
+    public static void main(String[] args) {
+        final ReservationService service = ReservationService.getSingleton();
+        final List<Customer> customers = new ArrayList<>();
+        for (int customer = 0; customer < CUSTOMERS; customer++) {
+            customers.add(new Customer("Guest", "Number" + customer, "guest" + customer + "@example.com"));
+        }
+
+        for (int pastStays : PAST_STAYS_PER_ROOM) {
+            long baseline = reset(service);
+            for (int stay = 0; stay < pastStays; stay += BATCH_STAYS_PER_ROOM) {
+                book(service, customers, stay);
+            }
+            final long onHeap = usedHeap() - baseline;
+
+            baseline = reset(service);
+            final long directBefore = directMemory();
+            long moveNanos = 0;
+            for (int stay = 0; stay < pastStays; stay += BATCH_STAYS_PER_ROOM) {
+                book(service, customers, stay);
+                final long start = System.nanoTime();
+                service.moveEndedStaysOffHeap(day(2 * (stay + BATCH_STAYS_PER_ROOM)));
+                moveNanos += System.nanoTime() - start;
+            }
+            final long offHeap = usedHeap() - baseline;
+            final long direct = directMemory() - directBefore;
+
+            System.out.printf("%9d stays   kept: heap %8d KB   moved: heap %6d KB  direct %7d KB  (%d ms moving)%n",
+                    ROOMS * pastStays, onHeap / 1024, offHeap / 1024, direct / 1024, moveNanos / 1_000_000);
+        }
+        reset(service);
+    }
+
+    // one batch of back to back two-night stays in every room, starting with the given stay
+    private static void book(final ReservationService service, final List<Customer> customers,
+            final int firstStay) {
+        for (int room = 0; room < ROOMS; room++) {
+            if (firstStay == 0) {
+                service.addRoom(new Room("H" + room, 100.0, RoomType.SINGLE));
+            }
+            final IRoom booked = service.getARoom("H" + room);
+
+            for (int stay = firstStay; stay < firstStay + BATCH_STAYS_PER_ROOM; stay++) {
+                service.reserveARoom(customers.get((room + stay) % CUSTOMERS), booked, day(2 * stay),
+                        day(2 * stay + 2));
+            }
+        }
+    }
+
+    private static long reset(final ReservationService service) {
+        service.clearAllRooms();
+        service.clearAllReservations();
+        return usedHeap();
+    }
+
+    private static Date day(final int offset) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.set(2025, Calendar.JANUARY, 1, 0, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, offset);
+        return calendar.getTime();
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int round = 0; round < 3; round++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long directMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
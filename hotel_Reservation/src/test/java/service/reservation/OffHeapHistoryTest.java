@@ -0,0 +1,123 @@
+package service.reservation;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.reservation.ReservationKey;
+import model.room.Room;
+import model.room.enums.RoomType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author joseneto
+ */
+
+// UNIT TEST for the past stays kept in direct buffer slots
+
+public class OffHeapHistoryTest {
+
+    private final Customer ana = new Customer("Ana", "Slot", "ana@slot.com");
+    private final Customer ben = new Customer("Ben", "Slot", "ben@slot.com");
+    private final Room single = new Room("101", 100.0, RoomType.SINGLE);
+    private final Room twin = new Room("102", 80.0, RoomType.DOUBLE);
+
+    // Case 1: stays are found by id, key and customer, and only overlapping periods are booked
+    @Test
+    public void testAdd_FindsStaysAndConflicts() {
+        final OffHeapHistory history = new OffHeapHistory();
+        final Reservation late = new Reservation(7, ana, single, 20, 25);
+        final Reservation early = new Reservation(3, ana, single, 10, 12);
+        final Reservation other = new Reservation(5, ben, twin, 10, 30);
+        history.add(late);
+        history.add(early);
+        history.add(other);
+
+        final Reservation found = history.find(3);
+        assertEquals(3, found.getId());
+        assertSame(ana, found.getCustomer());
+        assertSame(single, found.getRoom());
+        assertEquals(10, found.getCheckInDay());
+        assertEquals(12, found.getCheckOutDay());
+        assertNull(history.find(4));
+        assertEquals(7, history.find(ReservationKey.of(late)).getId());
+        assertNull(history.find(ReservationKey.of(new Reservation(ben, single, 20, 25))));
+        assertEquals(Arrays.asList(7L, 3L), ids(history.findByCustomer("ana@slot.com")));
+        assertTrue(history.findByCustomer("nobody@slot.com").isEmpty());
+
+        assertTrue(history.isBooked("101", 11, 13));
+        assertTrue(history.isBooked("101", 5, 30));
+        assertFalse(history.isBooked("101", 12, 20));
+        assertFalse(history.isBooked("101", 25, 26));
+        assertTrue(history.isBooked("102", 29, 31));
+        assertFalse(history.isBooked("103", 10, 30));
+
+        final Map<String, Integer> counts = new HashMap<>();
+        history.forEachRoomCount(counts::put);
+        assertEquals(Integer.valueOf(2), counts.get("101"));
+        assertEquals(Integer.valueOf(1), counts.get("102"));
+    }
+
+    // Case 2: a cancelled stay disappears everywhere and its slot is reused
+    @Test
+    public void testCancel_FreesSlotForReuse() {
+        final OffHeapHistory history = new OffHeapHistory();
+        history.add(new Reservation(1, ana, single, 10, 12));
+        history.add(new Reservation(2, ana, single, 12, 14));
+        final long bytes = history.offHeapBytes();
+
+        assertTrue(history.cancel(2));
+        assertFalse(history.cancel(2));
+        assertNull(history.find(2));
+        assertFalse(history.isBooked("101", 12, 14));
+        assertEquals(Arrays.asList(1L), ids(history.findByCustomer("ana@slot.com")));
+        assertEquals(1, history.size());
+
+        history.add(new Reservation(3, ben, twin, 12, 14));
+        assertEquals(bytes, history.offHeapBytes());
+        assertEquals(3, history.find(3).getId());
+        assertEquals(1, history.find(1).getId());
+    }
+
+    // Case 3: the id table grows and keeps every id reachable through cancellations
+    @Test
+    public void testFind_AfterGrowthAndRemovals() {
+        final OffHeapHistory history = new OffHeapHistory();
+        final int stays = 5_000;
+        for (int id = 1; id <= stays; id++) {
+            history.add(new Reservation(id, id % 2 == 0 ? ana : ben, id % 3 == 0 ? single : twin, id, id + 1));
+        }
+
+        for (int id = 1; id <= stays; id += 3) {
+            assertTrue(history.cancel(id));
+        }
+
+        for (int id = 1; id <= stays; id++) {
+            final Reservation found = history.find(id);
+
+            if (id % 3 == 1) {
+                assertNull(found);
+            } else {
+                assertEquals(id, found.getCheckInDay());
+            }
+        }
+        assertEquals(stays - (stays + 2) / 3, history.size());
+        assertTrue(history.isBooked("102", 2, 3));
+        assertFalse(history.isBooked("102", 1, 2));
+    }
+
+    private static List<Long> ids(final List<Reservation> reservations) {
+        final List<Long> ids = new ArrayList<>();
+        for (Reservation reservation : reservations) {
+            ids.add(reservation.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,137 @@
+package service.reservation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author joseneto
+ */
+
+// UNIT TEST for the day-bucketed popularity ring buffer
+
+public class PopularityWindowTest {
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private MutableClock clock;
+    private PopularityWindow window;
+
+    @Before
+    public void setUp() {
+        clock = new MutableClock(Instant.parse("2026-01-01T12:00:00Z"));
+        window = new PopularityWindow(clock);
+    }
+
+    // Case 1: bookings of today are ranked by count, then room number
+    @Test
+    public void testFindMostBooked_RanksRoomsInWindow() {
+        window.recordBooking("101");
+        window.recordBooking("202");
+        window.recordBooking("202");
+        window.recordBooking("303");
+
+        assertEquals(Arrays.asList("202", "101"), window.findMostBooked(7, 2));
+    }
+
+    // Case 2: bookings older than the window are not counted
+    @Test
+    public void testFindMostBooked_IgnoresBookingsOutsideWindow() {
+        window.recordBooking("101");
+        window.recordBooking("101");
+        clock.advanceDays(10);
+        window.recordBooking("202");
+
+        assertEquals(Collections.singletonList("202"), window.findMostBooked(7, 5));
+        assertEquals(Arrays.asList("101", "202"), window.findMostBooked(30, 5));
+    }
+
+    // Case 3: a bucket is reused once the ring wraps around
+    @Test
+    public void testFindMostBooked_RingWrapResetsOldBucket() {
+        window.recordBooking("101");
+        clock.advanceDays(PopularityWindow.MAX_WINDOW_DAYS);
+        window.recordBooking("202");
+
+        assertEquals(Collections.singletonList("202"), window.findMostBooked(PopularityWindow.MAX_WINDOW_DAYS, 5));
+    }
+
+    // Case 4: windows longer than the ring are rejected
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindMostBooked_WindowTooLongThrowsException() {
+        window.findMostBooked(PopularityWindow.MAX_WINDOW_DAYS + 1, 5);
+    }
+
+    // Case 5: bookings recorded from many threads at once are all counted
+    @Test
+    public void testRecordBooking_CountsConcurrentBookings() throws Exception {
+        final int threads = 8;
+        final int bookingsPerThread = 10_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            final String roomNumber = i % 2 == 0 ? "101" : "202";
+            futures.add(executor.submit(() -> {
+                for (int booking = 0; booking < bookingsPerThread; booking++) {
+                    window.recordBooking(roomNumber);
+                    window.recordBooking("303");
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // 303 got a booking for every one of the others
+        assertEquals(Arrays.asList("303", "101", "202"), window.findMostBooked(1, 3));
+        window.recordBooking("101");
+        assertEquals(Arrays.asList("303", "101"), window.findMostBooked(1, 2));
+        window.recordBooking("202");
+        window.recordBooking("202");
+        assertEquals(Arrays.asList("303", "202"), window.findMostBooked(1, 2));
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(final Instant now) {
+            this.now = now;
+        }
+
+        void advanceDays(final int days) {
+            now = now.plusMillis(days * DAY_MILLIS);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
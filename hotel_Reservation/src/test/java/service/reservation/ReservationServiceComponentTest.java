@@ -46,14 +46,9 @@ public class ReservationServiceComponentTest {
         // Use the Singleton instance of ReservationService
         service = ReservationService.getSingleton();
 
-        // Clear the internal maps (rooms and reservations) before each test
-        java.lang.reflect.Field roomsField = ReservationService.class.getDeclaredField("rooms");
-        roomsField.setAccessible(true);
-        ((java.util.Map<?, ?>) roomsField.get(service)).clear();
-
-        java.lang.reflect.Field reservationsField = ReservationService.class.getDeclaredField("reservations");
-        reservationsField.setAccessible(true);
-        ((java.util.Map<?, ?>) reservationsField.get(service)).clear();
+        // Clear rooms, reservations and the per-room indexes before each test
+        service.clearAllRooms();
+        service.clearAllReservations();
     }
     
     @After
@@ -456,4 +451,1026 @@ public class ReservationServiceComponentTest {
         assertNotNull("Result should not be null", result);
         assertEquals("The most popular room should be Z30", "Z30", result);
     }
+
+    // Function 4 : per-room conflict index
+
+    // Case 1: a stay starting on the previous guest's check-out day does not conflict
+    @Test
+    public void testReserveARoom_BackToBackStaysDoNotConflict() {
+        Customer customer = createCustomer("index1@test.com");
+        IRoom room = createRoom("I1", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+
+        service.reserveARoom(customer, room,
+                createDate(2026, java.util.Calendar.MAY, 1),
+                createDate(2026, java.util.Calendar.MAY, 5));
+        Reservation next = service.reserveARoom(customer, room,
+                createDate(2026, java.util.Calendar.MAY, 5),
+                createDate(2026, java.util.Calendar.MAY, 8));
+
+        assertNotNull("Back-to-back stay must be accepted", next);
+        assertEquals(2, service.getCustomersReservation(customer).size());
+    }
+
+    // Case 2: a stay that only partially overlaps an existing one is rejected
+    @Test(expected = IllegalStateException.class)
+    public void testReserveARoom_PartialOverlapThrowsException() {
+        Customer customer = createCustomer("index2@test.com");
+        IRoom room = createRoom("I2", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+
+        service.reserveARoom(customer, room,
+                createDate(2026, java.util.Calendar.MAY, 10),
+                createDate(2026, java.util.Calendar.MAY, 15));
+        service.reserveARoom(customer, room,
+                createDate(2026, java.util.Calendar.MAY, 1),
+                createDate(2026, java.util.Calendar.MAY, 11));
+    }
+
+    // Case 3: cancelling a reservation frees the room for the same dates
+    @Test
+    public void testReserveARoom_AfterCancellationRoomCanBeBookedAgain() {
+        Customer customerA = createCustomer("index3a@test.com");
+        Customer customerB = createCustomer("index3b@test.com");
+        IRoom room = createRoom("I3", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+
+        Date checkIn = createDate(2026, java.util.Calendar.JUNE, 1);
+        Date checkOut = createDate(2026, java.util.Calendar.JUNE, 4);
+
+        service.reserveARoom(customerA, room, checkIn, checkOut);
+        assertTrue(service.cancelReservation(customerA, "I3", checkIn));
+
+        Reservation rebooked = service.reserveARoom(customerB, room, checkIn, checkOut);
+        assertNotNull("Room must be bookable again after cancellation", rebooked);
+    }
+
+    // Case 4: check-out must come after check-in
+    @Test(expected = IllegalArgumentException.class)
+    public void testReserveARoom_CheckOutNotAfterCheckInThrowsException() {
+        Customer customer = createCustomer("index4@test.com");
+        IRoom room = createRoom("I4", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+
+        Date day = createDate(2026, java.util.Calendar.JULY, 1);
+        service.reserveARoom(customer, room, day, day);
+    }
+
+    // Function 5 : findRooms (day-to-rooms availability index)
+
+    // Case 1: only rooms free on every night of the stay are returned
+    @Test
+    public void testFindRooms_ExcludesRoomsBookedOnAnyNightOfTheStay() {
+        Customer customer = createCustomer("avail1@test.com");
+        IRoom booked = createRoom("A1", 100.0, RoomType.SINGLE);
+        IRoom free = createRoom("A2", 100.0, RoomType.SINGLE);
+        service.addRoom(booked);
+        service.addRoom(free);
+
+        service.reserveARoom(customer, booked,
+                createDate(2026, java.util.Calendar.SEPTEMBER, 4),
+                createDate(2026, java.util.Calendar.SEPTEMBER, 6));
+
+        Collection<IRoom> result = service.findRooms(
+                createDate(2026, java.util.Calendar.SEPTEMBER, 1),
+                createDate(2026, java.util.Calendar.SEPTEMBER, 5));
+
+        assertEquals(1, result.size());
+        assertTrue(result.contains(free));
+    }
+
+    // Case 2: a stay ending on the booked room's check-in day still finds it
+    @Test
+    public void testFindRooms_CheckOutOnBookedCheckInDayIsAvailable() {
+        Customer customer = createCustomer("avail2@test.com");
+        IRoom room = createRoom("A3", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+
+        service.reserveARoom(customer, room,
+                createDate(2026, java.util.Calendar.SEPTEMBER, 10),
+                createDate(2026, java.util.Calendar.SEPTEMBER, 12));
+
+        Collection<IRoom> result = service.findRooms(
+                createDate(2026, java.util.Calendar.SEPTEMBER, 7),
+                createDate(2026, java.util.Calendar.SEPTEMBER, 10));
+
+        assertTrue(result.contains(room));
+    }
+
+    // Case 3: cancelling a reservation makes the room searchable again
+    @Test
+    public void testFindRooms_CancelledReservationFreesTheRoom() {
+        Customer customer = createCustomer("avail3@test.com");
+        IRoom room = createRoom("A4", 100.0, RoomType.DOUBLE);
+        service.addRoom(room);
+
+        Date checkIn = createDate(2026, java.util.Calendar.OCTOBER, 1);
+        Date checkOut = createDate(2026, java.util.Calendar.OCTOBER, 3);
+        service.reserveARoom(customer, room, checkIn, checkOut);
+        assertTrue(service.findRooms(checkIn, checkOut).isEmpty());
+
+        service.cancelReservation(customer, "A4", checkIn);
+
+        assertTrue(service.findRooms(checkIn, checkOut).contains(room));
+        assertTrue(service.getAvailableRoomsByType(checkIn, checkOut, RoomType.DOUBLE).contains(room));
+    }
+
+    // Function 6 : getAvailableRoomsByType (RoomType partitions)
+
+    // Case 1: typed searches only return free rooms of the requested type
+    @Test
+    public void testGetAvailableRoomsByType_ReturnsOnlyRequestedType() {
+        Customer customer = createCustomer("type1@test.com");
+        IRoom single = createRoom("T1", 100.0, RoomType.SINGLE);
+        IRoom bookedSingle = createRoom("T2", 100.0, RoomType.SINGLE);
+        IRoom doubleRoom = createRoom("T3", 200.0, RoomType.DOUBLE);
+        service.addRoom(single);
+        service.addRoom(bookedSingle);
+        service.addRoom(doubleRoom);
+
+        Date checkIn = createDate(2026, java.util.Calendar.NOVEMBER, 1);
+        Date checkOut = createDate(2026, java.util.Calendar.NOVEMBER, 4);
+        service.reserveARoom(customer, bookedSingle, checkIn, checkOut);
+
+        Collection<IRoom> singles = service.getAvailableRoomsByType(checkIn, checkOut, RoomType.SINGLE);
+        Collection<IRoom> doubles = service.getAvailableRoomsByType(checkIn, checkOut, RoomType.DOUBLE);
+
+        assertEquals(1, singles.size());
+        assertTrue(singles.contains(single));
+        assertEquals(1, doubles.size());
+        assertTrue(doubles.contains(doubleRoom));
+    }
+
+    // Case 2: re-adding a room with another type keeps its bookings
+    @Test
+    public void testGetAvailableRoomsByType_RoomTypeChangeKeepsBookings() {
+        Customer customer = createCustomer("type2@test.com");
+        IRoom room = createRoom("T4", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+
+        Date checkIn = createDate(2026, java.util.Calendar.DECEMBER, 1);
+        Date checkOut = createDate(2026, java.util.Calendar.DECEMBER, 3);
+        service.reserveARoom(customer, room, checkIn, checkOut);
+
+        IRoom upgraded = createRoom("T4", 180.0, RoomType.DOUBLE);
+        service.addRoom(upgraded);
+
+        assertTrue(service.getAvailableRoomsByType(checkIn, checkOut, RoomType.SINGLE).isEmpty());
+        assertTrue(service.getAvailableRoomsByType(checkIn, checkOut, RoomType.DOUBLE).isEmpty());
+        assertTrue(service.getAvailableRoomsByType(checkOut,
+                createDate(2026, java.util.Calendar.DECEMBER, 5), RoomType.DOUBLE).contains(upgraded));
+    }
+
+    // Function 7 : findAlternativeDates (all offsets in one sweep)
+
+    // Case 1: only shifts that clear the existing booking are returned, closest first
+    @Test
+    public void testFindAlternativeDates_RanksFreeOffsetsByDistance() {
+        Customer customer = createCustomer("alt1@test.com");
+        IRoom room = createRoom("AL1", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+
+        service.reserveARoom(customer, room,
+                createDate(2027, java.util.Calendar.JANUARY, 10),
+                createDate(2027, java.util.Calendar.JANUARY, 13));
+
+        java.util.List<model.reservation.AlternativeDates> result = service.findAlternativeDates(
+                createDate(2027, java.util.Calendar.JANUARY, 10),
+                createDate(2027, java.util.Calendar.JANUARY, 12), 3);
+
+        assertEquals(3, result.size());
+        assertEquals(-2, result.get(0).getOffsetDays());
+        assertEquals(3, result.get(1).getOffsetDays());
+        assertEquals(-3, result.get(2).getOffsetDays());
+        assertEquals(createDate(2027, java.util.Calendar.JANUARY, 8), result.get(0).getCheckInDate());
+        assertEquals(createDate(2027, java.util.Calendar.JANUARY, 10), result.get(0).getCheckOutDate());
+        assertTrue(result.get(0).getRooms().contains(room));
+    }
+
+    // Case 2: invalid ranges give no alternatives
+    @Test
+    public void testFindAlternativeDates_InvalidRangeReturnsEmptyList() {
+        Date day = createDate(2027, java.util.Calendar.FEBRUARY, 1);
+
+        assertTrue(service.findAlternativeDates(day, day).isEmpty());
+        assertTrue(service.findAlternativeDates(null, day).isEmpty());
+    }
+
+    // Function 8 : findEarliestAvailability (gaps between sorted bookings)
+
+    // Case 1: the first gap long enough for the stay is found per room and rooms are ranked by it
+    @Test
+    public void testFindEarliestAvailability_SkipsGapsThatAreTooShort() {
+        Customer customer = createCustomer("early1@test.com");
+        IRoom busy = createRoom("E1", 100.0, RoomType.SINGLE);
+        IRoom free = createRoom("E2", 100.0, RoomType.SINGLE);
+        IRoom other = createRoom("E3", 100.0, RoomType.DOUBLE);
+        service.addRoom(busy);
+        service.addRoom(free);
+        service.addRoom(other);
+
+        // E1: booked 1-3, free 3-4 (one night only), booked 4-6, free from 6
+        service.reserveARoom(customer, busy,
+                createDate(2027, java.util.Calendar.MARCH, 1),
+                createDate(2027, java.util.Calendar.MARCH, 3));
+        service.reserveARoom(customer, busy,
+                createDate(2027, java.util.Calendar.MARCH, 4),
+                createDate(2027, java.util.Calendar.MARCH, 6));
+        // E2: booked 1-2, free from 2
+        service.reserveARoom(customer, free,
+                createDate(2027, java.util.Calendar.MARCH, 1),
+                createDate(2027, java.util.Calendar.MARCH, 2));
+
+        java.util.List<model.reservation.AvailableStay> result = service.findEarliestAvailability(
+                createDate(2027, java.util.Calendar.MARCH, 1), 2, RoomType.SINGLE, 5);
+
+        assertEquals(2, result.size());
+        assertEquals(free, result.get(0).getRoom());
+        assertEquals(createDate(2027, java.util.Calendar.MARCH, 2), result.get(0).getCheckInDate());
+        assertEquals(busy, result.get(1).getRoom());
+        assertEquals(createDate(2027, java.util.Calendar.MARCH, 6), result.get(1).getCheckInDate());
+        assertEquals(createDate(2027, java.util.Calendar.MARCH, 8), result.get(1).getCheckOutDate());
+    }
+
+    // Case 2: only the best K windows are returned
+    @Test
+    public void testFindEarliestAvailability_ReturnsBestK() {
+        Customer customer = createCustomer("early2@test.com");
+        IRoom booked = createRoom("E4", 100.0, RoomType.SINGLE);
+        IRoom free = createRoom("E5", 100.0, RoomType.DOUBLE);
+        service.addRoom(booked);
+        service.addRoom(free);
+
+        Date from = createDate(2027, java.util.Calendar.APRIL, 1);
+        service.reserveARoom(customer, booked, from, createDate(2027, java.util.Calendar.APRIL, 9));
+
+        java.util.List<model.reservation.AvailableStay> result = service.findEarliestAvailability(from, 3, null, 1);
+
+        assertEquals(1, result.size());
+        assertEquals(free, result.get(0).getRoom());
+        assertEquals(from, result.get(0).getCheckInDate());
+    }
+
+    // Function 9 : findMostPopularRooms (incremental booking counters)
+
+    // Case 1: the top K rooms are ranked by their current number of reservations
+    @Test
+    public void testFindMostPopularRooms_ReturnsTopKInOrder() {
+        Customer customer = createCustomer("top1@test.com");
+        IRoom roomA = createRoom("P1", 100.0, RoomType.SINGLE);
+        IRoom roomB = createRoom("P2", 100.0, RoomType.SINGLE);
+        IRoom roomC = createRoom("P3", 100.0, RoomType.SINGLE);
+        service.addRoom(roomA);
+        service.addRoom(roomB);
+        service.addRoom(roomC);
+
+        for (int i = 0; i < 3; i++) {
+            service.reserveARoom(customer, roomB,
+                    createDate(2027, java.util.Calendar.MAY, 1 + i * 2),
+                    createDate(2027, java.util.Calendar.MAY, 2 + i * 2));
+        }
+        for (int i = 0; i < 2; i++) {
+            service.reserveARoom(customer, roomC,
+                    createDate(2027, java.util.Calendar.MAY, 1 + i * 2),
+                    createDate(2027, java.util.Calendar.MAY, 2 + i * 2));
+        }
+        service.reserveARoom(customer, roomA,
+                createDate(2027, java.util.Calendar.MAY, 1),
+                createDate(2027, java.util.Calendar.MAY, 2));
+
+        assertEquals(java.util.Arrays.asList("P2", "P3"), service.findMostPopularRooms(2));
+        assertEquals(java.util.Arrays.asList("P2", "P3", "P1"), service.findMostPopularRooms(10));
+    }
+
+    // Case 2: cancellations are subtracted from the counters
+    @Test
+    public void testFindMostPopularRoom_CancellationUpdatesCounters() {
+        Customer customer = createCustomer("top2@test.com");
+        IRoom roomA = createRoom("P4", 100.0, RoomType.SINGLE);
+        IRoom roomB = createRoom("P5", 100.0, RoomType.SINGLE);
+        service.addRoom(roomA);
+        service.addRoom(roomB);
+
+        Date may1 = createDate(2027, java.util.Calendar.MAY, 1);
+        Date may2 = createDate(2027, java.util.Calendar.MAY, 2);
+        Date may3 = createDate(2027, java.util.Calendar.MAY, 3);
+        service.reserveARoom(customer, roomA, may1, may2);
+        service.reserveARoom(customer, roomA, may2, may3);
+        service.reserveARoom(customer, roomB, may1, may2);
+        assertEquals("P4", service.findMostPopularRoom());
+
+        service.cancelReservation(customer, "P4", may1);
+        service.cancelReservation(customer, "P4", may2);
+
+        assertEquals("P5", service.findMostPopularRoom());
+        assertEquals(java.util.Collections.singletonList("P5"), service.findMostPopularRooms(3));
+    }
+
+    // Function 10 : getCustomerReservationHistory (pre-sorted storage)
+
+    // Case 1: history is newest first whatever the booking order, and pages slice it
+    @Test
+    public void testGetCustomerReservationHistory_NewestFirstAndPaged() {
+        Customer customer = createCustomer("history1@test.com");
+        IRoom room = createRoom("H1", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+
+        Reservation march = service.reserveARoom(customer, room,
+                createDate(2027, java.util.Calendar.MARCH, 1), createDate(2027, java.util.Calendar.MARCH, 2));
+        Reservation january = service.reserveARoom(customer, room,
+                createDate(2027, java.util.Calendar.JANUARY, 1), createDate(2027, java.util.Calendar.JANUARY, 2));
+        Reservation february = service.reserveARoom(customer, room,
+                createDate(2027, java.util.Calendar.FEBRUARY, 1), createDate(2027, java.util.Calendar.FEBRUARY, 2));
+
+        assertEquals(java.util.Arrays.asList(march, february, january),
+                service.getCustomerReservationHistory(customer));
+        assertEquals(java.util.Arrays.asList(march, february),
+                service.getCustomerReservationHistory(customer, 0, 2));
+        assertEquals(java.util.Collections.singletonList(january),
+                service.getCustomerReservationHistory(customer, 2, 2));
+        assertTrue(service.getCustomerReservationHistory(customer, 5, 2).isEmpty());
+    }
+
+    // Case 2: customers without reservations get an empty history
+    @Test
+    public void testGetCustomerReservationHistory_NoReservations() {
+        Customer customer = createCustomer("history2@test.com");
+
+        assertTrue(service.getCustomerReservationHistory(customer).isEmpty());
+        assertTrue(service.getCustomerReservationHistory(customer, 0, 10).isEmpty());
+        assertTrue(service.getCustomerReservationHistory(null, 0, 10).isEmpty());
+    }
+
+    // Function 11 : cancelReservation by ReservationKey
+
+    // Case 1: a reservation can be cancelled with its key and disappears from every index
+    @Test
+    public void testCancelReservation_ByKeyRemovesFromAllIndexes() {
+        Customer customer = createCustomer("key1@test.com");
+        IRoom room = createRoom("K1", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+
+        Date checkIn = createDate(2027, java.util.Calendar.JUNE, 1);
+        Date checkOut = createDate(2027, java.util.Calendar.JUNE, 3);
+        Reservation reservation = service.reserveARoom(customer, room, checkIn, checkOut);
+
+        assertTrue(service.cancelReservation(model.reservation.ReservationKey.of(reservation)));
+
+        assertEquals(0, service.getCustomersReservation(customer).size());
+        assertTrue(service.findRooms(checkIn, checkOut).contains(room));
+        assertNull(service.findMostPopularRoom());
+        assertFalse("A key can only be cancelled once",
+                service.cancelReservation(model.reservation.ReservationKey.of(reservation)));
+    }
+
+    // Case 2: the key matches on check-in day, room and customer
+    @Test
+    public void testCancelReservation_ByKeyRequiresMatchingCustomer() {
+        Customer owner = createCustomer("key2a@test.com");
+        IRoom room = createRoom("K2", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+
+        Date checkIn = createDate(2027, java.util.Calendar.JUNE, 1);
+        service.reserveARoom(owner, room, checkIn, createDate(2027, java.util.Calendar.JUNE, 3));
+
+        assertFalse(service.cancelReservation(
+                model.reservation.ReservationKey.of("key2b@test.com", "K2", checkIn)));
+        assertTrue(service.cancelReservation(
+                model.reservation.ReservationKey.of("key2a@test.com", "K2", checkIn)));
+        assertFalse(service.cancelReservation((model.reservation.ReservationKey) null));
+    }
+
+    // Function 12 : reservation ids
+
+    // Case 1: ids increase, resolve to their reservation, and can be used to cancel
+    @Test
+    public void testReservationIds_LookupAndCancelById() {
+        Customer customer = createCustomer("id1@test.com");
+        IRoom room = createRoom("ID1", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+
+        Reservation first = service.reserveARoom(customer, room,
+                createDate(2027, java.util.Calendar.JULY, 1), createDate(2027, java.util.Calendar.JULY, 2));
+        Reservation second = service.reserveARoom(customer, room,
+                createDate(2027, java.util.Calendar.JULY, 2), createDate(2027, java.util.Calendar.JULY, 3));
+
+        assertTrue("Ids must be monotonically increasing", second.getId() > first.getId());
+        assertSame(first, service.getReservation(first.getId()));
+
+        assertTrue(service.cancelReservation(first.getId()));
+        assertNull(service.getReservation(first.getId()));
+        assertFalse(service.cancelReservation(first.getId()));
+        assertEquals(1, service.getCustomersReservation(customer).size());
+        assertTrue(service.getCustomersReservation(customer).contains(second));
+    }
+
+    // Function 13 : concurrent bookings (per-room lock striping)
+
+    // Case 1: many threads racing for the same room and dates, exactly one booking wins
+    @Test
+    public void testReserveARoom_ConcurrentSameRoomOnlyOneSucceeds() throws Exception {
+        final IRoom room = createRoom("C1", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+        final Date checkIn = createDate(2027, java.util.Calendar.AUGUST, 1);
+        final Date checkOut = createDate(2027, java.util.Calendar.AUGUST, 4);
+
+        final int threads = 16;
+        final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        final java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+        final java.util.concurrent.atomic.AtomicInteger booked = new java.util.concurrent.atomic.AtomicInteger();
+        final java.util.List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            final Customer customer = createCustomer("race" + i + "@test.com");
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    service.reserveARoom(customer, room, checkIn, checkOut);
+                    booked.incrementAndGet();
+                } catch (IllegalStateException expected) {
+                    // another thread got the room first
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (java.util.concurrent.Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals("Exactly one booking must succeed", 1, booked.get());
+        assertFalse(service.findRooms(checkIn, checkOut).contains(room));
+    }
+
+    // Case 2: concurrent bookings of different rooms all succeed while searches run
+    @Test
+    public void testReserveARoom_ConcurrentDifferentRoomsAllSucceed() throws Exception {
+        final int roomCount = 64;
+        final Date checkIn = createDate(2027, java.util.Calendar.AUGUST, 10);
+        final Date checkOut = createDate(2027, java.util.Calendar.AUGUST, 12);
+        final java.util.List<IRoom> rooms = new java.util.ArrayList<>();
+        for (int i = 0; i < roomCount; i++) {
+            IRoom room = createRoom("P" + i, 100.0, i % 2 == 0 ? RoomType.SINGLE : RoomType.DOUBLE);
+            service.addRoom(room);
+            rooms.add(room);
+        }
+
+        final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(8);
+        final java.util.List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+        final Customer customer = createCustomer("parallel@test.com");
+
+        for (final IRoom room : rooms) {
+            futures.add(executor.submit(() -> service.reserveARoom(customer, room, checkIn, checkOut)));
+            futures.add(executor.submit(() -> service.findRooms(checkIn, checkOut)));
+        }
+        for (java.util.concurrent.Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertTrue(service.findRooms(checkIn, checkOut).isEmpty());
+        assertEquals(roomCount, service.getCustomersReservation(customer).size());
+    }
+
+    // Function 14 : selectable booking engine
+
+    // Case 1: the lock-free engine books, rejects overlaps, cancels and keeps searches in sync
+    @Test
+    public void testLockFreeEngine_BookCancelAndSearch() {
+        service.setBookingEngine(BookingEngineType.LOCK_FREE);
+        try {
+            Customer customer = createCustomer("cas@test.com");
+            IRoom room = createRoom("CAS1", 100.0, RoomType.DOUBLE);
+            service.addRoom(room);
+            Date checkIn = createDate(2027, java.util.Calendar.SEPTEMBER, 1);
+            Date checkOut = createDate(2027, java.util.Calendar.SEPTEMBER, 3);
+
+            Reservation reservation = service.reserveARoom(customer, room, checkIn, checkOut);
+            assertFalse(service.findRooms(checkIn, checkOut).contains(room));
+            try {
+                service.reserveARoom(createCustomer("other@test.com"), room,
+                        createDate(2027, java.util.Calendar.SEPTEMBER, 2), createDate(2027, java.util.Calendar.SEPTEMBER, 4));
+                fail("Overlapping booking must be rejected");
+            } catch (IllegalStateException expected) {
+                // room already booked
+            }
+
+            assertTrue(service.cancelReservation(reservation.getId()));
+            assertTrue(service.findRooms(checkIn, checkOut).contains(room));
+        } finally {
+            service.setBookingEngine(BookingEngineType.LOCKING);
+        }
+    }
+
+    // Case 2: switching engines keeps the existing bookings
+    @Test
+    public void testSetBookingEngine_MigratesExistingBookings() {
+        Customer customer = createCustomer("switch@test.com");
+        IRoom room = createRoom("SW1", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+        Date checkIn = createDate(2027, java.util.Calendar.OCTOBER, 1);
+        Date checkOut = createDate(2027, java.util.Calendar.OCTOBER, 5);
+        Reservation reservation = service.reserveARoom(customer, room, checkIn, checkOut);
+
+        service.setBookingEngine(BookingEngineType.LOCK_FREE);
+        try {
+            assertEquals(BookingEngineType.LOCK_FREE, service.getBookingEngine());
+            try {
+                service.reserveARoom(customer, room, checkIn, checkOut);
+                fail("Migrated booking must still block the room");
+            } catch (IllegalStateException expected) {
+                // room already booked
+            }
+            assertTrue(service.cancelReservation(reservation.getId()));
+        } finally {
+            service.setBookingEngine(BookingEngineType.LOCKING);
+        }
+        assertEquals(BookingEngineType.LOCKING, service.getBookingEngine());
+        assertNotNull(service.reserveARoom(customer, room, checkIn, checkOut));
+    }
+
+    // Case 3: concurrent book/cancel churn on one room leaves no stale reservations behind
+    @Test
+    public void testLockFreeEngine_ConcurrentChurnKeepsIndexesConsistent() throws Exception {
+        service.setBookingEngine(BookingEngineType.LOCK_FREE);
+        try {
+            final Customer customer = createCustomer("churn@test.com");
+            final IRoom room = createRoom("CH1", 100.0, RoomType.SINGLE);
+            service.addRoom(room);
+            final Date[] days = new Date[8];
+            for (int i = 0; i < days.length; i++) {
+                days[i] = createDate(2027, java.util.Calendar.NOVEMBER, i + 1);
+            }
+
+            final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(4);
+            final java.util.List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int seed = t;
+                futures.add(executor.submit(() -> {
+                    java.util.Random random = new java.util.Random(seed);
+                    for (int i = 0; i < 2000; i++) {
+                        int day = random.nextInt(days.length - 1);
+                        try {
+                            Reservation reservation = service.reserveARoom(customer, room, days[day], days[day + 1]);
+                            service.cancelReservation(reservation.getId());
+                        } catch (IllegalStateException expected) {
+                            // another thread holds the night
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (java.util.concurrent.Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            assertTrue(service.getCustomersReservation(customer).isEmpty());
+            assertTrue(service.findRooms(days[0], days[days.length - 1]).contains(room));
+        } finally {
+            service.setBookingEngine(BookingEngineType.LOCKING);
+        }
+    }
+
+    // Function 15 : reserveRooms (atomic group booking)
+
+    private java.util.List<String> addGroupRooms(String prefix, int count) {
+        java.util.List<String> roomNumbers = new java.util.ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            service.addRoom(createRoom(prefix + i, 100.0, i % 2 == 0 ? RoomType.SINGLE : RoomType.DOUBLE));
+            roomNumbers.add(prefix + i);
+        }
+        return roomNumbers;
+    }
+
+    // Case 1: every room of the group is booked for the customer
+    @Test
+    public void testReserveRooms_BooksAllRooms() {
+        Customer customer = createCustomer("group@test.com");
+        java.util.List<String> roomNumbers = addGroupRooms("G", 12);
+        Date checkIn = createDate(2028, java.util.Calendar.JUNE, 1);
+        Date checkOut = createDate(2028, java.util.Calendar.JUNE, 4);
+
+        java.util.List<Reservation> group = service.reserveRooms(customer, roomNumbers, checkIn, checkOut);
+
+        assertEquals(12, group.size());
+        for (int i = 0; i < group.size(); i++) {
+            assertEquals(roomNumbers.get(i), group.get(i).getRoom().getRoomNumber());
+        }
+        assertTrue(service.findRooms(checkIn, checkOut).isEmpty());
+        assertEquals(12, service.getCustomersReservation(customer).size());
+    }
+
+    // Case 2: one taken room fails the whole group and nothing is booked
+    @Test
+    public void testReserveRooms_OneConflictBooksNothing() {
+        Customer customer = createCustomer("group2@test.com");
+        java.util.List<String> roomNumbers = addGroupRooms("H", 30);
+        Date checkIn = createDate(2028, java.util.Calendar.JUNE, 10);
+        Date checkOut = createDate(2028, java.util.Calendar.JUNE, 12);
+        service.reserveARoom(createCustomer("early@test.com"), service.getARoom("H27"),
+                createDate(2028, java.util.Calendar.JUNE, 11), createDate(2028, java.util.Calendar.JUNE, 13));
+
+        try {
+            service.reserveRooms(customer, roomNumbers, checkIn, checkOut);
+            fail("Group with a taken room must be rejected");
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage().contains("H27"));
+        }
+
+        assertEquals(29, service.findRooms(checkIn, checkOut).size());
+        assertNull(service.getCustomersReservation(customer));
+    }
+
+    // Case 3: unknown and duplicate rooms are rejected before anything is booked
+    @Test
+    public void testReserveRooms_InvalidRoomListsRejected() {
+        Customer customer = createCustomer("group3@test.com");
+        addGroupRooms("K", 2);
+        Date checkIn = createDate(2028, java.util.Calendar.JULY, 1);
+        Date checkOut = createDate(2028, java.util.Calendar.JULY, 2);
+
+        try {
+            service.reserveRooms(customer, java.util.Arrays.asList("K0", "NOPE"), checkIn, checkOut);
+            fail("Unknown room must be rejected");
+        } catch (IllegalArgumentException expected) {
+            // room NOPE does not exist
+        }
+        try {
+            service.reserveRooms(customer, java.util.Arrays.asList("K0", "K1", "K0"), checkIn, checkOut);
+            fail("Duplicate room must be rejected");
+        } catch (IllegalArgumentException expected) {
+            // K0 listed twice
+        }
+        assertEquals(2, service.findRooms(checkIn, checkOut).size());
+    }
+
+    // Case 4: groups sharing rooms in opposite orders neither deadlock nor both win, with either engine
+    @Test
+    public void testReserveRooms_ConcurrentOverlappingGroups() throws Exception {
+        for (BookingEngineType engineType : BookingEngineType.values()) {
+            service.clearAllReservations();
+            service.setBookingEngine(engineType);
+            try {
+                final java.util.List<String> forward = addGroupRooms("O", 20);
+                final java.util.List<String> backward = new java.util.ArrayList<>(forward);
+                java.util.Collections.reverse(backward);
+                final Date checkIn = createDate(2028, java.util.Calendar.AUGUST, 1);
+                final Date checkOut = createDate(2028, java.util.Calendar.AUGUST, 3);
+
+                for (int round = 0; round < 20; round++) {
+                    final java.util.concurrent.CyclicBarrier barrier = new java.util.concurrent.CyclicBarrier(2);
+                    final java.util.concurrent.atomic.AtomicInteger winners = new java.util.concurrent.atomic.AtomicInteger();
+                    java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(2);
+                    java.util.List<java.util.concurrent.Future<?>> futures = new java.util.ArrayList<>();
+                    for (final java.util.List<String> order : java.util.Arrays.asList(forward, backward)) {
+                        futures.add(executor.submit(() -> {
+                            barrier.await();
+                            try {
+                                service.reserveRooms(createCustomer("og@test.com"), order, checkIn, checkOut);
+                                winners.incrementAndGet();
+                            } catch (IllegalStateException expected) {
+                                // the other group got there first
+                            }
+                            return null;
+                        }));
+                    }
+                    for (java.util.concurrent.Future<?> future : futures) {
+                        future.get(10, java.util.concurrent.TimeUnit.SECONDS);
+                    }
+                    executor.shutdown();
+
+                    assertTrue("At most one group may win", winners.get() <= 1);
+                    assertEquals(winners.get() == 1 ? 0 : 20, service.findRooms(checkIn, checkOut).size());
+                    service.clearAllReservations();
+                }
+            } finally {
+                service.setBookingEngine(BookingEngineType.LOCKING);
+            }
+        }
+    }
+
+    // Function 16 : tentative holds
+
+    // Case 1: a held room is taken for searches and bookings until the hold is released
+    @Test
+    public void testHoldARoom_BlocksRoomUntilReleased() {
+        IRoom room = createRoom("HL1", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+        Date checkIn = createDate(2029, java.util.Calendar.MARCH, 1);
+        Date checkOut = createDate(2029, java.util.Calendar.MARCH, 4);
+
+        model.reservation.ReservationHold hold = service.holdARoom(createCustomer("hold@test.com"), room,
+                checkIn, checkOut);
+
+        assertTrue(service.findRooms(checkIn, checkOut).isEmpty());
+        try {
+            service.reserveARoom(createCustomer("other@test.com"), room, checkIn, checkOut);
+            fail("Held room must not be booked");
+        } catch (IllegalStateException expected) {
+            // held by hold@test.com
+        }
+
+        assertTrue(service.releaseHold(hold.getId()));
+        assertFalse(service.releaseHold(hold.getId()));
+        assertNull(service.getHold(hold.getId()));
+        assertEquals(1, service.findRooms(checkIn, checkOut).size());
+        assertNotNull(service.reserveARoom(createCustomer("other@test.com"), room, checkIn, checkOut));
+    }
+
+    // Case 2: a confirmed hold becomes a reservation of the customer
+    @Test
+    public void testConfirmHold_TurnsHoldIntoReservation() {
+        Customer customer = createCustomer("confirm@test.com");
+        IRoom room = createRoom("HL2", 100.0, RoomType.DOUBLE);
+        service.addRoom(room);
+        Date checkIn = createDate(2029, java.util.Calendar.APRIL, 1);
+        Date checkOut = createDate(2029, java.util.Calendar.APRIL, 2);
+
+        model.reservation.ReservationHold hold = service.holdARoom(customer, room, checkIn, checkOut);
+        assertNull(service.getCustomersReservation(customer));
+
+        Reservation reservation = service.confirmHold(hold.getId());
+
+        assertSame(hold.getReservation(), reservation);
+        assertSame(reservation, service.getReservation(hold.getId()));
+        assertEquals(1, service.getCustomersReservation(customer).size());
+        assertNull(service.confirmHold(hold.getId()));
+        assertFalse(service.releaseHold(hold.getId()));
+        assertTrue(service.findRooms(checkIn, checkOut).isEmpty());
+    }
+
+    // Case 3: an expired hold frees the room and can no longer be confirmed
+    @Test
+    public void testHoldARoom_ExpiresAfterTtl() throws Exception {
+        IRoom room = createRoom("HL3", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+        Date checkIn = createDate(2029, java.util.Calendar.MAY, 1);
+        Date checkOut = createDate(2029, java.util.Calendar.MAY, 3);
+
+        model.reservation.ReservationHold hold = service.holdARoom(createCustomer("ttl@test.com"), room,
+                checkIn, checkOut, 200);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (service.getHold(hold.getId()) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertNull(service.getHold(hold.getId()));
+        assertTrue(System.currentTimeMillis() >= hold.getExpiresAtMillis());
+        assertNull(service.confirmHold(hold.getId()));
+        assertEquals(1, service.findRooms(checkIn, checkOut).size());
+    }
+
+    // Case 4: holds move along when the booking engine is switched
+    @Test
+    public void testHoldARoom_SurvivesEngineSwitch() {
+        IRoom room = createRoom("HL4", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+        Date checkIn = createDate(2029, java.util.Calendar.JUNE, 1);
+        Date checkOut = createDate(2029, java.util.Calendar.JUNE, 5);
+        model.reservation.ReservationHold hold = service.holdARoom(createCustomer("switch@test.com"), room,
+                checkIn, checkOut);
+
+        service.setBookingEngine(BookingEngineType.LOCK_FREE);
+        try {
+            try {
+                service.reserveARoom(createCustomer("other@test.com"), room, checkIn, checkOut);
+                fail("Held room must not be booked after the switch");
+            } catch (IllegalStateException expected) {
+                // still held
+            }
+            assertTrue(service.releaseHold(hold.getId()));
+            assertNotNull(service.reserveARoom(createCustomer("other@test.com"), room, checkIn, checkOut));
+        } finally {
+            service.setBookingEngine(BookingEngineType.LOCKING);
+        }
+    }
+
+    // Case 5: an expiry that throws is reported and later holds still expire
+    @Test
+    public void testHoldARoom_FailedExpiryKeepsExpiringHolds() throws Exception {
+        final java.util.concurrent.atomic.AtomicBoolean broken = new java.util.concurrent.atomic.AtomicBoolean();
+        IRoom brokenRoom = new Room("HL5", 100.0, RoomType.SINGLE) {
+            @Override
+            public String getRoomNumber() {
+                if (broken.get()) {
+                    throw new IllegalStateException("broken room");
+                }
+                return super.getRoomNumber();
+            }
+        };
+        IRoom room = createRoom("HL6", 100.0, RoomType.SINGLE);
+        service.addRoom(brokenRoom);
+        service.addRoom(room);
+        Date checkIn = createDate(2029, java.util.Calendar.JULY, 1);
+        Date checkOut = createDate(2029, java.util.Calendar.JULY, 3);
+
+        model.reservation.ReservationHold failing = service.holdARoom(createCustomer("fail@test.com"), brokenRoom,
+                checkIn, checkOut, 50);
+        broken.set(true);
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (service.getHold(failing.getId()) != null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertNull(service.getHold(failing.getId()));
+
+            model.reservation.ReservationHold later = service.holdARoom(createCustomer("later@test.com"), room,
+                    checkIn, checkOut, 50);
+            // the hold is dropped just before its room is freed, so wait for the room
+            deadline = System.currentTimeMillis() + 10_000;
+            while (!service.findRooms(checkIn, checkOut).contains(room) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertNull(service.getHold(later.getId()));
+            assertNotNull(service.reserveARoom(createCustomer("other@test.com"), room, checkIn, checkOut));
+        } finally {
+            broken.set(false);
+        }
+    }
+
+    // Function 17 : waitlist
+
+    // Case 1: a cancellation books the room for the first waiter whose stay fits
+    @Test
+    public void testJoinWaitlist_CancellationAssignsFirstFittingWaiter() {
+        IRoom room = createRoom("WL1", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+        Date checkIn = createDate(2029, java.util.Calendar.SEPTEMBER, 1);
+        Date checkOut = createDate(2029, java.util.Calendar.SEPTEMBER, 5);
+        Reservation booked = service.reserveARoom(createCustomer("booked@test.com"), room, checkIn, checkOut);
+        service.reserveARoom(createCustomer("later@test.com"), room, checkOut,
+                createDate(2029, java.util.Calendar.SEPTEMBER, 8));
+
+        Customer tooLong = createCustomer("toolong@test.com");
+        Customer first = createCustomer("first@test.com");
+        Customer second = createCustomer("second@test.com");
+        model.reservation.WaitlistEntry tooLongEntry = service.joinWaitlist(tooLong, room, checkIn,
+                createDate(2029, java.util.Calendar.SEPTEMBER, 7));
+        model.reservation.WaitlistEntry firstEntry = service.joinWaitlist(first, room, checkIn,
+                createDate(2029, java.util.Calendar.SEPTEMBER, 3));
+        model.reservation.WaitlistEntry secondEntry = service.joinWaitlist(second, room, checkIn,
+                createDate(2029, java.util.Calendar.SEPTEMBER, 2));
+        assertNull(firstEntry.getReservation());
+        assertEquals(3, service.getWaitlist().size());
+
+        assertTrue(service.cancelReservation(booked.getId()));
+
+        // the first waiter gets the room, the second overlaps it, the long stay still clashes
+        assertNotNull(firstEntry.getReservation());
+        assertEquals(1, service.getCustomersReservation(first).size());
+        assertNull(secondEntry.getReservation());
+        assertNull(tooLongEntry.getReservation());
+        assertEquals(java.util.Arrays.asList(tooLongEntry, secondEntry), service.getWaitlist());
+        assertEquals(java.util.Collections.singletonList(secondEntry), service.getWaitlist(second));
+    }
+
+    // Case 2: a waiter who left is not booked
+    @Test
+    public void testLeaveWaitlist_RemovesEntry() {
+        IRoom room = createRoom("WL2", 100.0, RoomType.DOUBLE);
+        service.addRoom(room);
+        Date checkIn = createDate(2029, java.util.Calendar.OCTOBER, 1);
+        Date checkOut = createDate(2029, java.util.Calendar.OCTOBER, 3);
+        Reservation booked = service.reserveARoom(createCustomer("booked@test.com"), room, checkIn, checkOut);
+        Customer waiter = createCustomer("leaver@test.com");
+        model.reservation.WaitlistEntry entry = service.joinWaitlist(waiter, room, checkIn, checkOut);
+
+        assertTrue(service.leaveWaitlist(entry.getId()));
+        assertFalse(service.leaveWaitlist(entry.getId()));
+        assertTrue(service.cancelReservation(booked.getId()));
+
+        assertNull(entry.getReservation());
+        assertNull(service.getCustomersReservation(waiter));
+        assertTrue(service.getWaitlist(waiter).isEmpty());
+        assertEquals(1, service.findRooms(checkIn, checkOut).size());
+    }
+
+    // Case 3: joining the waitlist of a free room books it right away, and a released hold serves waiters
+    @Test
+    public void testJoinWaitlist_FreeRoomAndReleasedHold() {
+        IRoom room = createRoom("WL3", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+        Date checkIn = createDate(2029, java.util.Calendar.NOVEMBER, 1);
+        Date checkOut = createDate(2029, java.util.Calendar.NOVEMBER, 2);
+
+        model.reservation.WaitlistEntry immediate = service.joinWaitlist(createCustomer("now@test.com"), room,
+                createDate(2029, java.util.Calendar.DECEMBER, 1), createDate(2029, java.util.Calendar.DECEMBER, 2));
+        assertNotNull(immediate.getReservation());
+
+        model.reservation.ReservationHold hold = service.holdARoom(createCustomer("hold@test.com"), room,
+                checkIn, checkOut);
+        model.reservation.WaitlistEntry entry = service.joinWaitlist(createCustomer("wait@test.com"), room,
+                checkIn, checkOut);
+        assertNull(entry.getReservation());
+
+        assertTrue(service.releaseHold(hold.getId()));
+
+        assertNotNull(entry.getReservation());
+        assertTrue(service.getWaitlist().isEmpty());
+    }
+
+    // Function 18 : moveEndedStaysOffHeap (off-heap history)
+
+    // Case 1: moved stays are still found, listed, counted and keep their nights taken
+    @Test
+    public void testMoveEndedStaysOffHeap_KeepsStaysVisible() {
+        IRoom room = createRoom("OH1", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+        Customer customer = createCustomer("offheap@test.com");
+        Reservation past = service.reserveARoom(customer, room, createDate(2020, java.util.Calendar.MARCH, 1),
+                createDate(2020, java.util.Calendar.MARCH, 5));
+        Reservation upcoming = service.reserveARoom(customer, room, createDate(2030, java.util.Calendar.MARCH, 1),
+                createDate(2030, java.util.Calendar.MARCH, 5));
+
+        assertEquals(1, service.moveEndedStaysOffHeap(createDate(2021, java.util.Calendar.JANUARY, 1)));
+
+        Reservation moved = service.getReservation(past.getId());
+        assertNotSame(past, moved);
+        assertEquals(past.getId(), moved.getId());
+        assertEquals(past.getCheckInDay(), moved.getCheckInDay());
+        assertEquals(past.getCheckOutDay(), moved.getCheckOutDay());
+        assertSame(upcoming, service.getReservation(upcoming.getId()));
+        assertEquals(java.util.Arrays.asList(upcoming.getId(), past.getId()),
+                ids(service.getCustomerReservationHistory(customer)));
+        assertEquals("OH1", service.findMostPopularRoom());
+
+        assertTrue(service.findRooms(createDate(2020, java.util.Calendar.MARCH, 2),
+                createDate(2020, java.util.Calendar.MARCH, 3)).isEmpty());
+        try {
+            service.reserveARoom(createCustomer("late@test.com"), room, createDate(2020, java.util.Calendar.MARCH, 4),
+                    createDate(2020, java.util.Calendar.MARCH, 6));
+            fail("Expected the moved stay to keep its nights");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(0, service.moveEndedStaysOffHeap(createDate(2021, java.util.Calendar.JANUARY, 1)));
+    }
+
+    // Case 2: a moved stay can be cancelled by key, which frees its nights
+    @Test
+    public void testMoveEndedStaysOffHeap_CancelFreesNights() {
+        IRoom room = createRoom("OH2", 100.0, RoomType.DOUBLE);
+        service.addRoom(room);
+        Customer customer = createCustomer("offheap2@test.com");
+        Date checkIn = createDate(2020, java.util.Calendar.APRIL, 10);
+        Date checkOut = createDate(2020, java.util.Calendar.APRIL, 12);
+        service.reserveARoom(customer, room, checkIn, checkOut);
+        service.moveEndedStaysOffHeap(createDate(2021, java.util.Calendar.JANUARY, 1));
+
+        assertTrue(service.cancelReservation(customer, "OH2", checkIn));
+        assertFalse(service.cancelReservation(customer, "OH2", checkIn));
+
+        assertTrue(service.getCustomersReservation(customer).isEmpty());
+        assertNull(service.findMostPopularRoom());
+        assertEquals(1, service.findRooms(checkIn, checkOut).size());
+        assertNotNull(service.reserveARoom(createCustomer("next@test.com"), room, checkIn, checkOut));
+    }
+
+    // Function 19 : printAllReservation
+
+    // Case 1: every confirmed booking is printed once, a hold is not, and an empty hotel says so
+    @Test
+    public void testPrintAllReservation_PrintsConfirmedBookings() {
+        IRoom room = createRoom("PR1", 100.0, RoomType.SINGLE);
+        IRoom held = createRoom("PR2", 100.0, RoomType.SINGLE);
+        service.addRoom(room);
+        service.addRoom(held);
+        Date checkIn = createDate(2029, java.util.Calendar.OCTOBER, 1);
+        Date checkOut = createDate(2029, java.util.Calendar.OCTOBER, 3);
+        java.io.PrintStream originalOut = System.out;
+        java.io.ByteArrayOutputStream output = new java.io.ByteArrayOutputStream();
+        Reservation first;
+        Reservation second;
+
+        try {
+            System.setOut(new java.io.PrintStream(output));
+            service.printAllReservation();
+            assertTrue(output.toString().contains("No reservations found."));
+
+            output.reset();
+            first = service.reserveARoom(createCustomer("print1@test.com"), room, checkIn, checkOut);
+            second = service.reserveARoom(createCustomer("print2@test.com"), room, checkOut,
+                    createDate(2029, java.util.Calendar.OCTOBER, 5));
+            service.holdARoom(createCustomer("print3@test.com"), held, checkIn, checkOut, 60_000);
+            service.printAllReservation();
+        } finally {
+            System.setOut(originalOut);
+        }
+
+        String printed = output.toString();
+        assertFalse(printed.contains("No reservations found."));
+        assertEquals(2, printed.split("Reservation ID: ", -1).length - 1);
+        assertTrue(printed.contains("Reservation ID: " + first.getId() + "\n"));
+        assertTrue(printed.contains("Reservation ID: " + second.getId() + "\n"));
+    }
+
+    private java.util.List<Long> ids(Collection<Reservation> reservations) {
+        java.util.List<Long> ids = new java.util.ArrayList<>();
+        for (Reservation reservation : reservations) {
+            ids.add(reservation.getId());
+        }
+        return ids;
+    }
 }
@@ -41,14 +41,9 @@ public class ReservationServiceUnitTest {
         // Use the Singleton instance of ReservationService
         service = ReservationService.getSingleton();
 
-        // Clear the internal maps (rooms and reservations) before each test
-        java.lang.reflect.Field roomsField = ReservationService.class.getDeclaredField("rooms");
-        roomsField.setAccessible(true);
-        ((java.util.Map<?, ?>) roomsField.get(service)).clear();
-
-        java.lang.reflect.Field reservationsField = ReservationService.class.getDeclaredField("reservations");
-        reservationsField.setAccessible(true);
-        ((java.util.Map<?, ?>) reservationsField.get(service)).clear();
+        // Clear rooms, reservations and the per-room indexes before each test
+        service.clearAllRooms();
+        service.clearAllReservations();
 
         // Create mocks
         mockCustomer1 = mock(Customer.class);
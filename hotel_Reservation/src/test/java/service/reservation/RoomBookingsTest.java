@@ -0,0 +1,75 @@
+package service.reservation;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.room.Room;
+import model.room.enums.RoomType;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author joseneto
+ */
+
+// UNIT TEST for the check-in and check-out columns of a room's bookings
+
+public class RoomBookingsTest {
+
+    private final Customer customer = new Customer("Column", "Test", "column@test.com");
+    private final Room room = new Room("101", 100.0, RoomType.SINGLE);
+
+    // Case 1: bookings are kept by check-in day and only overlapping stays conflict
+    @Test
+    public void testWith_KeepsBookingsSortedAndFindsConflicts() {
+        final Reservation late = reservation(20, 25);
+        final Reservation early = reservation(10, 12);
+        final Reservation middle = reservation(14, 15);
+        final RoomBookings bookings = RoomBookings.NONE.with(late).with(early).with(middle);
+
+        assertEquals(Arrays.asList(early, middle, late), bookings.reservations());
+        assertTrue(bookings.hasConflict(11, 13));
+        assertTrue(bookings.hasConflict(5, 30));
+        assertFalse(bookings.hasConflict(12, 14));
+        assertFalse(bookings.hasConflict(25, 26));
+        assertTrue(bookings.isBooked(24));
+        assertFalse(bookings.isBooked(15));
+        assertTrue(RoomBookings.NONE.isEmpty());
+    }
+
+    // Case 2: the gap walk skips to the first gap long enough for the stay
+    @Test
+    public void testEarliestFreeDay_WalksGaps() {
+        final RoomBookings bookings = RoomBookings.NONE.with(reservation(10, 12)).with(reservation(13, 15))
+                .with(reservation(17, 20));
+
+        assertEquals(5, bookings.earliestFreeDay(5, 3));
+        assertEquals(12, bookings.earliestFreeDay(10, 1));
+        assertEquals(15, bookings.earliestFreeDay(11, 2));
+        assertEquals(20, bookings.earliestFreeDay(11, 3));
+        assertEquals(30, bookings.earliestFreeDay(30, 5));
+    }
+
+    // Case 3: only the very reservation booked is removed, and the original is left unchanged
+    @Test
+    public void testWithout_RemovesOnlyThatReservation() {
+        final Reservation kept = reservation(10, 12);
+        final Reservation removed = reservation(12, 14);
+        final RoomBookings bookings = RoomBookings.NONE.with(kept).with(removed);
+
+        assertNull(bookings.without(reservation(12, 14)));
+
+        final RoomBookings updated = bookings.without(removed);
+        assertEquals(Arrays.asList(kept), updated.reservations());
+        assertEquals(2, bookings.size());
+        assertFalse(updated.hasConflict(12, 14));
+        assertNull(updated.without(removed));
+    }
+
+    private Reservation reservation(final int checkInDay, final int checkOutDay) {
+        return new Reservation(customer, room, checkInDay, checkOutDay);
+    }
+}
@@ -0,0 +1,115 @@
+package service.reservation;
+
+import model.customer.Customer;
+import model.reservation.AvailableStay;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Measures the scans over a room's bookings on a long booking history:
+ * the gap walk of findEarliestAvailability and the double-booking check of
+ * a refused booking, for each {@link BookingEngineType}.
+ *
+ * Not a unit test: run it with
+ * {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=service.reservation.RoomScanBenchmark}
+ * or straight from the IDE.
+ *
+ * @author joseneto
+ */
+public class RoomScanBenchmark {
+
+    private static final int ROOMS = 200;
+    private static final int DAYS = 10 * 365;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+    private static final int CONFLICTS_PER_ROUND = 100_000;
+
+    public static void main(String[] args) {
+        final ReservationService service = ReservationService.getSingleton();
+        final Customer customer = new Customer("Bench", "Mark", "bench@example.com");
+        final Date start = date(2030, Calendar.JANUARY, 1);
+
+        for (BookingEngineType engineType : BookingEngineType.values()) {
+            service.clearAllRooms();
+            service.clearAllReservations();
+            service.setBookingEngine(engineType);
+
+            final IRoom[] rooms = new IRoom[ROOMS];
+            for (int i = 0; i < ROOMS; i++) {
+                rooms[i] = new Room(String.valueOf(i), 100.0, RoomType.SINGLE);
+                service.addRoom(rooms[i]);
+
+                // 2-night stays with a 1-night gap, so a 2-night search walks the whole history
+                for (int day = 0; day + 2 < DAYS; day += 3) {
+                    service.reserveARoom(customer, rooms[i], plusDays(start, day), plusDays(start, day + 2));
+                }
+            }
+
+            long sink = 0;
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                sink += earliest(service, start) + conflicts(service, customer, rooms, start);
+            }
+
+            long earliestNanos = 0;
+            long conflictNanos = 0;
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                final long before = System.nanoTime();
+                sink += earliest(service, start);
+                final long between = System.nanoTime();
+                sink += conflicts(service, customer, rooms, start);
+                conflictNanos += System.nanoTime() - between;
+                earliestNanos += between - before;
+            }
+
+            System.out.printf("%-10s %10.2f ms/earliest search %8.0f ns/refused booking (%d)%n", engineType,
+                    earliestNanos / 1e6 / MEASURED_ROUNDS,
+                    (double) conflictNanos / MEASURED_ROUNDS / CONFLICTS_PER_ROUND, sink);
+        }
+
+        service.clearAllRooms();
+        service.clearAllReservations();
+        service.setBookingEngine(BookingEngineType.LOCKING);
+    }
+
+    private static int earliest(final ReservationService service, final Date start) {
+        final List<AvailableStay> stays = service.findEarliestAvailability(start, 2, null, 10);
+
+        return stays.size();
+    }
+
+    private static int conflicts(final ReservationService service, final Customer customer, final IRoom[] rooms,
+            final Date start) {
+        int refused = 0;
+
+        for (int i = 0; i < CONFLICTS_PER_ROUND; i++) {
+            final int day = (i * 7) % (DAYS - 3);
+            try {
+                service.reserveARoom(customer, rooms[i % ROOMS], plusDays(start, day), plusDays(start, day + 2));
+            } catch (IllegalStateException e) {
+                refused++;
+            }
+        }
+
+        return refused;
+    }
+
+    private static Date date(final int year, final int month, final int day) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day);
+        return calendar.getTime();
+    }
+
+    private static Date plusDays(final Date date, final int days) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.add(Calendar.DATE, days);
+        return calendar.getTime();
+    }
+}
@@ -0,0 +1,81 @@
+package service.reservation;
+
+import model.customer.Customer;
+import model.reservation.WaitlistEntry;
+import model.room.Room;
+import model.room.enums.RoomType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author joseneto
+ */
+
+// UNIT TEST for the waitlist index by room and check-in day
+
+public class RoomWaitlistTest {
+
+    private RoomWaitlist waitlist;
+
+    @Before
+    public void setUp() {
+        waitlist = new RoomWaitlist();
+    }
+
+    // Case 1: only entries of the room whose stay overlaps the range are found, in join order
+    @Test
+    public void testFindOverlapping_ReturnsOverlappingEntriesOfRoom() {
+        final WaitlistEntry longStay = add("a@test.com", "101", 100, 110);
+        final WaitlistEntry before = add("b@test.com", "101", 95, 100);
+        final WaitlistEntry inside = add("c@test.com", "101", 104, 106);
+        final WaitlistEntry after = add("d@test.com", "101", 108, 109);
+        add("e@test.com", "202", 104, 106);
+
+        assertEquals(Arrays.asList(longStay, inside), waitlist.findOverlapping("101", 103, 107));
+        assertEquals(Arrays.asList(longStay, before), waitlist.findOverlapping("101", 99, 101));
+        assertEquals(Arrays.asList(longStay, after), waitlist.findOverlapping("101", 108, 120));
+        assertTrue(waitlist.findOverlapping("303", 100, 110).isEmpty());
+    }
+
+    // Case 2: removed entries are no longer found and cannot be removed twice
+    @Test
+    public void testRemove_DropsEntryOnce() {
+        final WaitlistEntry first = add("a@test.com", "101", 100, 102);
+        final WaitlistEntry second = add("b@test.com", "101", 100, 102);
+
+        assertTrue(waitlist.remove(first));
+        assertFalse(waitlist.remove(first));
+
+        assertEquals(Arrays.asList(second), waitlist.findOverlapping("101", 100, 101));
+        assertNull(waitlist.get(first.getId()));
+        assertEquals(Arrays.asList(second), waitlist.entries());
+    }
+
+    // Case 3: entries of a customer are listed across rooms in join order
+    @Test
+    public void testEntriesOf_ListsCustomerEntries() {
+        final List<WaitlistEntry> expected = new ArrayList<>();
+        expected.add(add("a@test.com", "202", 100, 102));
+        add("b@test.com", "101", 100, 102);
+        expected.add(add("a@test.com", "101", 110, 112));
+
+        assertEquals(expected, waitlist.entriesOf("a@test.com"));
+        assertTrue(waitlist.entriesOf("nobody@test.com").isEmpty());
+    }
+
+    private WaitlistEntry add(final String email, final String roomNumber, final int checkInDay,
+            final int checkOutDay) {
+        final WaitlistEntry entry = new WaitlistEntry(new Customer("Wait", "Test", email),
+                new Room(roomNumber, 100.0, RoomType.SINGLE), checkInDay, checkOutDay);
+        waitlist.add(entry);
+
+        return entry;
+    }
+}
@@ -0,0 +1,105 @@
+package service.reservation;
+
+import model.customer.Customer;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+
+import java.lang.management.ManagementFactory;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Measures heap allocation and time per availability search.
+ *
+ * Not a unit test: run it with
+ * {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=service.reservation.SearchAllocationBenchmark}
+ * or straight from the IDE.
+ *
+ * @author joseneto
+ */
+public class SearchAllocationBenchmark {
+
+    private static final int ROOMS = 2_000;
+    private static final int DAYS = 365;
+    private static final int WARMUP_SEARCHES = 20_000;
+    private static final int MEASURED_SEARCHES = 50_000;
+
+    public static void main(String[] args) {
+        final ReservationService service = ReservationService.getSingleton();
+        service.clearAllRooms();
+        service.clearAllReservations();
+
+        final Customer customer = new Customer("Bench", "Mark", "bench@example.com");
+        final Date start = date(2030, Calendar.JANUARY, 1);
+
+        for (int i = 0; i < ROOMS; i++) {
+            final IRoom room = new Room(String.valueOf(i), 100.0, i % 2 == 0 ? RoomType.SINGLE : RoomType.DOUBLE);
+            service.addRoom(room);
+
+            // one 3-night stay every 7 days, shifted per room
+            for (int day = i % 7; day + 3 < DAYS; day += 7) {
+                service.reserveARoom(customer, room, plusDays(start, day), plusDays(start, day + 3));
+            }
+        }
+
+        final Date[] checkIns = new Date[DAYS - 10];
+        final Date[] checkOuts = new Date[DAYS - 10];
+        for (int day = 0; day < checkIns.length; day++) {
+            checkIns[day] = plusDays(start, day);
+            checkOuts[day] = plusDays(start, day + 2);
+        }
+
+        run("findRooms", service, checkIns, checkOuts, false);
+        run("findAlternativeRooms", service, checkIns, checkOuts, true);
+    }
+
+    private static void run(final String name, final ReservationService service,
+            final Date[] checkIns, final Date[] checkOuts, final boolean alternative) {
+        long sink = 0;
+
+        for (int i = 0; i < WARMUP_SEARCHES; i++) {
+            sink += search(service, checkIns, checkOuts, i, alternative);
+        }
+
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        final long startNanos = System.nanoTime();
+
+        for (int i = 0; i < MEASURED_SEARCHES; i++) {
+            sink += search(service, checkIns, checkOuts, i, alternative);
+        }
+
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%-22s %10.1f bytes/search %10.2f us/search (%d rooms found)%n", name,
+                (double) allocated / MEASURED_SEARCHES, elapsedNanos / 1000.0 / MEASURED_SEARCHES, sink);
+    }
+
+    private static int search(final ReservationService service, final Date[] checkIns,
+            final Date[] checkOuts, final int i, final boolean alternative) {
+        final int day = i % checkIns.length;
+
+        return alternative
+                ? service.findAlternativeRooms(checkIns[day], checkOuts[day]).size()
+                : service.findRooms(checkIns[day], checkOuts[day]).size();
+    }
+
+    private static Date date(final int year, final int month, final int day) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day);
+        return calendar.getTime();
+    }
+
+    private static Date plusDays(final Date date, final int days) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.add(Calendar.DATE, days);
+        return calendar.getTime();
+    }
+}
@@ -0,0 +1,174 @@
+package service.reservation;
+
+import model.customer.Customer;
+import model.reservation.Reservation;
+import model.room.IRoom;
+import model.room.Room;
+import model.room.enums.RoomType;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures search and booking throughput under contention, with one
+ * booking or cancellation per 50 searches, for the optimistic read path of
+ * the service and for a baseline that synchronizes every call on one
+ * monitor.
+ *
+ * Not a unit test: run it with
+ * {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=service.reservation.SearchContentionBenchmark}
+ * or straight from the IDE.
+ *
+ * @author joseneto
+ */
+public class SearchContentionBenchmark {
+
+    private static final int ROOMS = 500;
+    private static final int DAYS = 120;
+    private static final int SEARCHES_PER_WRITE = 50;
+    private static final long WARMUP_MILLIS = 1_000;
+    private static final long MEASURED_MILLIS = 2_000;
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws InterruptedException {
+        final ReservationService service = ReservationService.getSingleton();
+        service.clearAllRooms();
+        service.clearAllReservations();
+
+        final List<IRoom> rooms = new ArrayList<>();
+        final Customer customer = new Customer("Bench", "Mark", "bench@example.com");
+        final Date start = date(2030, Calendar.JANUARY, 1);
+        final Date[] days = new Date[DAYS + 3];
+        for (int day = 0; day < days.length; day++) {
+            days[day] = plusDays(start, day);
+        }
+
+        for (int i = 0; i < ROOMS; i++) {
+            final IRoom room = new Room(String.valueOf(i), 100.0, i % 2 == 0 ? RoomType.SINGLE : RoomType.DOUBLE);
+            service.addRoom(room);
+            rooms.add(room);
+
+            // one 2-night stay every 5 days, shifted per room
+            for (int day = i % 5; day + 2 < DAYS; day += 5) {
+                service.reserveARoom(customer, room, days[day], days[day + 2]);
+            }
+        }
+
+        final Access optimistic = new Access() {
+            @Override
+            public Collection<IRoom> findRooms(final Date checkIn, final Date checkOut) {
+                return service.findRooms(checkIn, checkOut);
+            }
+
+            @Override
+            public Reservation reserve(final IRoom room, final Date checkIn, final Date checkOut) {
+                return service.reserveARoom(customer, room, checkIn, checkOut);
+            }
+
+            @Override
+            public void cancel(final long reservationId) {
+                service.cancelReservation(reservationId);
+            }
+        };
+        final Access synchronizedBaseline = new Access() {
+            @Override
+            public synchronized Collection<IRoom> findRooms(final Date checkIn, final Date checkOut) {
+                return service.findRooms(checkIn, checkOut);
+            }
+
+            @Override
+            public synchronized Reservation reserve(final IRoom room, final Date checkIn, final Date checkOut) {
+                return service.reserveARoom(customer, room, checkIn, checkOut);
+            }
+
+            @Override
+            public synchronized void cancel(final long reservationId) {
+                service.cancelReservation(reservationId);
+            }
+        };
+
+        for (int threads : THREADS) {
+            run("synchronized", synchronizedBaseline, threads, rooms, days);
+            run("optimistic", optimistic, threads, rooms, days);
+        }
+    }
+
+    private static void run(final String name, final Access access, final int threads,
+            final List<IRoom> rooms, final Date[] days) throws InterruptedException {
+        measure(access, threads, rooms, days, WARMUP_MILLIS);
+        final long[] counts = measure(access, threads, rooms, days, MEASURED_MILLIS);
+
+        System.out.printf("%-13s %2d threads %12.0f searches/s %10.0f writes/s%n", name, threads,
+                counts[0] * 1000.0 / MEASURED_MILLIS, counts[1] * 1000.0 / MEASURED_MILLIS);
+    }
+
+    private static long[] measure(final Access access, final int threads, final List<IRoom> rooms,
+            final Date[] days, final long millis) throws InterruptedException {
+        final LongAdder searches = new LongAdder();
+        final LongAdder writes = new LongAdder();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                while (running.get()) {
+                    for (int i = 0; i < SEARCHES_PER_WRITE; i++) {
+                        final int day = random.nextInt(DAYS);
+                        access.findRooms(days[day], days[day + 2]);
+                    }
+                    searches.add(SEARCHES_PER_WRITE);
+
+                    // book a free slot and give it back, so the load stays the same
+                    final IRoom room = rooms.get(random.nextInt(rooms.size()));
+                    final int day = random.nextInt(DAYS);
+                    try {
+                        access.cancel(access.reserve(room, days[day], days[day + 1]).getId());
+                        writes.add(2);
+                    } catch (IllegalStateException alreadyBooked) {
+                        writes.increment();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+
+        Thread.sleep(millis);
+        running.set(false);
+        done.await();
+
+        return new long[] {searches.sum(), writes.sum()};
+    }
+
+    private interface Access {
+
+        Collection<IRoom> findRooms(Date checkIn, Date checkOut);
+
+        Reservation reserve(IRoom room, Date checkIn, Date checkOut);
+
+        void cancel(long reservationId);
+    }
+
+    private static Date date(final int year, final int month, final int day) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day);
+        return calendar.getTime();
+    }
+
+    private static Date plusDays(final Date date, final int days) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.add(Calendar.DATE, days);
+        return calendar.getTime();
+    }
+}
@@ -0,0 +1,145 @@
+package service.reservation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author joseneto
+ */
+
+// UNIT TEST for the hierarchical timing wheel
+
+public class TimingWheelTest {
+
+    private static final long TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    private MutableClock clock;
+    private TimingWheel wheel;
+    private List<String> fired;
+
+    @Before
+    public void setUp() {
+        clock = new MutableClock(Instant.parse("2026-01-01T12:00:00Z"));
+        wheel = new TimingWheel(clock, TICK_MILLIS, WHEEL_SIZE);
+        fired = new ArrayList<>();
+    }
+
+    // Case 1: a task runs once its deadline has passed, never before
+    @Test
+    public void testAdvance_RunsTaskAfterDeadline() {
+        schedule("a", 35);
+
+        advance(30);
+        assertTrue(fired.isEmpty());
+
+        advance(10);
+        assertEquals(Collections.singletonList("a"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    // Case 2: deadlines beyond the first wheel cascade down through the upper wheels
+    @Test
+    public void testAdvance_CascadesFromUpperWheels() {
+        final long[] delays = {5, 75, 85, 650, 700, 5_000, 41_000};
+        for (long delay : delays) {
+            schedule("t" + delay, delay);
+        }
+
+        long elapsed = 0;
+        for (long delay : delays) {
+            advance(delay - elapsed - 1);
+            elapsed = delay - 1;
+            assertFalse("t" + delay + " ran early", fired.contains("t" + delay));
+
+            advance(TICK_MILLIS + 1);
+            elapsed += TICK_MILLIS + 1;
+            assertTrue("t" + delay + " did not run within a tick", fired.contains("t" + delay));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    // Case 3: a cancelled task never runs and the others are kept
+    @Test
+    public void testCancel_RemovesOnlyThatTask() {
+        schedule("a", 50);
+        final TimingWheel.Timeout b = schedule("b", 50);
+        schedule("c", 5_000);
+
+        assertTrue(wheel.cancel(b));
+        assertFalse(wheel.cancel(b));
+        advance(6_000);
+
+        assertEquals(Arrays.asList("a", "c"), fired);
+    }
+
+    // Case 4: a deadline that has already passed is left to the caller
+    @Test
+    public void testSchedule_PastDeadlineReturnsNull() {
+        assertNull(wheel.schedule(clock.millis(), () -> fired.add("late")));
+        assertEquals(0, wheel.size());
+    }
+
+    // Case 5: after an idle period the wheel jumps to the current time
+    @Test
+    public void testSchedule_AfterIdlePeriodUsesCurrentTime() {
+        advance(3_600_000);
+        schedule("a", 20);
+
+        advance(15);
+        assertTrue(fired.isEmpty());
+        advance(15);
+        assertEquals(Collections.singletonList("a"), fired);
+    }
+
+    private TimingWheel.Timeout schedule(final String name, final long delayMillis) {
+        return wheel.schedule(clock.millis() + delayMillis, () -> fired.add(name));
+    }
+
+    private void advance(final long millis) {
+        clock.advanceMillis(millis);
+        for (Runnable task : wheel.advance()) {
+            task.run();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(final Instant now) {
+            this.now = now;
+        }
+
+        void advanceMillis(final long millis) {
+            now = now.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}